@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the PHP module benchmarks.
+ *
+ * Accepts the standard JMH command line options. Unless another result
+ * file or format is given, results are written as JSON to
+ * results/lang-php-&lt;version&gt;.json so that the results of releases
+ * can be compared.
+ *
+ * @author Jordan Halterman
+ */
+public class BenchmarkMain {
+
+  private static final String RESULTS_DIR = "results";
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions options = new CommandLineOptions(args);
+    if (options.shouldHelp()) {
+      options.showHelp();
+      return;
+    }
+
+    ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+    if (!options.getResultFormat().hasValue()) {
+      builder.resultFormat(ResultFormatType.JSON);
+    }
+    if (!options.getResult().hasValue()) {
+      new File(RESULTS_DIR).mkdirs();
+      builder.result(new File(RESULTS_DIR, "lang-php-" + version() + ".json").getPath());
+    }
+
+    Runner runner = new Runner(builder.build());
+    if (options.shouldList()) {
+      runner.list();
+    }
+    else {
+      runner.run();
+    }
+  }
+
+  /**
+   * Returns the version of the PHP module being benchmarked.
+   */
+  public static String version() throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = BenchmarkMain.class.getResourceAsStream("/benchmarks.properties")) {
+      if (in != null) {
+        properties.load(in);
+      }
+    }
+    return properties.getProperty("version", "unknown");
+  }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks;
+
+import io.vertx.lang.php.buffer.Buffer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.caucho.quercus.env.Callable;
+import com.caucho.quercus.env.LongValue;
+import com.caucho.quercus.env.Value;
+
+/**
+ * Measures access to a Vertx\Buffer from PHP.
+ *
+ * Gets and sets use PHP's array syntax, which goes through the buffer's
+ * ArrayAccess implementation. Each operation is one access inside a PHP
+ * loop, so the results include the interpreter's loop overhead.
+ *
+ * @author Jordan Halterman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferBenchmark {
+
+  private static final int LENGTH = 1024;
+
+  private PhpEnvironment php;
+
+  private Value buffer;
+
+  private Value length;
+
+  private Callable get;
+
+  private Callable set;
+
+  private Callable append;
+
+  @Setup
+  public void setUp() throws IOException {
+    php = new PhpEnvironment();
+    buffer = php.env().wrapJava(new Buffer(new org.vertx.java.core.buffer.Buffer(new byte[LENGTH])));
+    length = LongValue.create(LENGTH);
+    get = php.callable("return function($buffer, $n) { for ($i = 0; $i < $n; $i++) { $b = $buffer[$i]; } };");
+    set = php.callable("return function($buffer, $n) { for ($i = 0; $i < $n; $i++) { $buffer[$i] = 1; } };");
+    append = php.callable("return function($buffer, $n) { for ($i = 0; $i < $n; $i++) { $buffer->append($i); } };");
+  }
+
+  @TearDown
+  public void tearDown() {
+    php.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LENGTH)
+  public void get() {
+    get.call(php.env(), buffer, length);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LENGTH)
+  public void set() {
+    set.call(php.env(), buffer, length);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(LENGTH)
+  public void append() {
+    // A fresh buffer keeps the appended buffer from growing without bound.
+    append.call(php.env(), php.env().wrapJava(new Buffer()), length);
+  }
+
+}
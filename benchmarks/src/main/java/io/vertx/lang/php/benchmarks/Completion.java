@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Signals the completion of asynchronous operations to a benchmark thread.
+ *
+ * Exposed to PHP callbacks, which call complete().
+ *
+ * @author Jordan Halterman
+ */
+public class Completion {
+
+  private final Semaphore completed = new Semaphore(0);
+
+  public void complete() {
+    completed.release();
+  }
+
+  /**
+   * Waits for an operation to complete.
+   */
+  public void await() throws InterruptedException, TimeoutException {
+    if (!completed.tryAcquire(10, TimeUnit.SECONDS)) {
+      throw new TimeoutException("Operation did not complete");
+    }
+  }
+
+}
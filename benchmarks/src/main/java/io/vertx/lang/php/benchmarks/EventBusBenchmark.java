@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks;
+
+import io.vertx.lang.php.PhpVerticleFactory;
+import io.vertx.lang.php.eventbus.EventBus;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.Vertx;
+import org.vertx.java.core.VertxFactory;
+import org.vertx.java.core.eventbus.Message;
+
+import com.caucho.quercus.env.StringValue;
+import com.caucho.quercus.env.Value;
+
+/**
+ * Measures a local event bus round trip from PHP: a message is sent
+ * through the PHP event bus API to a Java handler, and the reply is
+ * delivered to a PHP closure.
+ *
+ * Replies are plain strings, since the conversion of JSON bodies to PHP
+ * arrays is measured by JsonConversionBenchmark.
+ *
+ * @author Jordan Halterman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBusBenchmark {
+
+  private static final String ADDRESS = "benchmarks.echo";
+
+  private Vertx vertx;
+
+  private PhpEnvironment php;
+
+  private EventBus eventBus;
+
+  private StringValue address;
+
+  private Value stringMessage;
+
+  private Value arrayMessage;
+
+  private Value replyHandler;
+
+  private final Completion completion = new Completion();
+
+  @Setup
+  public void setUp() throws IOException {
+    vertx = VertxFactory.newVertx();
+    PhpVerticleFactory.vertx = vertx;
+    vertx.eventBus().registerHandler(ADDRESS, new Handler<Message<Object>>() {
+      @Override
+      public void handle(Message<Object> message) {
+        message.reply("ok");
+      }
+    });
+
+    php = new PhpEnvironment();
+    php.setGlobal("completion", completion);
+    eventBus = new EventBus(vertx.eventBus());
+    address = php.env().createString(ADDRESS);
+    stringMessage = php.env().createString("Hello world!");
+    arrayMessage = php.eval("return array('name' => 'benchmark', 'count' => 10, 'tags' => array('a', 'b', 'c'));");
+    replyHandler = php.eval("return function($reply) use ($completion) { $completion->complete(); };");
+  }
+
+  @TearDown
+  public void tearDown() {
+    php.close();
+    vertx.stop();
+  }
+
+  @Benchmark
+  public void sendString() throws InterruptedException, TimeoutException {
+    eventBus.send(php.env(), address, stringMessage, replyHandler);
+    completion.await();
+  }
+
+  @Benchmark
+  public void sendArray() throws InterruptedException, TimeoutException {
+    eventBus.send(php.env(), address, arrayMessage, replyHandler);
+    completion.await();
+  }
+
+}
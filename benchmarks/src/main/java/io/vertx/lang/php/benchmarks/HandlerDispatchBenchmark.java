@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks;
+
+import io.vertx.lang.php.Handler;
+import io.vertx.lang.php.TimerHandler;
+import io.vertx.lang.php.buffer.BufferHandler;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.buffer.Buffer;
+
+import com.caucho.quercus.env.Callable;
+
+/**
+ * Measures the cost of dispatching an event to a PHP closure.
+ *
+ * Run with "-prof gc" to report the allocation rate per dispatch.
+ *
+ * @author Jordan Halterman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandlerDispatchBenchmark {
+
+  private PhpEnvironment php;
+
+  private Handler<Object> genericHandler;
+
+  private Handler<Long> timerHandler;
+
+  private BufferHandler bufferHandler;
+
+  private Handler<Void> namedFunctionHandler;
+
+  private final Long timerId = Long.valueOf(1234);
+
+  private final Buffer buffer = new Buffer("Hello world!");
+
+  @Setup
+  public void setUp() throws IOException {
+    php = new PhpEnvironment();
+    Callable closure = php.callable("return function($arg) { return $arg; };");
+    genericHandler = new Handler<Object>(php.env(), closure);
+    timerHandler = new TimerHandler(php.env(), closure);
+    bufferHandler = new BufferHandler(php.env(), closure);
+
+    php.eval("function benchmark_handler() { return null; }");
+    namedFunctionHandler = new Handler<Void>(php.env(), php.callable("return 'benchmark_handler';")) {
+      @Override
+      public void handle(Void event) {
+        call();
+      }
+    };
+  }
+
+  @TearDown
+  public void tearDown() {
+    php.close();
+  }
+
+  @Benchmark
+  public void genericHandler() {
+    genericHandler.handle(timerId);
+  }
+
+  @Benchmark
+  public void timerHandler() {
+    timerHandler.handle(timerId);
+  }
+
+  @Benchmark
+  public void bufferHandler() {
+    bufferHandler.handle(buffer);
+  }
+
+  @Benchmark
+  public void namedFunctionHandler() {
+    namedFunctionHandler.handle(null);
+  }
+
+}
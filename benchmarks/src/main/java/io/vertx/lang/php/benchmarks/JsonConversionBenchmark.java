@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks;
+
+import io.vertx.lang.php.util.JsonReader;
+import io.vertx.lang.php.util.JsonWriter;
+import io.vertx.lang.php.util.PhpTypes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+import com.caucho.quercus.env.ArrayValue;
+import com.caucho.quercus.env.ArrayValueImpl;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.Value;
+
+/**
+ * Measures conversion between PHP arrays and JSON, as done for every
+ * event bus message with an array body.
+ *
+ * Documents have "size" fields at each of "depth" levels of nesting, and
+ * each level also holds a list of "size" numbers.
+ *
+ * @author Jordan Halterman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonConversionBenchmark {
+
+  @Param({"10", "100", "1000"})
+  public int size;
+
+  @Param({"1", "3"})
+  public int depth;
+
+  private PhpEnvironment php;
+
+  private JsonObject json;
+
+  private ArrayValue array;
+
+  private final JsonWriter writer = new JsonWriter();
+
+  private byte[] bytes;
+
+  @Setup
+  public void setUp() throws IOException {
+    php = new PhpEnvironment();
+    json = createDocument(size, depth);
+    array = PhpTypes.arrayFromJson(php.env(), json);
+    bytes = json.encode().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @TearDown
+  public void tearDown() {
+    php.close();
+  }
+
+  static JsonObject createDocument(int size, int depth) {
+    JsonObject document = new JsonObject();
+    for (int i = 0; i < size; i++) {
+      switch (i % 4) {
+        case 0:
+          document.putString("string" + i, "value" + i);
+          break;
+        case 1:
+          document.putNumber("long" + i, i * 1000000007L);
+          break;
+        case 2:
+          document.putNumber("double" + i, i / 3.0);
+          break;
+        default:
+          document.putBoolean("boolean" + i, i % 2 == 0);
+          break;
+      }
+    }
+    JsonArray list = new JsonArray();
+    for (int i = 0; i < size; i++) {
+      list.addNumber(i);
+    }
+    document.putArray("list", list);
+    if (depth > 1) {
+      document.putObject("child", createDocument(size, depth - 1));
+    }
+    return document;
+  }
+
+  @Benchmark
+  public JsonObject arrayToJsonObject() {
+    return PhpTypes.arrayToJsonObject(php.env(), array);
+  }
+
+  @Benchmark
+  public byte[] arrayToJsonBytes() {
+    return PhpTypes.arrayToJsonObject(php.env(), array).encode().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public int jsonWriter() {
+    return writer.reset().write(php.env(), array).length();
+  }
+
+  @Benchmark
+  public ArrayValue arrayFromJson() {
+    return PhpTypes.arrayFromJson(php.env(), json);
+  }
+
+  /**
+   * The conversion from JSON as it was before scalars were converted
+   * directly, kept as a baseline.
+   */
+  @Benchmark
+  public ArrayValue arrayFromJsonWrapJava() {
+    return wrapJava(php.env(), json);
+  }
+
+  private static ArrayValue wrapJava(Env env, JsonObject json) {
+    ArrayValue result = new ArrayValueImpl();
+    for (String key : json.getFieldNames()) {
+      Object value = json.getField(key);
+      if (value instanceof JsonObject) {
+        result.put(env.createString(key), wrapJava(env, (JsonObject) value));
+      }
+      else if (value instanceof JsonArray) {
+        result.put(env.createString(key), wrapJava(env, (JsonArray) value));
+      }
+      else {
+        result.put(env.createString(key), env.wrapJava(value));
+      }
+    }
+    return result;
+  }
+
+  private static ArrayValue wrapJava(Env env, JsonArray json) {
+    ArrayValue result = new ArrayValueImpl();
+    for (Object value : json) {
+      if (value instanceof JsonObject) {
+        result.put(wrapJava(env, (JsonObject) value));
+      }
+      else if (value instanceof JsonArray) {
+        result.put(wrapJava(env, (JsonArray) value));
+      }
+      else {
+        result.put(env.wrapJava(value));
+      }
+    }
+    return result;
+  }
+
+  @Benchmark
+  public ArrayValue arrayFromJsonBytes() {
+    return PhpTypes.arrayFromJson(php.env(), new JsonObject(new String(bytes, StandardCharsets.UTF_8)));
+  }
+
+  @Benchmark
+  public Value jsonReader() throws IOException {
+    return JsonReader.read(php.env(), bytes, 0, bytes.length);
+  }
+
+}
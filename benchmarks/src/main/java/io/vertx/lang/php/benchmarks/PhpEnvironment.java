@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks;
+
+import io.vertx.lang.php.PhpRuntime;
+
+import java.io.IOException;
+
+import com.caucho.quercus.QuercusContext;
+import com.caucho.quercus.env.Callable;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.Value;
+import com.caucho.quercus.page.InterpretedPage;
+
+/**
+ * A started PHP runtime with a single Env, as used by a verticle.
+ *
+ * @author Jordan Halterman
+ */
+public class PhpEnvironment {
+
+  private final PhpRuntime runtime;
+
+  private final Env env;
+
+  public PhpEnvironment() throws IOException {
+    runtime = new PhpRuntime(PhpEnvironment.class.getClassLoader(), false, null);
+    QuercusContext context = runtime.getContext();
+    env = new Env(context, new InterpretedPage(context.parseCode(context.createString(""))), runtime.acquireOutput(), null, null);
+    env.start();
+  }
+
+  /**
+   * Returns the Env.
+   */
+  public Env env() {
+    return env;
+  }
+
+  /**
+   * Evaluates PHP code in the Env's global scope.
+   *
+   * @return The value returned by the code.
+   */
+  public Value eval(String code) throws IOException {
+    QuercusContext context = runtime.getContext();
+    return context.parseCode(context.createString(code)).execute(env);
+  }
+
+  /**
+   * Evaluates PHP code which returns a callable.
+   */
+  public Callable callable(String code) throws IOException {
+    return eval(code).toCallable(env, false);
+  }
+
+  /**
+   * Sets a global PHP variable to a Java object.
+   */
+  public void setGlobal(String name, Object value) {
+    env.setGlobalValue(name, env.wrapJava(value));
+  }
+
+  public void close() {
+    env.close();
+    runtime.close();
+  }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks;
+
+import io.vertx.lang.php.streams.Pump;
+import io.vertx.lang.php.streams.ReadStream;
+import io.vertx.lang.php.streams.WriteStream;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.caucho.quercus.annotation.Optional;
+import com.caucho.quercus.env.BooleanValue;
+import com.caucho.quercus.env.Callable;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.NumberValue;
+import com.caucho.quercus.env.StringValue;
+import com.caucho.quercus.env.Value;
+
+/**
+ * Measures pumping chunks of data between PHP streams.
+ *
+ * The streams are in memory, so the results are the cost of the pump and
+ * the conversions it makes for each chunk.
+ *
+ * @author Jordan Halterman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PumpBenchmark {
+
+  private static final int CHUNKS = 64;
+
+  @Param({"64", "1024", "16384"})
+  public int chunkSize;
+
+  private PhpEnvironment php;
+
+  private MemoryReadStream readStream;
+
+  private MemoryWriteStream writeStream;
+
+  private Pump pump;
+
+  private StringValue chunk;
+
+  @Setup
+  public void setUp() throws IOException {
+    php = new PhpEnvironment();
+    readStream = new MemoryReadStream();
+    writeStream = new MemoryWriteStream();
+    pump = Pump.createPump(php.env(), readStream, writeStream, null);
+    pump.start(php.env());
+
+    char[] data = new char[chunkSize];
+    Arrays.fill(data, 'a');
+    chunk = php.env().createString(new String(data));
+  }
+
+  @TearDown
+  public void tearDown() {
+    pump.stop(php.env());
+    php.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(CHUNKS)
+  public long pump() {
+    for (int i = 0; i < CHUNKS; i++) {
+      readStream.emit(php.env(), chunk);
+    }
+    return writeStream.written;
+  }
+
+  /**
+   * A read stream which passes data to its handler when asked to.
+   */
+  private static class MemoryReadStream implements ReadStream<MemoryReadStream> {
+
+    private Callable dataHandler;
+
+    void emit(Env env, Value data) {
+      if (dataHandler != null) {
+        dataHandler.call(env, data);
+      }
+    }
+
+    @Override
+    public MemoryReadStream pause(Env env) {
+      return this;
+    }
+
+    @Override
+    public MemoryReadStream resume(Env env) {
+      return this;
+    }
+
+    @Override
+    public MemoryReadStream dataHandler(Env env, Value handler, @Optional Value options) {
+      dataHandler = handler != null ? handler.toCallable(env, false) : null;
+      return this;
+    }
+
+    @Override
+    public MemoryReadStream endHandler(Env env, Value handler) {
+      return this;
+    }
+
+  }
+
+  /**
+   * A write stream which counts the bytes written to it.
+   */
+  private static class MemoryWriteStream implements WriteStream<MemoryWriteStream> {
+
+    private long written;
+
+    @Override
+    public MemoryWriteStream write(Env env, Value data, @Optional StringValue enc) {
+      written += data.toStringValue(env).length();
+      return this;
+    }
+
+    @Override
+    public MemoryWriteStream drainHandler(Env env, Value handler) {
+      return this;
+    }
+
+    @Override
+    public MemoryWriteStream writeQueueMaxSize(Env env, NumberValue size) {
+      return this;
+    }
+
+    @Override
+    public BooleanValue writeQueueFull(Env env) {
+      return BooleanValue.FALSE;
+    }
+
+  }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks;
+
+import io.vertx.lang.php.http.RouteMatcher;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.vertx.java.core.MultiMap;
+import org.vertx.java.core.http.CaseInsensitiveMultiMap;
+import org.vertx.java.core.http.HttpServerRequest;
+
+import com.caucho.quercus.env.Value;
+
+/**
+ * Measures dispatching a request through a PHP route matcher with 100
+ * routes, where the last route matches.
+ *
+ * The request is a stub which only answers the calls made by the route
+ * matcher, so no HTTP server is involved.
+ *
+ * @author Jordan Halterman
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteMatcherBenchmark {
+
+  private static final int ROUTES = 100;
+
+  private PhpEnvironment php;
+
+  private RouteMatcher matcher;
+
+  private final MultiMap params = new CaseInsensitiveMultiMap();
+
+  private HttpServerRequest request;
+
+  @Setup
+  public void setUp() throws IOException {
+    php = new PhpEnvironment();
+    matcher = new RouteMatcher(php.env());
+    Value handler = php.eval("return function($request) { return $request; };");
+    for (int i = 0; i < ROUTES; i++) {
+      matcher.get(php.env(), php.env().createString("/route" + i + "/:id"), handler);
+    }
+    request = createRequest("GET", "/route" + (ROUTES - 1) + "/123");
+  }
+
+  @TearDown
+  public void tearDown() {
+    php.close();
+  }
+
+  @Benchmark
+  public void dispatch() {
+    // The route matcher adds the matched parameters to the request.
+    params.clear();
+    matcher.handle(php.env(), request);
+  }
+
+  private HttpServerRequest createRequest(final String method, final String path) {
+    return (HttpServerRequest) Proxy.newProxyInstance(HttpServerRequest.class.getClassLoader(),
+        new Class<?>[]{HttpServerRequest.class}, new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method m, Object[] args) {
+        switch (m.getName()) {
+          case "method":
+            return method;
+          case "path":
+          case "uri":
+            return path;
+          case "params":
+            return params;
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "equals":
+            return proxy == args[0];
+          case "toString":
+            return "benchmark request " + method + " " + path;
+          default:
+            return null;
+        }
+      }
+    });
+  }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks.load;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Measures the bytes allocated by the threads of the JVM, other than the
+ * load generator's own threads.
+ *
+ * Allocation is only measured on JVMs that count allocated bytes per
+ * thread, such as HotSpot.
+ *
+ * @author Jordan Halterman
+ */
+class AllocationMeter {
+
+  private final com.sun.management.ThreadMXBean threads;
+
+  private final Set<Long> excluded;
+
+  private Map<Long, Long> start;
+
+  AllocationMeter(Set<Long> excluded) {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      threads = (com.sun.management.ThreadMXBean) bean;
+      threads.setThreadAllocatedMemoryEnabled(true);
+    }
+    else {
+      threads = null;
+    }
+    this.excluded = excluded;
+  }
+
+  boolean isSupported() {
+    return threads != null;
+  }
+
+  void start() {
+    start = snapshot();
+  }
+
+  /**
+   * Returns the bytes allocated since the meter was started, or -1 if
+   * allocation is not measured.
+   */
+  long stop() {
+    if (threads == null) {
+      return -1;
+    }
+    long allocated = 0;
+    for (Map.Entry<Long, Long> entry : snapshot().entrySet()) {
+      Long before = start.get(entry.getKey());
+      allocated += entry.getValue() - (before != null ? before : 0);
+    }
+    return allocated;
+  }
+
+  private Map<Long, Long> snapshot() {
+    Map<Long, Long> allocated = new HashMap<Long, Long>();
+    if (threads == null) {
+      return allocated;
+    }
+    long[] ids = threads.getAllThreadIds();
+    long[] bytes = threads.getThreadAllocatedBytes(ids);
+    for (int i = 0; i < ids.length; i++) {
+      if (bytes[i] >= 0 && !excluded.contains(ids[i])) {
+        allocated.put(ids[i], bytes[i]);
+      }
+    }
+    return allocated;
+  }
+
+}
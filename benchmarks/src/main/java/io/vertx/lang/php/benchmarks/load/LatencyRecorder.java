@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks.load;
+
+import java.util.Arrays;
+
+/**
+ * Records request latencies, in nanoseconds.
+ *
+ * Each connection has its own recorder, so recording needs no
+ * synchronization. Recorders are merged once the run is over.
+ *
+ * @author Jordan Halterman
+ */
+class LatencyRecorder {
+
+  private long[] samples = new long[1 << 16];
+
+  private int count;
+
+  void record(long latency) {
+    if (count == samples.length) {
+      samples = Arrays.copyOf(samples, samples.length << 1);
+    }
+    samples[count++] = latency;
+  }
+
+  int count() {
+    return count;
+  }
+
+  /**
+   * Merges recorders into a sorted array of latencies.
+   */
+  static long[] merge(Iterable<LatencyRecorder> recorders) {
+    int total = 0;
+    for (LatencyRecorder recorder : recorders) {
+      total += recorder.count;
+    }
+    long[] merged = new long[total];
+    int offset = 0;
+    for (LatencyRecorder recorder : recorders) {
+      System.arraycopy(recorder.samples, 0, merged, offset, recorder.count);
+      offset += recorder.count;
+    }
+    Arrays.sort(merged);
+    return merged;
+  }
+
+  /**
+   * Returns a percentile of sorted latencies.
+   */
+  static long percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+    return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+  }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks.load;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A closed loop HTTP load generator.
+ *
+ * Each connection is a keep-alive connection on its own thread, which
+ * sends a request as soon as it has read the response to the previous
+ * one. Only requests started while measuring are recorded.
+ *
+ * @author Jordan Halterman
+ */
+public class LoadGenerator {
+
+  private final String host;
+
+  private final int port;
+
+  private final int connections;
+
+  private final byte[] request;
+
+  private volatile boolean measuring;
+
+  private volatile boolean stopped;
+
+  private final AtomicLong errors = new AtomicLong();
+
+  public LoadGenerator(String host, int port, int connections, byte[] request) {
+    this.host = host;
+    this.port = port;
+    this.connections = connections;
+    this.request = request;
+  }
+
+  /**
+   * Runs the load for a warmup period followed by a measured period.
+   */
+  public LoadResult run(long warmupMillis, long durationMillis) throws InterruptedException {
+    List<LatencyRecorder> recorders = new ArrayList<LatencyRecorder>();
+    List<Thread> threads = new ArrayList<Thread>();
+    Set<Long> threadIds = new HashSet<Long>();
+    CountDownLatch connected = new CountDownLatch(connections);
+    for (int i = 0; i < connections; i++) {
+      LatencyRecorder recorder = new LatencyRecorder();
+      Thread thread = new Thread(new Connection(recorder, connected), "load-generator-" + i);
+      thread.setDaemon(true);
+      recorders.add(recorder);
+      threads.add(thread);
+      threadIds.add(thread.getId());
+    }
+    threadIds.add(Thread.currentThread().getId());
+    AllocationMeter allocation = new AllocationMeter(threadIds);
+
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    connected.await();
+    Thread.sleep(warmupMillis);
+
+    allocation.start();
+    long start = System.nanoTime();
+    measuring = true;
+    Thread.sleep(durationMillis);
+    measuring = false;
+    long elapsed = System.nanoTime() - start;
+    long allocated = allocation.stop();
+
+    stopped = true;
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return new LoadResult(connections, elapsed, LatencyRecorder.merge(recorders), errors.get(), allocated);
+  }
+
+  /**
+   * A connection which sends requests until the generator is stopped.
+   */
+  private class Connection implements Runnable {
+
+    private final LatencyRecorder recorder;
+
+    private final CountDownLatch connected;
+
+    private Connection(LatencyRecorder recorder, CountDownLatch connected) {
+      this.recorder = recorder;
+      this.connected = connected;
+    }
+
+    @Override
+    public void run() {
+      boolean counted = false;
+      while (!stopped) {
+        try (Socket socket = new Socket(host, port)) {
+          socket.setTcpNoDelay(true);
+          OutputStream out = socket.getOutputStream();
+          InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+          if (!counted) {
+            connected.countDown();
+            counted = true;
+          }
+          while (!stopped) {
+            boolean recorded = measuring;
+            long start = System.nanoTime();
+            out.write(request);
+            out.flush();
+            boolean ok = readResponse(in);
+            long latency = System.nanoTime() - start;
+            if (recorded) {
+              if (ok) {
+                recorder.record(latency);
+              }
+              else {
+                errors.incrementAndGet();
+              }
+            }
+          }
+        } catch (IOException e) {
+          if (measuring) {
+            errors.incrementAndGet();
+          }
+          if (!counted) {
+            connected.countDown();
+            counted = true;
+          }
+        }
+      }
+    }
+
+  }
+
+  /**
+   * Reads a response from a stream.
+   *
+   * @return Indicates whether the response status was 200.
+   */
+  private static boolean readResponse(InputStream in) throws IOException {
+    String status = readLine(in);
+    boolean ok = status.startsWith("HTTP/1.1 200");
+    long contentLength = -1;
+    String line;
+    while (!(line = readLine(in)).isEmpty()) {
+      int colon = line.indexOf(':');
+      if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+        contentLength = Long.parseLong(line.substring(colon + 1).trim());
+      }
+    }
+    if (contentLength < 0) {
+      throw new IOException("Response has no Content-Length: " + status);
+    }
+    while (contentLength > 0) {
+      long skipped = in.skip(contentLength);
+      if (skipped <= 0) {
+        if (in.read() < 0) {
+          throw new EOFException();
+        }
+        skipped = 1;
+      }
+      contentLength -= skipped;
+    }
+    return ok;
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    StringBuilder line = new StringBuilder();
+    int c;
+    while ((c = in.read()) != '\n') {
+      if (c < 0) {
+        throw new EOFException();
+      }
+      if (c != '\r') {
+        line.append((char) c);
+      }
+    }
+    return line.toString();
+  }
+
+}
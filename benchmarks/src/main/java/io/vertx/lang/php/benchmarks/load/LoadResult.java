@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks.load;
+
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * The results of a load test run.
+ *
+ * @author Jordan Halterman
+ */
+public class LoadResult {
+
+  private final int connections;
+
+  private final long elapsed;
+
+  private final long[] latencies;
+
+  private final long errors;
+
+  private final long allocated;
+
+  LoadResult(int connections, long elapsed, long[] latencies, long errors, long allocated) {
+    this.connections = connections;
+    this.elapsed = elapsed;
+    this.latencies = latencies;
+    this.errors = errors;
+    this.allocated = allocated;
+  }
+
+  /**
+   * Returns the number of requests completed per second.
+   */
+  public double throughput() {
+    return latencies.length / (elapsed / 1000000000.0);
+  }
+
+  /**
+   * Returns a latency percentile, in microseconds.
+   */
+  public double latency(double percentile) {
+    return LatencyRecorder.percentile(latencies, percentile) / 1000.0;
+  }
+
+  /**
+   * Returns the megabytes allocated per second outside the load generator,
+   * or -1 if allocation was not measured.
+   */
+  public double allocationRate() {
+    if (allocated < 0) {
+      return -1;
+    }
+    return allocated / (1024.0 * 1024.0) / (elapsed / 1000000000.0);
+  }
+
+  /**
+   * Returns the bytes allocated per request outside the load generator,
+   * or -1 if allocation was not measured.
+   */
+  public long allocatedPerRequest() {
+    if (allocated < 0 || latencies.length == 0) {
+      return -1;
+    }
+    return allocated / latencies.length;
+  }
+
+  public JsonObject toJson() {
+    return new JsonObject()
+        .putNumber("connections", connections)
+        .putNumber("requests", latencies.length)
+        .putNumber("errors", errors)
+        .putNumber("throughput", throughput())
+        .putObject("latency", new JsonObject()
+            .putNumber("p50", latency(50))
+            .putNumber("p99", latency(99))
+            .putNumber("p999", latency(99.9))
+            .putNumber("max", latency(100)))
+        .putNumber("allocationRate", allocationRate())
+        .putNumber("allocatedPerRequest", allocatedPerRequest());
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%,.0f req/s, latency p50=%.0f us p99=%.0f us p999=%.0f us, allocation %s, %d errors",
+        throughput(), latency(50), latency(99), latency(99.9),
+        allocated < 0 ? "not measured" : String.format("%.1f MB/s (%d B/req)", allocationRate(), allocatedPerRequest()),
+        errors);
+  }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks.load;
+
+import io.vertx.lang.php.benchmarks.BenchmarkMain;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.vertx.java.core.AsyncResult;
+import org.vertx.java.core.Handler;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.platform.PlatformLocator;
+import org.vertx.java.platform.PlatformManager;
+
+/**
+ * Runs the sample PHP verticles in an embedded platform and loads them
+ * over the loopback interface.
+ *
+ * Usage: LoadTest [--connections n] [--warmup seconds] [--duration seconds]
+ * [--port port] [--verticles dir] [scenario...]
+ *
+ * The scenarios are hello, json, eventbus and static, and all of them are
+ * run by default. Each scenario's verticle is deployed, loaded and
+ * undeployed in turn. Results are printed and written as JSON to
+ * results/load-lang-php-&lt;version&gt;.json.
+ *
+ * @author Jordan Halterman
+ */
+public class LoadTest {
+
+  private static final String HOST = "127.0.0.1";
+
+  private static final String RESULTS_DIR = "results";
+
+  private static final long DEPLOY_TIMEOUT = 60;
+
+  private int connections = 64;
+
+  private long warmup = 10;
+
+  private long duration = 30;
+
+  private int port = 8181;
+
+  private File verticles = new File("verticles");
+
+  private final List<Scenario> scenarios = new ArrayList<Scenario>();
+
+  public static void main(String[] args) throws Exception {
+    LoadTest test = new LoadTest();
+    test.parse(args);
+    test.run();
+    System.exit(0);
+  }
+
+  private void parse(String[] args) {
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--connections":
+          connections = Integer.parseInt(args[++i]);
+          break;
+        case "--warmup":
+          warmup = Long.parseLong(args[++i]);
+          break;
+        case "--duration":
+          duration = Long.parseLong(args[++i]);
+          break;
+        case "--port":
+          port = Integer.parseInt(args[++i]);
+          break;
+        case "--verticles":
+          verticles = new File(args[++i]);
+          break;
+        default:
+          scenarios.add(Scenario.valueOf(args[i].toUpperCase(Locale.ENGLISH)));
+      }
+    }
+    if (scenarios.isEmpty()) {
+      scenarios.addAll(Arrays.asList(Scenario.values()));
+    }
+  }
+
+  private void run() throws Exception {
+    PlatformManager platform = PlatformLocator.factory.createPlatformManager();
+    JsonObject results = new JsonObject()
+        .putString("version", BenchmarkMain.version())
+        .putString("jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"))
+        .putNumber("processors", Runtime.getRuntime().availableProcessors());
+    JsonObject scenarioResults = new JsonObject();
+    results.putObject("scenarios", scenarioResults);
+
+    try {
+      for (Scenario scenario : scenarios) {
+        String deploymentID = deploy(platform, scenario);
+        try {
+          LoadGenerator generator = new LoadGenerator(HOST, port, connections, scenario.request(HOST, port));
+          LoadResult result = generator.run(TimeUnit.SECONDS.toMillis(warmup), TimeUnit.SECONDS.toMillis(duration));
+          System.out.println(scenario.name().toLowerCase(Locale.ENGLISH) + ": " + result);
+          scenarioResults.putObject(scenario.name().toLowerCase(Locale.ENGLISH), result.toJson());
+        } finally {
+          undeploy(platform, deploymentID);
+        }
+      }
+    } finally {
+      platform.stop();
+    }
+
+    File file = new File(RESULTS_DIR, "load-lang-php-" + BenchmarkMain.version() + ".json");
+    file.getParentFile().mkdirs();
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(results.encodePrettily().getBytes(StandardCharsets.UTF_8));
+    }
+    System.out.println("Results written to " + file);
+  }
+
+  private String deploy(PlatformManager platform, Scenario scenario) throws Exception {
+    JsonObject config = new JsonObject()
+        .putString("host", HOST)
+        .putNumber("port", port)
+        .putString("file", new File(verticles, "static/index.html").getAbsolutePath());
+    URL[] classpath = new URL[]{verticles.getAbsoluteFile().toURI().toURL()};
+
+    final CountDownLatch latch = new CountDownLatch(1);
+    final AtomicReference<AsyncResult<String>> deployed = new AtomicReference<AsyncResult<String>>();
+    platform.deployVerticle(scenario.main(), config, classpath, 1, null, new Handler<AsyncResult<String>>() {
+      @Override
+      public void handle(AsyncResult<String> result) {
+        deployed.set(result);
+        latch.countDown();
+      }
+    });
+    if (!latch.await(DEPLOY_TIMEOUT, TimeUnit.SECONDS)) {
+      throw new IOException("Timed out deploying " + scenario.main());
+    }
+    if (deployed.get().failed()) {
+      throw new IOException("Failed to deploy " + scenario.main(), deployed.get().cause());
+    }
+    return deployed.get().result();
+  }
+
+  private void undeploy(PlatformManager platform, String deploymentID) throws InterruptedException {
+    final CountDownLatch latch = new CountDownLatch(1);
+    platform.undeploy(deploymentID, new Handler<AsyncResult<Void>>() {
+      @Override
+      public void handle(AsyncResult<Void> result) {
+        latch.countDown();
+      }
+    });
+    latch.await(DEPLOY_TIMEOUT, TimeUnit.SECONDS);
+  }
+
+}
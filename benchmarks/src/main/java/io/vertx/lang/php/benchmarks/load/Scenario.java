@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.benchmarks.load;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A sample PHP verticle and the request with which it is loaded.
+ *
+ * @author Jordan Halterman
+ */
+public enum Scenario {
+
+  /**
+   * Responds to every request with a short plain text body.
+   */
+  HELLO("http_hello.php", "GET", null),
+
+  /**
+   * Decodes a JSON request body and responds with it encoded again.
+   */
+  JSON("json_echo.php", "POST", "{\"id\":12345,\"name\":\"vert.x\",\"tags\":[\"php\",\"jvm\",\"async\"],"
+      + "\"price\":19.99,\"active\":true,\"owner\":{\"name\":\"Jordan\",\"roles\":[\"admin\",\"user\"]}}"),
+
+  /**
+   * Sends a message to a PHP event bus handler for every request, and
+   * responds with the reply.
+   */
+  EVENTBUS("eventbus_ping.php", "GET", null),
+
+  /**
+   * Responds to every request with a static file.
+   */
+  STATIC("static_file.php", "GET", null);
+
+  private final String main;
+
+  private final String method;
+
+  private final String body;
+
+  private Scenario(String main, String method, String body) {
+    this.main = main;
+    this.method = method;
+    this.body = body;
+  }
+
+  /**
+   * Returns the name of the verticle script.
+   */
+  public String main() {
+    return main;
+  }
+
+  /**
+   * Returns the HTTP request sent on every iteration.
+   */
+  public byte[] request(String host, int port) {
+    StringBuilder request = new StringBuilder()
+        .append(method).append(" / HTTP/1.1\r\n")
+        .append("Host: ").append(host).append(':').append(port).append("\r\n");
+    byte[] content = body != null ? body.getBytes(StandardCharsets.UTF_8) : null;
+    if (content != null) {
+      request.append("Content-Type: application/json\r\n")
+          .append("Content-Length: ").append(content.length).append("\r\n");
+    }
+    request.append("\r\n");
+
+    byte[] head = request.toString().getBytes(StandardCharsets.US_ASCII);
+    if (content == null) {
+      return head;
+    }
+    byte[] bytes = new byte[head.length + content.length];
+    System.arraycopy(head, 0, bytes, 0, head.length);
+    System.arraycopy(content, 0, bytes, head.length, content.length);
+    return bytes;
+  }
+
+}
@@ -0,0 +1,15 @@
+<?php
+
+$config = Vertx::config();
+$eventBus = Vertx::eventBus();
+
+$eventBus->registerHandler('benchmarks.ping', function($message) {
+  $message->reply('pong');
+});
+
+Vertx::createHttpServer()->requestHandler(function($request) use ($eventBus) {
+  $eventBus->send('benchmarks.ping', 'ping', function($reply) use ($request) {
+    $request->response->putHeader('Content-Type', 'text/plain');
+    $request->response->end($reply->body);
+  });
+})->listen($config['port'], $config['host']);
@@ -0,0 +1,8 @@
+<?php
+
+$config = Vertx::config();
+
+Vertx::createHttpServer()->requestHandler(function($request) {
+  $request->response->putHeader('Content-Type', 'text/plain');
+  $request->response->end('Hello world');
+})->listen($config['port'], $config['host']);
@@ -0,0 +1,11 @@
+<?php
+
+$config = Vertx::config();
+
+Vertx::createHttpServer()->requestHandler(function($request) {
+  $request->bodyHandler(function($body) use ($request) {
+    $data = json_decode($body->toString(), TRUE);
+    $request->response->putHeader('Content-Type', 'application/json');
+    $request->response->end(json_encode($data));
+  });
+})->listen($config['port'], $config['host']);
@@ -0,0 +1,7 @@
+<?php
+
+$config = Vertx::config();
+
+Vertx::createHttpServer()->requestHandler(function($request) use ($config) {
+  $request->response->sendFile($config['file']);
+})->listen($config['port'], $config['host']);
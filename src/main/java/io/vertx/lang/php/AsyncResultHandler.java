@@ -19,6 +19,7 @@ import org.vertx.java.core.AsyncResult;
 
 import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.NullValue;
 
 /**
  * An asynchronous result handler.
@@ -45,18 +46,18 @@ public class AsyncResultHandler<T> extends Handler<AsyncResult<T>> {
     if (hasModifier()) {
       AsyncResult<?> wrapped = (AsyncResult<?>) getModifier().modify(result);
       if (wrapped.succeeded()) {
-        getCallable().call(env, env.wrapJava(wrapped.result()), env.wrapJava(null));
+        call(env.wrapJava(wrapped.result()), NullValue.NULL);
       }
       else {
-        getCallable().call(env, env.wrapJava(null), env.wrapJava(wrapped.cause()));
+        call(NullValue.NULL, env.wrapJava(wrapped.cause()));
       }
     }
     else {
       if (result.succeeded()) {
-        getCallable().call(env, env.wrapJava(result.result()), env.wrapJava(null));
+        call(env.wrapJava(result.result()), NullValue.NULL);
       }
       else {
-        getCallable().call(env, env.wrapJava(null), env.wrapJava(result.cause()));
+        call(NullValue.NULL, env.wrapJava(result.cause()));
       }
     }
   }
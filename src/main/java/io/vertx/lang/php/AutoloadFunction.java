@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.NullValue;
+import com.caucho.quercus.env.Value;
+import com.caucho.quercus.function.AbstractFunction;
+
+/**
+ * The Vert.x class autoloader.
+ *
+ * Classes are looked up in the class map built when the factory was
+ * initialized. Classes which are not in the map, such as classes from
+ * included modules, fall back to the require_vertx() path convention.
+ *
+ * @author Jordan Halterman
+ */
+public class AutoloadFunction extends AbstractFunction {
+
+  private static final long serialVersionUID = -2393145476209814390L;
+
+  /**
+   * The name under which the autoloader is registered in PHP.
+   */
+  public static final String NAME = "vertx_autoload";
+
+  private final transient PhpClassMap classMap;
+
+  private final transient RequireVertxFunction requireVertx;
+
+  public AutoloadFunction(PhpClassMap classMap, RequireVertxFunction requireVertx) {
+    this.classMap = classMap;
+    this.requireVertx = requireVertx;
+  }
+
+  @Override
+  public Value call(Env env, Value[] args) {
+    if (args.length != 1) {
+      throw new IllegalArgumentException(NAME + ": missing Argument class");
+    }
+
+    String className = args[0].toString();
+    String resourceName = classMap.get(className);
+    if (resourceName == null) {
+      resourceName = className.replace('\\', '/') + ".php";
+    }
+    requireVertx.require(env, resourceName);
+    return NullValue.create();
+  }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import io.vertx.lang.php.util.LatencyHistogram;
+import io.vertx.lang.php.util.StripedCounter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
+
+import com.caucho.quercus.Location;
+import com.caucho.quercus.env.Env;
+
+/**
+ * Records metrics of PHP callbacks invoked by Vert.x.
+ *
+ * Metrics are recorded per origin: the API through which a handler was
+ * registered, e.g. "EventBus.registerHandler:address", or the PHP
+ * location at which it was registered for handlers without a tag. Each
+ * origin counts invocations and errors and keeps a latency histogram.
+ * Metrics are kept for a bounded number of origins; callbacks from any
+ * further origins are recorded together under the "other" origin.
+ * Metrics are served as JSON in reply to any message sent to the stats
+ * address, and may also be published periodically.
+ *
+ * A callback that runs longer than the blocking threshold holds up the
+ * event loop that called it, so each such invocation is logged along
+ * with the PHP location at which it returned and the callback's origin.
+ *
+ * The monitor is shared by all PHP modules on the platform, and is only
+ * enabled if a module enables metrics or sets a blocking threshold. The
+ * first such module determines its settings. Once every module that
+ * enabled it has disabled it again, its handler and timer are removed and
+ * the next module to enable it starts a new monitor with its own settings.
+ *
+ * @author Jordan Halterman
+ */
+public class CallbackMonitor {
+
+  private static final Logger log = LoggerFactory.getLogger(CallbackMonitor.class);
+
+  /**
+   * The default event bus address at which callback statistics are served.
+   */
+  public static final String DEFAULT_ADDRESS = "vertx.php.callbacks";
+
+  /**
+   * The maximum number of origins for which metrics are kept separately.
+   */
+  private static final int MAX_ORIGINS = 1024;
+
+  /**
+   * The origin under which callbacks from origins beyond the maximum are
+   * recorded.
+   */
+  public static final String OTHER_ORIGIN = "other";
+
+  private static volatile CallbackMonitor instance;
+
+  private static int users;
+
+  private final org.vertx.java.core.Vertx vertx;
+
+  private final String address;
+
+  private final org.vertx.java.core.Handler<Message<Object>> statsHandler;
+
+  private long publishTimerId = -1;
+
+  private final long threshold;
+
+  private final ConcurrentMap<String, Callback> callbacks = new ConcurrentHashMap<String, Callback>();
+
+  private CallbackMonitor(org.vertx.java.core.Vertx vertx, long threshold, String address) {
+    this.vertx = vertx;
+    this.threshold = threshold;
+    this.address = address;
+    this.statsHandler = new org.vertx.java.core.Handler<Message<Object>>() {
+      @Override
+      public void handle(Message<Object> message) {
+        message.reply(toJson());
+      }
+    };
+  }
+
+  /**
+   * Returns the platform callback monitor, or null if monitoring is disabled.
+   */
+  public static CallbackMonitor get() {
+    return instance;
+  }
+
+  /**
+   * Enables callback monitoring for the platform.
+   *
+   * @param vertx The Vert.x instance on whose event bus statistics are served.
+   * @param thresholdMillis The time after which a callback is reported as
+   *          blocking, or 0 to not report blocking callbacks.
+   * @param address The event bus address at which statistics are served.
+   * @return The platform callback monitor. If monitoring was already
+   *         enabled the existing monitor is returned unchanged.
+   */
+  public static synchronized CallbackMonitor enable(org.vertx.java.core.Vertx vertx, long thresholdMillis, String address) {
+    if (instance == null) {
+      CallbackMonitor monitor = new CallbackMonitor(vertx, thresholdMillis > 0 ? thresholdMillis * 1000000 : Long.MAX_VALUE, address);
+      vertx.eventBus().registerHandler(address, monitor.statsHandler);
+      instance = monitor;
+    }
+    users++;
+    return instance;
+  }
+
+  /**
+   * Disables callback monitoring for a module that enabled it. Once every
+   * such module has disabled it, the stats handler is unregistered, metrics
+   * are no longer published and the metrics are discarded.
+   */
+  public static synchronized void disable() {
+    if (instance == null || --users > 0) {
+      return;
+    }
+    CallbackMonitor monitor = instance;
+    instance = null;
+    users = 0;
+    monitor.vertx.eventBus().unregisterHandler(monitor.address, monitor.statsHandler);
+    synchronized (monitor) {
+      if (monitor.publishTimerId != -1) {
+        monitor.vertx.cancelTimer(monitor.publishTimerId);
+        monitor.publishTimerId = -1;
+      }
+    }
+  }
+
+  /**
+   * Publishes the metrics of all callbacks to an event bus address at a
+   * fixed interval. Only the first call has any effect.
+   */
+  public synchronized void publish(final String address, long interval) {
+    if (publishTimerId != -1) {
+      return;
+    }
+    publishTimerId = vertx.setPeriodic(interval, new org.vertx.java.core.Handler<Long>() {
+      @Override
+      public void handle(Long timerId) {
+        vertx.eventBus().publish(address, toJson());
+      }
+    });
+  }
+
+  /**
+   * Returns the metrics of an origin, creating them if necessary.
+   *
+   * @param origin The origin of the callback.
+   * @param name The name of the first callback registered at the origin.
+   */
+  public Callback getCallback(String origin, String name) {
+    Callback callback = callbacks.get(origin);
+    if (callback == null) {
+      if (callbacks.size() >= MAX_ORIGINS && !origin.equals(OTHER_ORIGIN)) {
+        return getCallback(OTHER_ORIGIN, name);
+      }
+      Callback created = new Callback(origin, name);
+      callback = callbacks.putIfAbsent(origin, created);
+      if (callback == null) {
+        callback = created;
+      }
+    }
+    return callback;
+  }
+
+  /**
+   * Records a callback invocation.
+   *
+   * @param env The environment in which the callback ran.
+   * @param callback The callback statistics.
+   * @param elapsed The invocation time in nanoseconds.
+   * @param failed Indicates whether the callback threw an exception.
+   */
+  public void record(Env env, Callback callback, long elapsed, boolean failed) {
+    callback.latencies.record(elapsed);
+    if (failed) {
+      callback.errors.increment();
+    }
+    if (elapsed > threshold) {
+      Location location = env.getLocation();
+      log.warn(String.format("PHP callback %s from %s blocked the event loop for %.3f ms, returning at %s line %d in %s()",
+          callback.name, callback.origin, elapsed / 1000000.0, location.getFileName(), location.getLineNumber(),
+          location.getFunctionName()));
+    }
+  }
+
+  /**
+   * Returns the metrics of all callbacks as JSON.
+   */
+  public JsonObject toJson() {
+    JsonArray json = new JsonArray();
+    for (Map.Entry<String, Callback> entry : callbacks.entrySet()) {
+      Callback callback = entry.getValue();
+      json.addObject(callback.latencies.toJson()
+          .putString("origin", callback.origin)
+          .putString("callback", callback.name)
+          .putNumber("errors", callback.errors.get()));
+    }
+    return new JsonObject().putArray("callbacks", json);
+  }
+
+  /**
+   * The metrics of a single origin.
+   */
+  public static class Callback {
+    private final String origin;
+    private final String name;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final StripedCounter errors = new StripedCounter();
+
+    private Callback(String origin, String name) {
+      this.origin = origin;
+      this.name = name;
+    }
+  }
+
+}
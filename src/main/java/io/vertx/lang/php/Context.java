@@ -17,6 +17,7 @@ package io.vertx.lang.php;
 
 import io.vertx.lang.php.util.PhpTypes;
 
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.Value;
 
@@ -37,8 +38,8 @@ public final class Context {
    * @param callback A callable PHP function, method, or closure.
    */
   public void runOnContext(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\Context::runOnContext() must be callable.");
-    context.runOnContext(new Handler<Void>(env, PhpTypes.toCallable(handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\Context::runOnContext() must be callable.");
+    context.runOnContext(new Handler<Void>(env, callable));
   }
 
   public String toString() {
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
+
+import com.caucho.quercus.env.Env;
+
+/**
+ * The event bus handlers, servers and timers registered by the PHP code
+ * of a verticle Env.
+ *
+ * Resources are only tracked in Envs of verticles that are hot reloaded.
+ * When such a verticle is reloaded, the resources of the replaced Env
+ * are released once the new script has registered its own, so that the
+ * replaced code no longer receives events.
+ *
+ * @author Jordan Halterman
+ */
+public class EnvResources {
+
+  private static final Logger log = LoggerFactory.getLogger(EnvResources.class);
+
+  /**
+   * The Env special value under which the resources are stored.
+   */
+  private static final String KEY = "vertx.php.resources";
+
+  /**
+   * A resource that can be released.
+   */
+  public static interface Resource {
+
+    /**
+     * Releases the resource.
+     */
+    public void release();
+
+  }
+
+  private final Map<Object, Resource> resources = new LinkedHashMap<Object, Resource>();
+
+  /**
+   * Starts tracking the resources registered in an Env.
+   */
+  public static EnvResources track(Env env) {
+    EnvResources resources = new EnvResources();
+    env.setSpecialValue(KEY, resources);
+    return resources;
+  }
+
+  /**
+   * Returns the resources registered in an Env, or null if they are not tracked.
+   */
+  public static EnvResources get(Env env) {
+    return env != null ? (EnvResources) env.getSpecialValue(KEY) : null;
+  }
+
+  /**
+   * Records a resource registered in an Env, if the Env's resources are tracked.
+   *
+   * @param key The object by which the resource is removed once the PHP
+   *          code releases it itself, e.g. a handler or timer ID.
+   */
+  public static void add(Env env, Object key, Resource resource) {
+    EnvResources resources = get(env);
+    if (resources != null) {
+      synchronized (resources) {
+        resources.resources.put(key, resource);
+      }
+    }
+  }
+
+  /**
+   * Forgets a resource that the PHP code released itself.
+   */
+  public static void remove(Env env, Object key) {
+    EnvResources resources = get(env);
+    if (resources != null) {
+      synchronized (resources) {
+        resources.resources.remove(key);
+      }
+    }
+  }
+
+  /**
+   * Releases all resources.
+   */
+  public void release() {
+    List<Resource> released;
+    synchronized (this) {
+      released = new ArrayList<Resource>(resources.values());
+      resources.clear();
+    }
+    for (Resource resource : released) {
+      try {
+        resource.release();
+      } catch (RuntimeException e) {
+        log.warn("Failed to release a PHP verticle resource", e);
+      }
+    }
+  }
+
+}
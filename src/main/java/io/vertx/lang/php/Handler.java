@@ -15,8 +15,11 @@
  */
 package io.vertx.lang.php;
 
+import com.caucho.quercus.Location;
 import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.Value;
+import com.caucho.quercus.function.AbstractFunction;
 
 /**
  * An implementation of the Vert.x Handler that invokes PHP
@@ -37,23 +40,63 @@ public class Handler<T> implements org.vertx.java.core.Handler<T> {
    */
   private Callable handler;
 
+  /**
+   * The function a callable names, resolved when the handler is created.
+   * Calls to named functions bypass the callable's function lookup.
+   */
+  private AbstractFunction function;
+
   /**
    * An optional argument modifier. The modifier will be applied to
    * arguments when the handler's handle() method is called.
    */
   private ResultModifier<T, ?> modifier;
 
+  /**
+   * The origin under which the handler's metrics are recorded, or null
+   * if callback monitoring is disabled.
+   */
+  private String origin;
+
+  /**
+   * The callback's metrics, resolved on the first invocation.
+   */
+  private CallbackMonitor.Callback stats;
+
   public Handler(Env env, Callable handler) {
     this.env = env;
     this.handler = handler;
+    this.function = resolveFunction(env, handler);
+
+    if (CallbackMonitor.get() != null && env != null && handler != null) {
+      Location location = env.getLocation();
+      origin = location.getFileName() + ":" + location.getLineNumber();
+    }
   }
 
   public Handler(Env env, Callable handler, ResultModifier<T, ?> modifier) {
-    this.env = env;
-    this.handler = handler;
+    this(env, handler);
     this.modifier = modifier;
   }
 
+  /**
+   * Resolves the function named by a callable, if any.
+   *
+   * Closures call their function directly, and method callables are
+   * resolved to their method by PhpTypes.resolveCallable(), so both are
+   * left to the callable itself.
+   */
+  private static AbstractFunction resolveFunction(Env env, Callable handler) {
+    if (env == null || handler == null) {
+      return null;
+    }
+    String name = handler.getCallbackName();
+    if (name == null || name.indexOf(':') >= 0) {
+      return null;
+    }
+    return env.findFunction(env.createString(name));
+  }
+
   protected Env getEnvironment() {
     return env;
   }
@@ -70,12 +113,113 @@ public class Handler<T> implements org.vertx.java.core.Handler<T> {
     return modifier;
   }
 
+  /**
+   * Tags the handler with the API through which it was registered,
+   * e.g. "HttpServer.requestHandler". The metrics of untagged handlers
+   * are recorded under the PHP location at which they were registered.
+   *
+   * Tagging has no effect if callback monitoring was disabled when the
+   * handler was created, since no metrics are recorded for it.
+   */
+  public Handler<T> setOrigin(String origin) {
+    if (isMonitored()) {
+      this.origin = origin;
+    }
+    return this;
+  }
+
+  /**
+   * Indicates whether the handler's metrics are recorded. Only handlers
+   * created while monitoring is enabled are given an origin.
+   */
+  private boolean isMonitored() {
+    return this.origin != null;
+  }
+
+  /**
+   * Returns the callback's metrics, or null if monitoring is disabled.
+   */
+  private CallbackMonitor.Callback stats() {
+    if (stats == null && isMonitored()) {
+      // The monitor is gone once every module that enabled it has closed.
+      CallbackMonitor monitor = CallbackMonitor.get();
+      if (monitor != null) {
+        stats = monitor.getCallback(origin, handler.getCallbackName());
+      }
+    }
+    return stats;
+  }
+
+  /**
+   * Calls the PHP callback without arguments.
+   */
+  protected Value call() {
+    PhpProfiler.Slot slot = PhpProfiler.enter(env);
+    CallbackMonitor.Callback stats = stats();
+    long start = stats != null ? System.nanoTime() : 0;
+    boolean failed = true;
+    try {
+      Value result = function != null ? function.call(env) : handler.call(env);
+      failed = false;
+      return result;
+    } finally {
+      exit(slot, stats, start, failed);
+    }
+  }
+
+  /**
+   * Calls the PHP callback with a single argument.
+   */
+  protected Value call(Value arg) {
+    PhpProfiler.Slot slot = PhpProfiler.enter(env);
+    CallbackMonitor.Callback stats = stats();
+    long start = stats != null ? System.nanoTime() : 0;
+    boolean failed = true;
+    try {
+      Value result = function != null ? function.call(env, arg) : handler.call(env, arg);
+      failed = false;
+      return result;
+    } finally {
+      exit(slot, stats, start, failed);
+    }
+  }
+
+  /**
+   * Calls the PHP callback with two arguments.
+   */
+  protected Value call(Value arg1, Value arg2) {
+    PhpProfiler.Slot slot = PhpProfiler.enter(env);
+    CallbackMonitor.Callback stats = stats();
+    long start = stats != null ? System.nanoTime() : 0;
+    boolean failed = true;
+    try {
+      Value result = function != null ? function.call(env, arg1, arg2) : handler.call(env, arg1, arg2);
+      failed = false;
+      return result;
+    } finally {
+      exit(slot, stats, start, failed);
+    }
+  }
+
+  /**
+   * Records the end of a callback invocation.
+   */
+  private void exit(PhpProfiler.Slot slot, CallbackMonitor.Callback stats, long start, boolean failed) {
+    if (slot != null) {
+      slot.exit();
+    }
+    CallbackMonitor monitor = stats != null ? CallbackMonitor.get() : null;
+    if (monitor != null) {
+      monitor.record(env, stats, System.nanoTime() - start, failed);
+    }
+  }
+
   public void handle(T arg) {
     if (modifier != null) {
-      handler.call(env, env.wrapJava(modifier.modify(arg)));
+      call(env.wrapJava(modifier.modify(arg)));
     }
     else {
-      handler.call(env, env.wrapJava(arg));
+      call(env.wrapJava(arg));
     }
   }
 
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import com.caucho.quercus.env.Callable;
+import com.caucho.quercus.env.Callback;
+import com.caucho.quercus.env.CallbackClassMethod;
+import com.caucho.quercus.env.CallbackObjectMethod;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.LongValue;
+import com.caucho.quercus.env.ObjectValue;
+import com.caucho.quercus.env.QuercusClass;
+import com.caucho.quercus.env.Value;
+import com.caucho.quercus.function.AbstractFunction;
+import com.caucho.quercus.program.Arg;
+
+/**
+ * A PHP method callback whose method is resolved once.
+ *
+ * Quercus method callbacks look up their method by name on every call.
+ * Handlers are called many times, so method callbacks passed to the API
+ * are resolved to their method when they are registered instead.
+ *
+ * @author Jordan Halterman
+ */
+public class MethodCallback extends Callback {
+
+  private static final long serialVersionUID = -4726356531006070088L;
+
+  private final Callable callable;
+  private final QuercusClass cls;
+  private final Value qThis;
+  private final AbstractFunction method;
+
+  private MethodCallback(Callable callable, QuercusClass cls, Value qThis, AbstractFunction method) {
+    this.callable = callable;
+    this.cls = cls;
+    this.qThis = qThis;
+    this.method = method;
+  }
+
+  /**
+   * Resolves the method a callable calls.
+   *
+   * @param env The Quercus environment.
+   * @param value The PHP value from which the callable was created.
+   * @param callable The callable.
+   * @return A resolved method callback, or null if the callable is not
+   *         a method callback or its method cannot be resolved, e.g.
+   *         because it is handled by __call().
+   */
+  public static MethodCallback resolve(Env env, Value value, Callable callable) {
+    if (callable instanceof CallbackObjectMethod && value.isArray()) {
+      Value object = value.get(LongValue.ZERO).toValue();
+      if (object instanceof ObjectValue) {
+        QuercusClass cls = ((ObjectValue) object).getQuercusClass();
+        AbstractFunction method = cls != null ? cls.findFunction(value.get(LongValue.ONE).toStringValue(env)) : null;
+        if (method != null) {
+          return new MethodCallback(callable, cls, object, method);
+        }
+      }
+    }
+    else if (callable instanceof CallbackClassMethod) {
+      // Only static methods are resolved. Non-static methods called
+      // statically depend on the calling context.
+      String name = callable.getCallbackName();
+      int index = name.indexOf("::");
+      if (index > 0) {
+        QuercusClass cls = env.findClass(name.substring(0, index));
+        AbstractFunction method = cls != null ? cls.findFunction(name.substring(index + 2)) : null;
+        if (method != null && method.isStatic()) {
+          return new MethodCallback(callable, cls, cls, method);
+        }
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Value call(Env env) {
+    return method.callMethod(env, cls, qThis);
+  }
+
+  @Override
+  public Value call(Env env, Value a1) {
+    return method.callMethod(env, cls, qThis, a1);
+  }
+
+  @Override
+  public Value call(Env env, Value a1, Value a2) {
+    return method.callMethod(env, cls, qThis, a1, a2);
+  }
+
+  @Override
+  public Value call(Env env, Value a1, Value a2, Value a3) {
+    return method.callMethod(env, cls, qThis, a1, a2, a3);
+  }
+
+  @Override
+  public Value call(Env env, Value[] args) {
+    return method.callMethod(env, cls, qThis, args);
+  }
+
+  @Override
+  public boolean isValid(Env env) {
+    return true;
+  }
+
+  @Override
+  public String getCallbackName() {
+    return callable.getCallbackName();
+  }
+
+  @Override
+  public boolean isInternal(Env env) {
+    return false;
+  }
+
+  @Override
+  public String getDeclFileName(Env env) {
+    return callable.getDeclFileName(env);
+  }
+
+  @Override
+  public int getDeclStartLine(Env env) {
+    return callable.getDeclStartLine(env);
+  }
+
+  @Override
+  public int getDeclEndLine(Env env) {
+    return callable.getDeclEndLine(env);
+  }
+
+  @Override
+  public String getDeclComment(Env env) {
+    return callable.getDeclComment(env);
+  }
+
+  @Override
+  public boolean isReturnsReference(Env env) {
+    return callable.isReturnsReference(env);
+  }
+
+  @Override
+  public Arg[] getArgs(Env env) {
+    return callable.getArgs(env);
+  }
+
+}
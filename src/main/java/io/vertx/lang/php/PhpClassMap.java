@@ -0,0 +1,151 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
+
+/**
+ * An immutable map of PHP class names to the scripts that define them.
+ *
+ * The map is built by scanning the module directories on a module's class
+ * path for PHP scripts, i.e. the directories holding a mod.json. Other
+ * directories, such as the working directory under "vertx run", are not
+ * scanned, and neither are jars, so classes in them and in the jars of
+ * included modules are found by the autoloader's path convention alone.
+ * A scan stops after visiting a maximum number of files, so that a module
+ * holding large vendor trees does not delay its deployment indefinitely.
+ *
+ * Class names follow the same convention as the Vert.x autoloader, i.e.
+ * the class Foo\Bar\Baz is defined in Foo/Bar/Baz.php. Since PHP class
+ * names are case-insensitive, so are map lookups.
+ *
+ * @author Jordan Halterman
+ */
+public final class PhpClassMap {
+
+  private static final Logger log = LoggerFactory.getLogger(PhpClassMap.class);
+
+  private static final String EXTENSION = ".php";
+
+  private static final String MODULE_DESCRIPTOR = "mod.json";
+
+  /**
+   * The maximum number of files visited below each module directory.
+   */
+  private static final int MAX_FILES = 20000;
+
+  private final Map<String, String> classes;
+
+  private PhpClassMap(Map<String, String> classes) {
+    this.classes = Collections.unmodifiableMap(classes);
+  }
+
+  /**
+   * Builds a class map from the module directories on a class loader's
+   * class path.
+   */
+  public static PhpClassMap scan(ClassLoader cl) {
+    long start = System.nanoTime();
+    Map<String, String> classes = new HashMap<String, String>();
+    if (cl instanceof URLClassLoader) {
+      for (URL url : ((URLClassLoader) cl).getURLs()) {
+        if (!"file".equals(url.getProtocol())) {
+          continue;
+        }
+        try {
+          File root = new File(url.toURI());
+          if (root.isDirectory() && new File(root, MODULE_DESCRIPTOR).isFile()) {
+            scan(root.toPath(), classes);
+          }
+        } catch (URISyntaxException | IOException e) {
+          log.warn("Failed to scan " + url + " for PHP classes", e);
+        }
+      }
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug(String.format("Mapped %d PHP classes in %.3f ms", classes.size(), (System.nanoTime() - start) / 1000000.0));
+    }
+    return new PhpClassMap(classes);
+  }
+
+  /**
+   * Adds all scripts below a class path root to the map.
+   */
+  private static void scan(final Path root, final Map<String, String> classes) throws IOException {
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      private int visited;
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (++visited > MAX_FILES) {
+          log.warn(String.format("Stopped scanning %s for PHP classes after %d files", root, MAX_FILES));
+          return FileVisitResult.TERMINATE;
+        }
+        String resourceName = root.relativize(file).toString().replace(File.separatorChar, '/');
+        if (resourceName.endsWith(EXTENSION)) {
+          String className = resourceName.substring(0, resourceName.length() - EXTENSION.length()).replace('/', '\\');
+          // The first class path entry wins, as it does for class loader lookups.
+          if (!classes.containsKey(key(className))) {
+            classes.put(key(className), resourceName);
+          }
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * Returns the class path resource name of the script defining a class.
+   *
+   * @param className A PHP class name.
+   * @return The resource name, or null if the class is not in the map.
+   */
+  public String get(String className) {
+    return classes.get(key(className));
+  }
+
+  /**
+   * Returns the number of classes in the map.
+   */
+  public int size() {
+    return classes.size();
+  }
+
+  private static String key(String className) {
+    if (className.startsWith("\\")) {
+      className = className.substring(1);
+    }
+    return className.toLowerCase(Locale.ENGLISH);
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.vertx.java.core.VertxException;
+
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.Value;
+import com.caucho.quercus.function.AbstractFunction;
+
+/**
+ * A module's view of a PHP runtime.
+ *
+ * A runtime may be shared by several modules, so the functions that load
+ * scripts from a module's class path are bound to each Env rather than
+ * to the Quercus context. The require_vertx() and autoload functions
+ * registered in the context dispatch to the module of the calling Env.
+ *
+ * @author Jordan Halterman
+ */
+public class PhpModule {
+
+  /**
+   * The Env special value under which the module is stored.
+   */
+  private static final String KEY = "vertx.php.module";
+
+  private final PhpRuntime runtime;
+
+  private final RequireVertxFunction requireVertx;
+
+  private final AutoloadFunction autoload;
+
+  /**
+   * Addresses to which the module's verticles send arrays as MessagePack.
+   */
+  private final Set<String> binaryAddresses = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  public PhpModule(PhpRuntime runtime, ClassLoader cl, PhpClassMap classMap) {
+    this.runtime = runtime;
+    this.requireVertx = new RequireVertxFunction(runtime.getContext(), cl);
+    this.autoload = new AutoloadFunction(classMap, requireVertx);
+  }
+
+  /**
+   * Returns the module of a PHP environment.
+   */
+  public static PhpModule get(Env env) {
+    PhpModule module = (PhpModule) env.getSpecialValue(KEY);
+    if (module == null) {
+      throw new VertxException("PHP environment is not bound to a Vert.x module");
+    }
+    return module;
+  }
+
+  /**
+   * Binds the module to a PHP environment.
+   */
+  public void attach(Env env) {
+    env.setSpecialValue(KEY, this);
+  }
+
+  /**
+   * Returns the runtime in which the module's verticles run.
+   */
+  public PhpRuntime getRuntime() {
+    return runtime;
+  }
+
+  /**
+   * Returns the module's require_vertx() function.
+   */
+  public RequireVertxFunction getRequireVertx() {
+    return requireVertx;
+  }
+
+  /**
+   * Returns the module's class autoloader.
+   */
+  public AutoloadFunction getAutoload() {
+    return autoload;
+  }
+
+  /**
+   * Returns whether the module's verticles send arrays to an address as
+   * MessagePack rather than JSON.
+   */
+  public boolean isBinaryAddress(String address) {
+    return binaryAddresses.contains(address);
+  }
+
+  /**
+   * Sets whether the module's verticles send arrays to an address as
+   * MessagePack rather than JSON.
+   */
+  public void setBinaryAddress(String address, boolean binary) {
+    if (binary) {
+      binaryAddresses.add(address);
+    }
+    else {
+      binaryAddresses.remove(address);
+    }
+  }
+
+  /**
+   * Dispatches require_vertx() to the module of the calling Env.
+   */
+  static class RequireVertx extends AbstractFunction {
+    private static final long serialVersionUID = -8052440286227049337L;
+
+    @Override
+    public Value call(Env env, Value[] args) {
+      return PhpModule.get(env).requireVertx.call(env, args);
+    }
+  }
+
+  /**
+   * Dispatches class autoloading to the module of the calling Env.
+   */
+  static class Autoload extends AbstractFunction {
+    private static final long serialVersionUID = 3719880581626421657L;
+
+    @Override
+    public Value call(Env env, Value[] args) {
+      return PhpModule.get(env).autoload.call(env, args);
+    }
+  }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Scanner;
+
+import org.vertx.java.core.json.DecodeException;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * PHP runtime options.
+ *
+ * Options are read from the "php" object in the mod.json of the module
+ * being deployed, and may be overridden by system properties prefixed
+ * with "vertx.php.", e.g. -Dvertx.php.compile=true.
+ *
+ * @author Jordan Halterman
+ */
+public class PhpOptions {
+
+  private static final String PROPERTY_PREFIX = "vertx.php.";
+
+  private final JsonObject config;
+
+  public PhpOptions(JsonObject config) {
+    this.config = config != null ? config : new JsonObject();
+  }
+
+  /**
+   * Loads options from the mod.json visible to the given class loader.
+   */
+  public static PhpOptions load(ClassLoader cl) {
+    URL url = cl != null ? cl.getResource("mod.json") : null;
+    if (url == null) {
+      return new PhpOptions(null);
+    }
+
+    try (InputStream in = url.openStream(); Scanner scanner = new Scanner(in, "UTF-8")) {
+      String json = scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "{}";
+      return new PhpOptions(new JsonObject(json).getObject("php"));
+    } catch (IOException | DecodeException e) {
+      return new PhpOptions(null);
+    }
+  }
+
+  /**
+   * Returns a string option.
+   */
+  public String getString(String name, String def) {
+    String value = System.getProperty(PROPERTY_PREFIX + name);
+    if (value != null) {
+      return value;
+    }
+    Object field = config.getField(name);
+    return field != null ? field.toString() : def;
+  }
+
+  /**
+   * Returns a boolean option.
+   */
+  public boolean getBoolean(String name, boolean def) {
+    String value = getString(name, null);
+    return value != null ? Boolean.parseBoolean(value) : def;
+  }
+
+  /**
+   * Returns a numeric option.
+   */
+  public long getLong(String name, long def) {
+    String value = getString(name, null);
+    if (value == null) {
+      return def;
+    }
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return def;
+    }
+  }
+
+  /**
+   * Indicates whether verticle scripts should be compiled to Java classes.
+   */
+  public boolean isCompile() {
+    return getBoolean("compile", false);
+  }
+
+  public String toString() {
+    return config.encode();
+  }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import io.vertx.lang.php.tools.PhpPrecompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
+
+import com.caucho.quercus.QuercusContext;
+import com.caucho.quercus.page.QuercusPage;
+
+/**
+ * The pages of a module compiled by the PHP precompiler.
+ *
+ * The precompiler indexes the class generated for each script by the
+ * script's module relative name, along with a hash of the content it
+ * was compiled from. A page is only loaded from its class when the
+ * deployed script still has that content, so a stale or missing class
+ * falls back to parsing the script rather than running outdated code.
+ *
+ * @author Jordan Halterman
+ */
+public class PhpPrecompiledPages {
+
+  private static final Logger log = LoggerFactory.getLogger(PhpPrecompiledPages.class);
+
+  private final String workDir;
+
+  private final Map<String, Entry> entries;
+
+  private final ClassLoader loader;
+
+  private PhpPrecompiledPages(String workDir, Map<String, Entry> entries, ClassLoader loader) {
+    this.workDir = workDir;
+    this.entries = entries;
+    this.loader = loader;
+  }
+
+  /**
+   * Loads the index of precompiled pages visible to a module class loader.
+   *
+   * Modules are unpacked when installed, so the index and the classes
+   * compiled by the precompiler are available as plain files.
+   *
+   * @return The module's precompiled pages, or null if the module was not
+   *         precompiled.
+   */
+  public static PhpPrecompiledPages load(ClassLoader cl) {
+    URL index = cl.getResource(PhpPrecompiler.INDEX_RESOURCE);
+    if (index == null || !"file".equals(index.getProtocol())) {
+      return null;
+    }
+
+    File workDir = new File(new File(index.getPath()).getParentFile(), PhpPrecompiler.WORK_DIR);
+    if (!workDir.isDirectory()) {
+      log.warn("Ignoring PHP precompiler index " + index + ", its work directory " + workDir + " is missing");
+      return null;
+    }
+
+    Properties properties = new Properties();
+    try (InputStream in = index.openStream()) {
+      properties.load(in);
+    } catch (IOException e) {
+      log.warn("Failed to read PHP precompiler index " + index, e);
+      return null;
+    }
+
+    Map<String, Entry> entries = new HashMap<String, Entry>();
+    for (String name : properties.stringPropertyNames()) {
+      String value = properties.getProperty(name);
+      int separator = value.lastIndexOf(':');
+      if (separator <= 0) {
+        log.warn(String.format("Ignoring malformed PHP precompiler index entry %s=%s", name, value));
+        continue;
+      }
+      entries.put(name, new Entry(value.substring(0, separator), value.substring(separator + 1)));
+    }
+
+    try {
+      ClassLoader loader = new URLClassLoader(new URL[] { workDir.toURI().toURL() }, cl);
+      return new PhpPrecompiledPages(workDir.getPath(), entries, loader);
+    } catch (MalformedURLException e) {
+      log.warn("Cannot load PHP pages from " + workDir, e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the work directory holding the compiled classes.
+   */
+  public String getWorkDir() {
+    return workDir;
+  }
+
+  /**
+   * Returns the precompiled page of a script.
+   *
+   * @param context The context in which the page will run.
+   * @param resourceName The module relative name of the script.
+   * @param hash The SHA-1 hash of the script's current content.
+   * @return The page, or null if the script was not precompiled from its
+   *         current content.
+   */
+  public QuercusPage getPage(QuercusContext context, String resourceName, byte[] hash) {
+    Entry entry = entries.get(resourceName);
+    if (entry == null) {
+      return null;
+    }
+    if (!entry.hash.equals(PhpPrecompiledPages.toHex(hash))) {
+      log.warn(String.format("PHP script %s changed since it was precompiled, parsing it instead", resourceName));
+      return null;
+    }
+
+    try {
+      QuercusPage page = (QuercusPage) Class.forName(entry.className, true, loader).newInstance();
+      page.init(context);
+      return page;
+    } catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+      log.warn(String.format("Failed to load precompiled PHP script %s, parsing it instead", resourceName), e);
+      return null;
+    }
+  }
+
+  /**
+   * Formats a hash as a hexadecimal string.
+   */
+  public static String toHex(byte[] hash) {
+    StringBuilder builder = new StringBuilder(hash.length * 2);
+    for (byte b : hash) {
+      builder.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * The class compiled for a script along with the hash of its content.
+   */
+  private static class Entry {
+    private final String className;
+    private final String hash;
+
+    private Entry(String className, String hash) {
+      this.className = className;
+      this.hash = hash;
+    }
+  }
+
+}
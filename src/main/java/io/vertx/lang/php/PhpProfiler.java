@@ -0,0 +1,326 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.vertx.java.core.eventbus.Message;
+import org.vertx.java.core.json.JsonObject;
+import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
+
+import com.caucho.quercus.Location;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.expr.Expr;
+
+/**
+ * A sampling profiler for PHP code.
+ *
+ * Java profilers only see the Quercus interpreter, so this profiler
+ * samples the PHP call stacks of the Envs that are running on Vert.x
+ * threads instead. Threads mark the Env they are running while they
+ * call into PHP, which costs a thread local lookup per callback while
+ * the profiler is running and a volatile read while it is not. A single
+ * daemon thread samples the marked Envs at a fixed interval.
+ *
+ * Samples are aggregated in the collapsed stack format read by flame
+ * graph tools: one line per distinct stack, with frames separated by
+ * semicolons from the root, followed by the number of samples.
+ *
+ * Stacks are read without synchronizing with the thread that runs the
+ * Env, so an occasional sample may be inaccurate.
+ *
+ * @author Jordan Halterman
+ */
+public class PhpProfiler {
+
+  private static final Logger log = LoggerFactory.getLogger(PhpProfiler.class);
+
+  /**
+   * The default event bus address at which the profiler is controlled.
+   */
+  public static final String DEFAULT_ADDRESS = "vertx.php.profiler";
+
+  /**
+   * The default sampling interval in milliseconds.
+   */
+  public static final long DEFAULT_INTERVAL = 10;
+
+  /**
+   * The maximum number of distinct stacks recorded. Samples of stacks
+   * beyond the limit are counted as truncated.
+   */
+  private static final int MAX_STACKS = 10000;
+
+  private static final Set<Slot> slots = new CopyOnWriteArraySet<Slot>();
+
+  private static final ThreadLocal<Slot> currentSlot = new ThreadLocal<Slot>() {
+    @Override
+    protected Slot initialValue() {
+      Slot slot = new Slot(Thread.currentThread());
+      slots.add(slot);
+      return slot;
+    }
+  };
+
+  private static final ConcurrentMap<String, AtomicLong> stacks = new ConcurrentHashMap<String, AtomicLong>();
+
+  private static final AtomicLong samples = new AtomicLong();
+
+  private static final AtomicLong truncated = new AtomicLong();
+
+  private static volatile boolean running;
+
+  private static Thread sampler;
+
+  private static boolean addressRegistered;
+
+  private PhpProfiler() {
+  }
+
+  /**
+   * Marks the current thread as running PHP code in an Env.
+   *
+   * @return The thread's slot, which must be passed to exit() when the
+   *         PHP code returns, or null if the profiler is not running.
+   */
+  public static Slot enter(Env env) {
+    if (!running) {
+      return null;
+    }
+    Slot slot = currentSlot.get();
+    slot.enter(env);
+    return slot;
+  }
+
+  /**
+   * Indicates whether the profiler is running.
+   */
+  public static boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Starts sampling, discarding any previous samples.
+   *
+   * @param interval The sampling interval in milliseconds.
+   */
+  public static synchronized void start(final long interval) {
+    if (running) {
+      return;
+    }
+    stacks.clear();
+    samples.set(0);
+    truncated.set(0);
+    running = true;
+
+    sampler = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        while (running) {
+          sample();
+          try {
+            Thread.sleep(interval);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+      }
+    }, "vertx-php-profiler");
+    sampler.setDaemon(true);
+    sampler.start();
+    log.info(String.format("PHP profiler started, sampling every %d ms", interval));
+  }
+
+  /**
+   * Stops sampling.
+   *
+   * @return The samples taken since the profiler was started, in collapsed stack format.
+   */
+  public static synchronized String stop() {
+    if (running) {
+      running = false;
+      sampler.interrupt();
+      sampler = null;
+      log.info(String.format("PHP profiler stopped after %d samples", samples.get()));
+    }
+    return dump();
+  }
+
+  /**
+   * Returns the samples taken so far in collapsed stack format.
+   */
+  public static String dump() {
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, AtomicLong> entry : stacks.entrySet()) {
+      builder.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Allows the profiler to be controlled through the event bus.
+   *
+   * Messages are JSON objects with an "action" of "start", "stop" or
+   * "dump". A start message may give the sampling "interval" in
+   * milliseconds. Stop and dump messages are replied to with the
+   * collapsed stacks.
+   */
+  public static synchronized void registerAddress(org.vertx.java.core.Vertx vertx, String address) {
+    if (addressRegistered) {
+      return;
+    }
+    vertx.eventBus().registerHandler(address, new org.vertx.java.core.Handler<Message<JsonObject>>() {
+      @Override
+      public void handle(Message<JsonObject> message) {
+        JsonObject body = message.body() != null ? message.body() : new JsonObject();
+        String action = body.getString("action", "dump");
+        JsonObject reply = new JsonObject().putString("status", "ok");
+        switch (action) {
+          case "start":
+            start(body.getLong("interval", DEFAULT_INTERVAL));
+            break;
+          case "stop":
+            reply.putString("stacks", stop());
+            break;
+          case "dump":
+            reply.putString("stacks", dump());
+            break;
+          default:
+            message.reply(new JsonObject().putString("status", "error").putString("message", "Unknown action " + action));
+            return;
+        }
+        message.reply(reply.putBoolean("running", running).putNumber("samples", samples.get()).putNumber("truncated", truncated.get()));
+      }
+    });
+    addressRegistered = true;
+  }
+
+  /**
+   * Samples the stacks of all threads that are running PHP code.
+   */
+  private static void sample() {
+    for (Slot slot : slots) {
+      Env env = slot.current;
+      if (env == null) {
+        continue;
+      }
+      if (!slot.thread.isAlive()) {
+        slots.remove(slot);
+        continue;
+      }
+
+      String stack;
+      try {
+        stack = collapse(slot.thread, env);
+      } catch (RuntimeException e) {
+        // The Env changed while it was being sampled.
+        continue;
+      }
+
+      samples.incrementAndGet();
+      AtomicLong count = stacks.get(stack);
+      if (count == null) {
+        if (stacks.size() >= MAX_STACKS) {
+          truncated.incrementAndGet();
+          continue;
+        }
+        count = new AtomicLong();
+        AtomicLong existing = stacks.putIfAbsent(stack, count);
+        if (existing != null) {
+          count = existing;
+        }
+      }
+      count.incrementAndGet();
+    }
+  }
+
+  /**
+   * Builds the collapsed stack of an Env.
+   *
+   * Each call on the Env's call stack was made from the function that
+   * contains the call expression, so the stack is made of the functions
+   * containing each call, from the outermost, followed by the function
+   * the Env is currently executing.
+   */
+  private static String collapse(Thread thread, Env env) {
+    StringBuilder builder = new StringBuilder(thread.getName());
+    for (int depth = env.getCallDepth() - 1; depth >= 0; depth--) {
+      Expr call = env.peekCall(depth);
+      if (call != null) {
+        appendFrame(builder, call.getLocation());
+      }
+    }
+    appendFrame(builder, env.getLocation());
+    return builder.toString();
+  }
+
+  private static void appendFrame(StringBuilder builder, Location location) {
+    builder.append(';');
+    String funcName = location.getFunctionName();
+    if (funcName == null || funcName.equals("NULL") || funcName.startsWith("__quercus_")) {
+      builder.append(location.getFileName());
+      return;
+    }
+    String className = location.getClassName();
+    if (className != null && !className.equals("NULL")) {
+      builder.append(className).append("::");
+    }
+    builder.append(funcName);
+  }
+
+  /**
+   * The Envs a thread is running.
+   *
+   * Envs may be nested when PHP code synchronously triggers a callback
+   * in another Env, in which case the innermost Env is sampled.
+   */
+  public static class Slot {
+    private final Thread thread;
+    private final Env[] envs = new Env[8];
+    private int depth;
+    private volatile Env current;
+
+    private Slot(Thread thread) {
+      this.thread = thread;
+    }
+
+    private void enter(Env env) {
+      if (depth < envs.length) {
+        envs[depth] = env;
+      }
+      depth++;
+      current = env;
+    }
+
+    /**
+     * Marks the thread as having returned from the Env it last entered.
+     */
+    public void exit() {
+      depth--;
+      if (depth < envs.length) {
+        envs[depth] = null;
+      }
+      current = depth > 0 ? envs[Math.min(depth, envs.length) - 1] : null;
+    }
+  }
+
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
+
+import com.caucho.quercus.QuercusContext;
+import com.caucho.quercus.page.InterpretedPage;
+import com.caucho.quercus.page.QuercusPage;
+import com.caucho.quercus.parser.QuercusParser;
+import com.caucho.quercus.program.QuercusProgram;
+import com.caucho.vfs.Path;
+import com.caucho.vfs.ReadStream;
+import com.caucho.vfs.Vfs;
+
+/**
+ * A cache of parsed PHP verticle scripts.
+ *
+ * Pages are shared by all verticle instances created by a single factory.
+ * Each entry is validated against the modification time and size of the
+ * script file. When either changes the file content is hashed, and the
+ * script is only parsed again if the content hash changed as well.
+ *
+ * When compilation is enabled pages are obtained from the Quercus page
+ * manager, which compiles them to Java classes if the engine supports it.
+ * Any compilation failure falls back to an interpreted page. Scripts of
+ * modules compiled by the PHP precompiler are loaded from their compiled
+ * classes if they did not change since they were compiled.
+ *
+ * @author Jordan Halterman
+ */
+public class PhpProgramCache {
+
+  private static final Logger log = LoggerFactory.getLogger(PhpProgramCache.class);
+
+  private final QuercusContext context;
+
+  private final boolean compile;
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong parseTime = new AtomicLong();
+
+  private final AtomicLong compiled = new AtomicLong();
+
+  private final AtomicLong compileFailures = new AtomicLong();
+
+  private final AtomicLong precompiled = new AtomicLong();
+
+  public PhpProgramCache(QuercusContext context) {
+    this(context, false);
+  }
+
+  public PhpProgramCache(QuercusContext context, boolean compile) {
+    this.context = context;
+    this.compile = compile;
+  }
+
+  /**
+   * Returns the parsed page for a script, parsing it if necessary.
+   *
+   * @param scriptName The absolute path to the PHP script.
+   * @return A page that can be executed in any Env of the cache's context.
+   * @throws IOException If the script cannot be read or parsed.
+   */
+  public QuercusPage getPage(String scriptName) throws IOException {
+    return getPage(scriptName, null, null);
+  }
+
+  /**
+   * Returns the page for a script, loading it from the module's precompiled
+   * pages or parsing it if necessary.
+   *
+   * @param scriptName The absolute path to the PHP script.
+   * @param resourceName The module relative name of the script.
+   * @param precompiledPages The module's precompiled pages, or null.
+   * @return A page that can be executed in any Env of the cache's context.
+   * @throws IOException If the script cannot be read or parsed.
+   */
+  public QuercusPage getPage(String scriptName, String resourceName, PhpPrecompiledPages precompiledPages) throws IOException {
+    File file = new File(scriptName);
+    long lastModified = file.lastModified();
+    long length = file.length();
+
+    Entry entry = entries.get(scriptName);
+    if (entry != null && entry.lastModified == lastModified && entry.length == length) {
+      hits.incrementAndGet();
+      return entry.page;
+    }
+
+    byte[] hash = hash(Files.readAllBytes(file.toPath()));
+    if (entry != null && Arrays.equals(entry.hash, hash)) {
+      // The file was touched but its content did not change.
+      entries.replace(scriptName, entry, new Entry(lastModified, length, hash, entry.page));
+      hits.incrementAndGet();
+      return entry.page;
+    }
+
+    misses.incrementAndGet();
+    QuercusPage page = null;
+    if (precompiledPages != null) {
+      page = precompiledPages.getPage(context, resourceName, hash);
+    }
+    if (page != null) {
+      precompiled.incrementAndGet();
+    }
+    else {
+      page = parse(scriptName);
+    }
+    entries.put(scriptName, new Entry(lastModified, length, hash, page));
+    return page;
+  }
+
+  /**
+   * Removes a script from the cache.
+   */
+  public void invalidate(String scriptName) {
+    entries.remove(scriptName);
+  }
+
+  /**
+   * Removes all scripts from the cache.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns the number of page lookups served from the cache.
+   */
+  public long hits() {
+    return hits.get();
+  }
+
+  /**
+   * Returns the number of page lookups that required parsing.
+   */
+  public long misses() {
+    return misses.get();
+  }
+
+  /**
+   * Returns the total time spent parsing scripts, in nanoseconds.
+   */
+  public long parseTime() {
+    return parseTime.get();
+  }
+
+  /**
+   * Returns the number of pages that were compiled to Java classes.
+   */
+  public long compiled() {
+    return compiled.get();
+  }
+
+  /**
+   * Returns the number of pages that failed to compile and were interpreted.
+   */
+  public long compileFailures() {
+    return compileFailures.get();
+  }
+
+  /**
+   * Returns the number of pages that were loaded from precompiled classes.
+   */
+  public long precompiled() {
+    return precompiled.get();
+  }
+
+  /**
+   * Parses a script into a page.
+   */
+  private QuercusPage parse(String scriptName) throws IOException {
+    Path path = Vfs.lookup(scriptName);
+    long start = System.nanoTime();
+    try {
+      if (compile) {
+        QuercusPage page = compile(scriptName, path);
+        if (page != null) {
+          return page;
+        }
+      }
+      return interpret(path);
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      parseTime.addAndGet(elapsed);
+      if (log.isDebugEnabled()) {
+        log.debug(String.format("Parsed PHP script %s in %.3f ms (%s)", scriptName, elapsed / 1000000.0, this));
+      }
+    }
+  }
+
+  /**
+   * Compiles a script, returning null if the page could not be compiled.
+   */
+  private QuercusPage compile(String scriptName, Path path) {
+    try {
+      QuercusPage page = context.parse(path);
+      if (page instanceof InterpretedPage) {
+        // The engine does not support compilation.
+        compileFailures.incrementAndGet();
+      }
+      else {
+        compiled.incrementAndGet();
+      }
+      return page;
+    } catch (Exception e) {
+      compileFailures.incrementAndGet();
+      log.warn(String.format("Failed to compile PHP script %s, falling back to interpretation", scriptName), e);
+      return null;
+    }
+  }
+
+  /**
+   * Parses a script into an interpreted page.
+   */
+  private QuercusPage interpret(Path path) throws IOException {
+    try (ReadStream reader = path.openRead()) {
+      QuercusProgram program = QuercusParser.parse(context, path, reader);
+      return new InterpretedPage(program);
+    }
+  }
+
+  /**
+   * Returns a SHA-1 hash of the given content.
+   */
+  public static byte[] hash(byte[] content) {
+    try {
+      return MessageDigest.getInstance("SHA-1").digest(content);
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-1.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public String toString() {
+    return String.format("hits=%d, misses=%d, parseTime=%.3f ms, compiled=%d, compileFailures=%d, precompiled=%d",
+        hits(), misses(), parseTime() / 1000000.0, compiled(), compileFailures(), precompiled());
+  }
+
+  /**
+   * A cached page along with the file state it was parsed from.
+   */
+  private static class Entry {
+    private final long lastModified;
+    private final long length;
+    private final byte[] hash;
+    private final QuercusPage page;
+
+    private Entry(long lastModified, long length, byte[] hash, QuercusPage page) {
+      this.lastModified = lastModified;
+      this.length = length;
+      this.hash = hash;
+      this.page = page;
+    }
+  }
+
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import io.vertx.lang.php.streams.impl.InstantWriteStream;
+import io.vertx.lang.php.util.KeyInternTable;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.vertx.java.core.VertxException;
+import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
+
+import com.caucho.quercus.QuercusContext;
+import com.caucho.quercus.function.AbstractFunction;
+import com.caucho.quercus.program.QuercusProgram;
+import com.caucho.vfs.StdoutStream;
+import com.caucho.vfs.Vfs;
+import com.caucho.vfs.WriteStream;
+
+/**
+ * An initialized Quercus context along with the Vert.x state bound to it.
+ *
+ * Parsed programs belong to the context that parsed them, so each runtime
+ * has its own program cache. The Java class registrations and the module
+ * class map are immutable and shared by all runtimes.
+ *
+ * Starting a runtime is dominated by Quercus scanning its built-in modules.
+ * To pay that cost only once per platform, a single runtime can be shared
+ * by all modules. It loads classes through the language module's class
+ * loader, so it never holds on to the class loader of a module, and it is
+ * closed once the last module using it releases it.
+ *
+ * @author Jordan Halterman
+ */
+public class PhpRuntime {
+
+  private static final Logger log = LoggerFactory.getLogger(PhpRuntime.class);
+
+  /**
+   * The Quercus implementation that supports compiling pages to Java classes.
+   */
+  private static final String COMPILING_CONTEXT_CLASS = "com.caucho.quercus.ProQuercus";
+
+  private static final String BOOTSTRAP_SCRIPT = "spl_autoload_register('" + AutoloadFunction.NAME + "');";
+
+  /**
+   * Vert.x classes made available in the PHP code context.
+   *
+   * Note that for now we only make available classes which should
+   * be instantiated outside the context of the internal Vert.x
+   * library. However, once default constructors have been supplied
+   * for the various wrapper classes, we should expose as many classes
+   * as possible for extensibility's sake.
+   */
+  private static final Map<String, Class<?>> JAVA_CLASSES;
+
+  static {
+    Map<String, Class<?>> classes = new LinkedHashMap<String, Class<?>>();
+    classes.put("Vertx", io.vertx.lang.php.Vertx.class);
+    classes.put("Vertx\\EventBus\\ReplyException", io.vertx.lang.php.eventbus.ReplyException.class);
+    classes.put("Vertx\\EventBus\\ReplyFailure", io.vertx.lang.php.eventbus.ReplyFailure.class);
+    classes.put("Vertx\\Http\\HttpServer", io.vertx.lang.php.http.HttpServer.class);
+    classes.put("Vertx\\Http\\HttpClient", io.vertx.lang.php.http.HttpClient.class);
+    classes.put("Vertx\\Http\\RouteMatcher", io.vertx.lang.php.http.RouteMatcher.class);
+    classes.put("Vertx\\Net\\NetServer", io.vertx.lang.php.net.NetServer.class);
+    classes.put("Vertx\\Net\\NetClient", io.vertx.lang.php.net.NetClient.class);
+    classes.put("Vertx\\Net\\NetSocket", io.vertx.lang.php.net.NetSocket.class);
+    classes.put("Vertx\\Buffer", io.vertx.lang.php.buffer.Buffer.class);
+    classes.put("Vertx\\Logger", org.vertx.java.core.logging.Logger.class);
+    classes.put("Vertx\\Pump", io.vertx.lang.php.streams.Pump.class);
+    classes.put("Vertx\\ParseTools\\RecordParser", io.vertx.lang.php.parsetools.RecordParser.class);
+    classes.put("Vertx\\ReadStream", io.vertx.lang.php.streams.ReadStream.class);
+    classes.put("Vertx\\WriteStream", io.vertx.lang.php.streams.WriteStream.class);
+    classes.put("Vertx\\VertxException", org.vertx.java.core.VertxException.class);
+
+    // Add PHP test helpers.
+    classes.put("Vertx\\Test\\TestRunner", io.vertx.lang.php.testtools.PhpTestRunner.class);
+    classes.put("Vertx\\Test\\PhpTestCase", io.vertx.lang.php.testtools.PhpTestCase.class);
+    JAVA_CLASSES = Collections.unmodifiableMap(classes);
+  }
+
+  /**
+   * The maximum number of idle verticle output streams kept for reuse.
+   */
+  private static final int MAX_IDLE_OUTPUTS = 64;
+
+  private static final Object platformLock = new Object();
+
+  private static PhpRuntime platformRuntime;
+
+  private static int platformUsers;
+
+  private static boolean platformCompile;
+
+  private static String platformWorkDir;
+
+  private static final AtomicLong ids = new AtomicLong();
+
+  private final long id = ids.incrementAndGet();
+
+  private boolean platform;
+
+  private final QuercusContext context;
+
+  private final PhpProgramCache programCache;
+
+  private final QuercusProgram bootstrap;
+
+  private final long startupTime;
+
+  private final Queue<WriteStream> idleOutputs = new ConcurrentLinkedQueue<WriteStream>();
+
+  private final AtomicInteger idleOutputCount = new AtomicInteger();
+
+  /**
+   * Creates and starts a runtime.
+   *
+   * @param cl The class loader from which Quercus loads classes.
+   * @param compile Indicates whether scripts should be compiled.
+   * @param workDir An optional work directory holding compiled pages.
+   */
+  public PhpRuntime(ClassLoader cl, boolean compile, String workDir) {
+    long start = System.nanoTime();
+    ClassLoader old = Thread.currentThread().getContextClassLoader();
+    try {
+      Thread.currentThread().setContextClassLoader(cl);
+
+      context = createQuercusContext(cl, compile);
+      if (workDir != null) {
+        context.setWorkDir(Vfs.lookup(workDir));
+      }
+      // Setting PHP's error_reporting to 0 makes Quercus give us more
+      // interesting exception messages and thus better error reporting.
+      context.setIni("error_reporting", "0");
+      long created = System.nanoTime();
+
+      for (Map.Entry<String, Class<?>> entry : JAVA_CLASSES.entrySet()) {
+        context.addJavaClass(entry.getKey(), entry.getValue());
+      }
+      long registered = System.nanoTime();
+
+      context.init();
+      long initialized = System.nanoTime();
+
+      context.setFunction(context.createString("require_vertx"), new PhpModule.RequireVertx());
+      context.setFunction(context.createString(AutoloadFunction.NAME), new PhpModule.Autoload());
+      context.start();
+      long started = System.nanoTime();
+
+      AbstractFunction func = context.findFunction(context.createString("phpinfo"));
+      if (func == null) {
+        throw new VertxException("PHP Environment didn't load properly");
+      }
+
+      programCache = new PhpProgramCache(context, compile);
+      bootstrap = context.parseCode(context.createString(BOOTSTRAP_SCRIPT));
+      long end = System.nanoTime();
+      startupTime = end - start;
+
+      if (log.isDebugEnabled()) {
+        log.debug(String.format("PHP context startup: create=%.3f ms, classes=%.3f ms, init=%.3f ms, start=%.3f ms, bootstrap=%.3f ms",
+            (created - start) / 1000000.0, (registered - created) / 1000000.0, (initialized - registered) / 1000000.0,
+            (started - initialized) / 1000000.0, (end - started) / 1000000.0));
+      }
+    } catch (IOException e) {
+      throw new VertxException("Cannot parse PHP verticle bootstrap script", e);
+    } finally {
+      Thread.currentThread().setContextClassLoader(old);
+    }
+  }
+
+  /**
+   * Acquires the runtime shared by all modules, starting it if necessary.
+   *
+   * The first module to use the platform runtime determines whether it
+   * compiles and which precompiled work directory it loads pages from. A
+   * module whose settings differ cannot share it, so null is returned and
+   * the module must start a runtime of its own. Each module that acquires
+   * the runtime must release it.
+   */
+  public static PhpRuntime acquirePlatform(boolean compile, String workDir) {
+    synchronized (platformLock) {
+      if (platformRuntime == null) {
+        platformRuntime = new PhpRuntime(PhpRuntime.class.getClassLoader(), compile, workDir);
+        platformRuntime.platform = true;
+        platformCompile = compile;
+        platformWorkDir = workDir;
+        log.debug(String.format("PHP platform context startup took %.3f ms", platformRuntime.getStartupTime() / 1000000.0));
+      }
+      else if (compile != platformCompile || !Objects.equals(workDir, platformWorkDir)) {
+        return null;
+      }
+      else {
+        log.debug(String.format("Reusing the PHP platform context, now used by %d modules", platformUsers + 1));
+      }
+      platformUsers++;
+      return platformRuntime;
+    }
+  }
+
+  /**
+   * Indicates whether this is the runtime shared by all modules.
+   */
+  public boolean isPlatform() {
+    return platform;
+  }
+
+  /**
+   * Releases the runtime.
+   *
+   * The runtime of a single module is closed. The platform runtime is
+   * closed once every module that acquired it has released it.
+   */
+  public void release() {
+    if (!platform) {
+      close();
+      return;
+    }
+    synchronized (platformLock) {
+      if (--platformUsers > 0) {
+        return;
+      }
+      platformRuntime = null;
+    }
+    close();
+  }
+
+  /**
+   * Creates a new Quercus context.
+   *
+   * If compilation is enabled then a compiling Quercus implementation is
+   * used when one is available on the class path, so that verticle scripts
+   * and any scripts they require are compiled to Java classes. Otherwise
+   * scripts are interpreted.
+   */
+  public static QuercusContext createQuercusContext(ClassLoader cl, boolean compile) {
+    if (!compile) {
+      return new QuercusContext();
+    }
+
+    QuercusContext context;
+    try {
+      context = (QuercusContext) Class.forName(COMPILING_CONTEXT_CLASS, true, cl).newInstance();
+    } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+      log.warn("PHP compilation requested but " + COMPILING_CONTEXT_CLASS + " is not available; verticles will be interpreted");
+      context = new QuercusContext();
+    }
+    context.setCompile(true);
+    return context;
+  }
+
+  /**
+   * Returns a number that identifies the runtime within the platform.
+   */
+  public long getId() {
+    return id;
+  }
+
+  /**
+   * Returns the Quercus context.
+   */
+  public QuercusContext getContext() {
+    return context;
+  }
+
+  /**
+   * Returns the cache of parsed verticle scripts.
+   */
+  public PhpProgramCache getProgramCache() {
+    return programCache;
+  }
+
+  /**
+   * Returns a program that registers the Vert.x class autoloader in an Env.
+   */
+  public QuercusProgram getBootstrap() {
+    return bootstrap;
+  }
+
+  /**
+   * Returns the time it took to start the runtime, in nanoseconds.
+   */
+  public long getStartupTime() {
+    return startupTime;
+  }
+
+  /**
+   * Returns an output stream for a verticle Env.
+   *
+   * Streams are reused across verticle instances so that redeploying
+   * verticles does not allocate new stream buffers.
+   */
+  public WriteStream acquireOutput() {
+    WriteStream out = idleOutputs.poll();
+    if (out != null) {
+      idleOutputCount.decrementAndGet();
+      return out;
+    }
+    return new InstantWriteStream(StdoutStream.create());
+  }
+
+  /**
+   * Returns a verticle output stream to the runtime for reuse.
+   */
+  public void releaseOutput(WriteStream out) throws IOException {
+    out.flush();
+    if (idleOutputCount.incrementAndGet() <= MAX_IDLE_OUTPUTS) {
+      idleOutputs.offer(out);
+    }
+    else {
+      idleOutputCount.decrementAndGet();
+      out.close();
+    }
+  }
+
+  /**
+   * Closes the runtime.
+   */
+  public void close() {
+    KeyInternTable.release(context);
+    programCache.clear();
+    idleOutputs.clear();
+    idleOutputCount.set(0);
+    context.close();
+  }
+
+}
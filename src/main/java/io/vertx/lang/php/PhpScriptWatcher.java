@@ -0,0 +1,174 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
+
+/**
+ * Watches PHP verticle scripts for changes.
+ *
+ * Listeners are notified on the watcher's own thread, so any work done
+ * in response to a change happens in the background.
+ *
+ * @author Jordan Halterman
+ */
+public class PhpScriptWatcher {
+
+  private static final Logger log = LoggerFactory.getLogger(PhpScriptWatcher.class);
+
+  /**
+   * The time to wait for more events after a change, so that the several
+   * events produced by saving a single file are handled once.
+   */
+  private static final long SETTLE_TIME = 100;
+
+  /**
+   * Receives script change notifications.
+   */
+  public static interface Listener {
+
+    /**
+     * Called when a watched script was modified.
+     *
+     * @param scriptName The absolute path to the script.
+     */
+    public void scriptChanged(String scriptName);
+
+  }
+
+  private final WatchService watchService;
+
+  private final ConcurrentMap<Path, WatchKey> directories = new ConcurrentHashMap<Path, WatchKey>();
+
+  private final ConcurrentMap<String, Set<Listener>> listeners = new ConcurrentHashMap<String, Set<Listener>>();
+
+  private final Thread thread;
+
+  public PhpScriptWatcher() throws IOException {
+    watchService = FileSystems.getDefault().newWatchService();
+    thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        PhpScriptWatcher.this.run();
+      }
+    }, "vertx-php-script-watcher");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Starts notifying a listener of changes to a script.
+   */
+  public void watch(String scriptName, Listener listener) throws IOException {
+    Path directory = Paths.get(scriptName).toAbsolutePath().getParent();
+    if (!directories.containsKey(directory)) {
+      WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+      directories.putIfAbsent(directory, key);
+    }
+
+    Set<Listener> scriptListeners = listeners.get(scriptName);
+    if (scriptListeners == null) {
+      Set<Listener> created = new CopyOnWriteArraySet<Listener>();
+      scriptListeners = listeners.putIfAbsent(scriptName, created);
+      if (scriptListeners == null) {
+        scriptListeners = created;
+      }
+    }
+    scriptListeners.add(listener);
+  }
+
+  /**
+   * Stops notifying a listener of changes to a script.
+   */
+  public void unwatch(String scriptName, Listener listener) {
+    Set<Listener> scriptListeners = listeners.get(scriptName);
+    if (scriptListeners != null) {
+      scriptListeners.remove(listener);
+    }
+  }
+
+  /**
+   * Stops watching all scripts.
+   */
+  public void close() {
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      log.warn("Failed to close PHP script watcher", e);
+    }
+    listeners.clear();
+    directories.clear();
+  }
+
+  private void run() {
+    while (true) {
+      Set<Path> changed = new HashSet<Path>();
+      try {
+        collect(watchService.take(), changed);
+        Thread.sleep(SETTLE_TIME);
+        WatchKey key;
+        while ((key = watchService.poll()) != null) {
+          collect(key, changed);
+        }
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        return;
+      }
+
+      for (Path path : changed) {
+        Set<Listener> scriptListeners = listeners.get(path.toString());
+        if (scriptListeners != null) {
+          for (Listener listener : scriptListeners) {
+            try {
+              listener.scriptChanged(path.toString());
+            } catch (RuntimeException e) {
+              log.error("Failed to reload PHP script " + path, e);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Collects the files changed in a watched directory.
+   */
+  private void collect(WatchKey key, Set<Path> changed) {
+    Path directory = (Path) key.watchable();
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() != StandardWatchEventKinds.OVERFLOW) {
+        changed.add(directory.resolve((Path) event.context()));
+      }
+    }
+    key.reset();
+  }
+
+}
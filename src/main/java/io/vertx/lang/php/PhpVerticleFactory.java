@@ -15,15 +15,18 @@
  */
 package io.vertx.lang.php;
 
-
-import io.vertx.lang.php.streams.impl.InstantWriteStream;
-
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.vertx.java.core.Context;
 import org.vertx.java.core.VertxException;
 import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
 import org.vertx.java.platform.Verticle;
 import org.vertx.java.platform.VerticleFactory;
 
@@ -31,17 +34,8 @@ import com.caucho.quercus.Location;
 import com.caucho.quercus.QuercusContext;
 import com.caucho.quercus.QuercusException;
 import com.caucho.quercus.env.Env;
-import com.caucho.quercus.env.NullValue;
-import com.caucho.quercus.env.StringValue;
-import com.caucho.quercus.env.Value;
 import com.caucho.quercus.function.AbstractFunction;
-import com.caucho.quercus.page.InterpretedPage;
 import com.caucho.quercus.page.QuercusPage;
-import com.caucho.quercus.parser.QuercusParser;
-import com.caucho.quercus.program.QuercusProgram;
-import com.caucho.vfs.ReadStream;
-import com.caucho.vfs.StdoutStream;
-import com.caucho.vfs.StringPath;
 import com.caucho.vfs.WriteStream;
 
 /**
@@ -53,13 +47,68 @@ import com.caucho.vfs.WriteStream;
  */
 public class PhpVerticleFactory implements VerticleFactory {
 
+  /**
+   * Runs all verticles in a single Quercus context shared by the factory.
+   */
+  public static final String ISOLATION_SHARED = "shared";
+
+  /**
+   * Runs the verticles of each thread in a Quercus context of their own.
+   */
+  public static final String ISOLATION_THREAD = "thread";
+
+  /**
+   * Runs the verticles of all modules in a single Quercus context.
+   */
+  public static final String ISOLATION_PLATFORM = "platform";
+
+  private static final Logger log = LoggerFactory.getLogger(PhpVerticleFactory.class);
+
   private ClassLoader cl;
 
+  private PhpOptions options;
+
+  /**
+   * The pages compiled by the PHP precompiler, if any.
+   */
+  private PhpPrecompiledPages precompiledPages;
+
+  /**
+   * The PHP classes defined by the scripts on the module class path.
+   */
+  private PhpClassMap classMap;
+
+  private String isolation;
+
+  private boolean threadIsolation;
+
   public static org.vertx.java.core.Vertx vertx;
 
   public static org.vertx.java.platform.Container container;
 
-  public QuercusContext context = null;
+  public volatile QuercusContext context = null;
+
+  /**
+   * The module bound to the runtime shared by all verticles created by this factory.
+   */
+  private volatile PhpModule module;
+
+  private final Object moduleLock = new Object();
+
+  /**
+   * Per thread modules when verticles are isolated by thread.
+   */
+  private final ConcurrentMap<Thread, PhpModule> threadModules = new ConcurrentHashMap<Thread, PhpModule>();
+
+  /**
+   * Watches verticle scripts for changes when hot reloading is enabled.
+   */
+  private PhpScriptWatcher watcher;
+
+  /**
+   * Indicates whether the factory enabled the platform callback monitor.
+   */
+  private boolean monitoring;
 
   /**
    * Initializes the factory.
@@ -67,125 +116,160 @@ public class PhpVerticleFactory implements VerticleFactory {
   @Override
   public void init(org.vertx.java.core.Vertx vertx, org.vertx.java.platform.Container container, ClassLoader cl) {
     this.cl = cl;
+    this.options = PhpOptions.load(cl);
+    this.precompiledPages = PhpPrecompiledPages.load(cl);
+    this.classMap = PhpClassMap.scan(cl);
+    this.isolation = options.getString("isolation", ISOLATION_SHARED);
+    this.threadIsolation = ISOLATION_THREAD.equals(isolation);
     PhpVerticleFactory.vertx = vertx;
     PhpVerticleFactory.container = container;
+
+    if (!threadIsolation && options.getBoolean("prewarm", false)) {
+      prewarm();
+    }
+
+    long blockThreshold = options.getLong("blockThreshold", 0);
+    if (blockThreshold > 0 || options.getBoolean("metrics", false)) {
+      CallbackMonitor monitor = CallbackMonitor.enable(vertx, blockThreshold,
+          options.getString("callbackStatsAddress", CallbackMonitor.DEFAULT_ADDRESS));
+      monitoring = true;
+      String metricsAddress = options.getString("metricsAddress", null);
+      if (metricsAddress != null) {
+        monitor.publish(metricsAddress, options.getLong("metricsInterval", 10000));
+      }
+    }
+
+    if (options.getBoolean("profiler", false)) {
+      PhpProfiler.registerAddress(vertx, options.getString("profilerAddress", PhpProfiler.DEFAULT_ADDRESS));
+    }
+
+    if (options.getBoolean("hotReload", false)) {
+      try {
+        watcher = new PhpScriptWatcher();
+      } catch (IOException e) {
+        log.warn("Failed to watch PHP scripts, hot reloading is disabled", e);
+      }
+    }
+  }
+
+  /**
+   * Initializes the shared Quercus context in the background.
+   *
+   * Verticles created while the context is initializing wait for it
+   * rather than initializing a context of their own.
+   */
+  private void prewarm() {
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          initQuercusContext();
+        } catch (RuntimeException e) {
+          // The first verticle to be created will try again and report the failure.
+          log.warn("Failed to pre-warm the PHP context", e);
+        }
+      }
+    }, "vertx-php-prewarm");
+    thread.setDaemon(true);
+    thread.start();
   }
 
+  /**
+   * Initializes the shared Quercus context exactly once.
+   */
   protected void initQuercusContext() {
-      if (context != null) {
-        return;
+    if (module != null) {
+      return;
+    }
+    synchronized (moduleLock) {
+      if (module == null) {
+        PhpModule created = createModule();
+        context = created.getRuntime().getContext();
+        module = created;
       }
-      
-      ClassLoader old = Thread.currentThread().getContextClassLoader();
-      try {
-	      Thread.currentThread().setContextClassLoader(cl);
-	    
-	      context = new QuercusContext();
-	      // Setting PHP's error_reporting to 0 makes Quercus give us more
-	      // interesting exception messages and thus better error reporting.
-	      context.setIni("error_reporting", "0");
-	
-	      // Make vertx-php classes available in the PHP code context.
-	      // Note that for now we only make available classes which should
-	      // be instantiated outside the context of the internal Vert.x
-	      // library. However, once default constructors have been supplied
-	      // for the various wrapper classes, we should expose as many classes
-	      // as possible for extensibility's sake.
-	      context.addJavaClass("Vertx", io.vertx.lang.php.Vertx.class);
-        context.addJavaClass("Vertx\\EventBus\\ReplyException", io.vertx.lang.php.eventbus.ReplyException.class);
-        context.addJavaClass("Vertx\\EventBus\\ReplyFailure", io.vertx.lang.php.eventbus.ReplyFailure.class);
-	      context.addJavaClass("Vertx\\Http\\HttpServer", io.vertx.lang.php.http.HttpServer.class);
-	      context.addJavaClass("Vertx\\Http\\HttpClient", io.vertx.lang.php.http.HttpClient.class);
-	      context.addJavaClass("Vertx\\Http\\RouteMatcher", io.vertx.lang.php.http.RouteMatcher.class);
-	      context.addJavaClass("Vertx\\Net\\NetServer", io.vertx.lang.php.net.NetServer.class);
-	      context.addJavaClass("Vertx\\Net\\NetClient", io.vertx.lang.php.net.NetClient.class);
-	      context.addJavaClass("Vertx\\Net\\NetSocket", io.vertx.lang.php.net.NetSocket.class);
-	      context.addJavaClass("Vertx\\Buffer", io.vertx.lang.php.buffer.Buffer.class);
-	      context.addJavaClass("Vertx\\Logger", org.vertx.java.core.logging.Logger.class);
-	      context.addJavaClass("Vertx\\Pump", io.vertx.lang.php.streams.Pump.class);
-	      context.addJavaClass("Vertx\\ParseTools\\RecordParser", io.vertx.lang.php.parsetools.RecordParser.class);
-        context.addJavaClass("Vertx\\ReadStream", io.vertx.lang.php.streams.ReadStream.class);
-        context.addJavaClass("Vertx\\WriteStream", io.vertx.lang.php.streams.WriteStream.class);
-        context.addJavaClass("Vertx\\VertxException", org.vertx.java.core.VertxException.class);
-	
-	      // Add PHP test helpers.
-	      context.addJavaClass("Vertx\\Test\\TestRunner", io.vertx.lang.php.testtools.PhpTestRunner.class);
-	      context.addJavaClass("Vertx\\Test\\PhpTestCase", io.vertx.lang.php.testtools.PhpTestCase.class);
-	      
-	      context.init();
-	      context.start();
-	      
-	      addRequireVertxToContext();
-
-	      context.start();
-	
-	      AbstractFunction func = context.findFunction(context.createString("phpinfo"));
-	
-	      if (func == null) {
-	        context = null;
-	        throw new VertxException("PHP Environment didn't load properly");
-	      }
-      } catch (Exception e) {
-    	  e.printStackTrace();
-    	  throw e;
-      } finally {
-    	  Thread.currentThread().setContextClassLoader(old);
+    }
+  }
+
+  /**
+   * Binds the factory's module to a runtime, starting the runtime if necessary.
+   */
+  private PhpModule createModule() {
+    boolean compile = options.isCompile() || precompiledPages != null;
+    String precompiledWorkDir = precompiledPages != null ? precompiledPages.getWorkDir() : null;
+    PhpRuntime runtime = null;
+    if (ISOLATION_PLATFORM.equals(isolation)) {
+      // The platform runtime logs whether it was started or reused.
+      runtime = PhpRuntime.acquirePlatform(compile, precompiledWorkDir);
+      if (runtime == null) {
+        log.warn("The PHP platform context was started with different compile or precompile settings; "
+            + "the module runs in a context of its own");
       }
+    }
+    if (runtime == null) {
+      runtime = new PhpRuntime(cl, compile, precompiledWorkDir);
+      log.debug(String.format("PHP context startup took %.3f ms", runtime.getStartupTime() / 1000000.0));
+    }
+    return new PhpModule(runtime, cl, classMap);
   }
 
-  private void addRequireVertxToContext() {
-    context.setFunction(context.createString("require_vertx"), new AbstractFunction() {
-
-		private static final long serialVersionUID = 5350698219672910902L;
-
-		@Override
-		public Value call(Env env, Value[] args) {
-			if (args.length != 1) {
-				throw new IllegalArgumentException("require_vertx: missing Argument path");
-			}
-
-			String resourceName = args[0].toString();
-			URL resourcePath = cl.getResource(args[0].toString());
-			try {
-				String script = String.format("require('%s');", resourcePath.toString());
-				QuercusProgram program = context.parseCode(context.createString(script));
-				program.execute(env);
-			} catch (NullPointerException np) {
-				if (Vertx.logger() == null) {
-					System.out.println(String.format("Could not find Vertx resource '%s''", resourceName));
-				} else {
-					Vertx.logger().error(String.format("Could not find Vertx resource '%s''", resourceName));
-				}
-				np.printStackTrace();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-
-			return NullValue.create();
-		}
-	});
+  /**
+   * Returns the module in which verticles on the current thread run.
+   */
+  private PhpModule getModule() {
+    if (!threadIsolation) {
+      initQuercusContext();
+      return module;
+    }
+
+    // Only the current thread creates its own module, so there is no race.
+    Thread thread = Thread.currentThread();
+    PhpModule threadModule = threadModules.get(thread);
+    if (threadModule == null) {
+      threadModule = createModule();
+      threadModules.put(thread, threadModule);
+    }
+    return threadModule;
   }
 
   /**
-   * @return the Quercus context for all Verticle created by this factory
+   * @return the Quercus context for all Verticle created by this factory, or
+   *         the context of the current thread when verticles are isolated by thread
    */
   public QuercusContext getQuercusContext() {
+    if (threadIsolation) {
+      PhpModule threadModule = threadModules.get(Thread.currentThread());
+      return threadModule != null ? threadModule.getRuntime().getContext() : null;
+    }
     return context;
   }
 
+  /**
+   * @return the cache of parsed scripts for all Verticle created by this factory
+   */
+  public PhpProgramCache getProgramCache() {
+    return module != null ? module.getRuntime().getProgramCache() : null;
+  }
+
+  /**
+   * @return the require_vertx() function, which records autoload metrics
+   */
+  public RequireVertxFunction getRequireVertx() {
+    return module != null ? module.getRequireVertx() : null;
+  }
+
   /**
    * Creates a verticle instance.
    */
   @Override
   public Verticle createVerticle(String main) throws Exception {
-    if (context == null) {
-     this.initQuercusContext();
+    if (!threadIsolation) {
+      this.initQuercusContext();
     }
     String scriptPath = findScript(main);
     if (scriptPath == null) {
       throw new VertxException(String.format("%s is not a valid PHP verticle.", main));
     }
-    return new PhpVerticle(context, scriptPath);
+    return new PhpVerticle(main, scriptPath);
   }
 
   /**
@@ -244,12 +328,29 @@ public class PhpVerticleFactory implements VerticleFactory {
    */
   @Override
   public void close() {
-    AbstractFunction function = context.findFunction(StringValue.create("vertx_stop").toStringValue());
-    if (function != null) {
-      function.call(Env.getCurrent());
+    if (watcher != null) {
+      watcher.close();
+      watcher = null;
     }
-    context.close();
-    context = null;
+    if (monitoring) {
+      CallbackMonitor.disable();
+      monitoring = false;
+    }
+    synchronized (moduleLock) {
+      if (module != null) {
+        close(module);
+        module = null;
+        context = null;
+      }
+    }
+    for (PhpModule threadModule : threadModules.values()) {
+      close(threadModule);
+    }
+    threadModules.clear();
+  }
+
+  private void close(PhpModule module) {
+    module.getRuntime().release();
   }
 
   @Override
@@ -259,23 +360,52 @@ public class PhpVerticleFactory implements VerticleFactory {
 
   /**
    * A PHP Verticle that runs PHP scripts via Quercus.
+   *
+   * When hot reloading is enabled the verticle is reloaded whenever its
+   * script changes. The changed script is parsed on the watcher thread,
+   * and the new page is executed in a fresh Env on the verticle's own
+   * context. Once it has run, the previous Env's vertx_stop() function
+   * is called and the event bus handlers, servers and timers registered
+   * in it are released. Since this all happens in a single task on the
+   * verticle's context, no event reaches the replaced code in between,
+   * and servers that the new code listens on again are never unbound.
+   * If the new page fails, whatever it registered is released and the
+   * previous Env keeps running.
    */
-  private class PhpVerticle extends Verticle {
+  private class PhpVerticle extends Verticle implements PhpScriptWatcher.Listener {
+
+    /**
+     * The class path resource name of the verticle PHP script.
+     */
+    private final String resourceName;
 
     /**
      * The path to the verticle PHP script.
      */
     private final String scriptName;
 
-    private final QuercusContext context;
+    private PhpModule phpModule;
+
+    private PhpRuntime runtime;
 
     private WriteStream out;
 
     private Env globalEnv;
 
-    PhpVerticle(QuercusContext context, String script) {
+    private QuercusPage currentPage;
+
+    private Context vertxContext;
+
+    /**
+     * Envs replaced by hot reloads, which are closed when the verticle stops
+     * so that callbacks of the replaced code which are still in flight,
+     * such as pending replies, do not run in a closed Env.
+     */
+    private final List<Env> replacedEnvs = new ArrayList<Env>();
+
+    PhpVerticle(String main, String script) {
+      this.resourceName = main;
       this.scriptName = script;
-      this.context = context;
     }
 
     /**
@@ -283,51 +413,189 @@ public class PhpVerticleFactory implements VerticleFactory {
      */
     @Override
     public void start() {
-      String classLoaderScript = "spl_autoload_register(function($class) {" +
-  		    "require_vertx(str_replace('\\\\', '/', $class) . '.php');" +
-          "});";
-      
-      // Evaluate a single line script which includes the verticle
-      // script. This ensures that exceptions can be accurately logged
-      // because Quercus will record actual file names rather than a
-      // generic "eval" name.
-      String script = String.format("<?php " + classLoaderScript + "require '%s'; ?>", this.scriptName);
-      
-      try (ReadStream reader = (new StringPath(script)).openRead()) {
-        QuercusProgram program = QuercusParser.parse(context, null, reader);
-        QuercusPage page = new InterpretedPage(program);
-
-        out = new InstantWriteStream(StdoutStream.create());
-        globalEnv = new Env(context, page, out, null, null);
-        globalEnv.start();
-
-        program.execute(globalEnv);
-        out.flush();
+      // The verticle script is parsed from its actual path so that Quercus
+      // records real file names, which ensures exceptions can be accurately
+      // logged. Parsed pages are shared by all instances in a runtime.
+      try {
+        phpModule = getModule();
+        runtime = phpModule.getRuntime();
+        QuercusPage page = runtime.getProgramCache().getPage(this.scriptName, resourceName, precompiledPages);
+
+        out = runtime.acquireOutput();
+        globalEnv = execute(page);
+        currentPage = page;
       } catch (IOException e) {
         throw new VertxException("Cannot parse PHP verticle: " + this.scriptName);
       } catch (Exception e) {
         throw new VertxException(e);
       }
 
+      if (watcher != null) {
+        vertxContext = getVertx().currentContext();
+        try {
+          watcher.watch(scriptName, this);
+        } catch (IOException e) {
+          log.warn("Failed to watch PHP verticle " + scriptName + " for changes", e);
+        }
+      }
+    }
+
+    /**
+     * Executes a page in a new Env.
+     */
+    private Env execute(QuercusPage page) throws IOException {
+      Env env = new Env(runtime.getContext(), page, out, null, null);
+      env.start();
+      phpModule.attach(env);
+      if (watcher != null) {
+        EnvResources.track(env);
+      }
+
+      try {
+        runtime.getBootstrap().execute(env);
+
+        PhpProfiler.Slot slot = PhpProfiler.enter(env);
+        try {
+          page.init(env);
+          page.importDefinitions(env);
+          page.executeTop(env);
+        } finally {
+          if (slot != null) {
+            slot.exit();
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        // Release whatever the page registered before it failed.
+        discard(env);
+        throw e;
+      }
+      out.flush();
+      return env;
+    }
+
+    /**
+     * Releases the resources registered in an Env and closes it.
+     */
+    private void discard(Env env) {
+      release(env);
+      env.close();
+    }
+
+    /**
+     * Releases the resources registered in an Env, if they are tracked.
+     */
+    private void release(Env env) {
+      EnvResources resources = EnvResources.get(env);
+      if (resources != null) {
+        resources.release();
+      }
     }
 
+    /**
+     * Parses the changed script and schedules a reload on the verticle's context.
+     */
     @Override
-    public void stop() {
-      globalEnv = null;
+    public void scriptChanged(String scriptName) {
+      final QuercusPage page;
+      try {
+        page = runtime.getProgramCache().getPage(scriptName, resourceName, precompiledPages);
+      } catch (IOException | RuntimeException e) {
+        log.error("Failed to parse changed PHP verticle " + scriptName + ", keeping the running version", e);
+        return;
+      }
 
-      if (out != null) {
-	      try {
-	        out.close();
-	      } catch (IOException e) {
-	        throw new VertxException(e);
-	      }
-	      out = null;
+      vertxContext.runOnContext(new org.vertx.java.core.Handler<Void>() {
+        @Override
+        public void handle(Void event) {
+          reload(page);
+        }
+      });
+    }
+
+    /**
+     * Replaces the running page with a newly parsed one.
+     */
+    private void reload(QuercusPage page) {
+      // The verticle was stopped, or the content of the script did not change.
+      if (globalEnv == null || page == currentPage) {
+        return;
       }
+
+      Env previousEnv = globalEnv;
+      try {
+        globalEnv = execute(page);
+        currentPage = page;
+      } catch (IOException | RuntimeException e) {
+        log.error("Failed to reload PHP verticle " + scriptName + ", keeping the running version", e);
+        return;
+      }
+
+      // The new page has registered its own handlers, so the replaced
+      // code can be stopped and its handlers released.
+      try {
+        callStop(previousEnv);
+      } catch (RuntimeException e) {
+        log.error("Failed to stop the replaced version of PHP verticle " + scriptName, e);
+      } finally {
+        release(previousEnv);
+        replacedEnvs.add(previousEnv);
+      }
+      log.info("Reloaded PHP verticle " + scriptName);
     }
 
+    /**
+     * Stops the verticle.
+     *
+     * The verticle's vertx_stop() function is called if the script defines
+     * one, after which the verticle's Env is closed so that its resources
+     * are released immediately rather than when the verticle is collected.
+     */
     @Override
-    public void finalize() {
-      stop();
+    public void stop() {
+      if (watcher != null) {
+        watcher.unwatch(scriptName, this);
+      }
+      if (globalEnv != null) {
+        try {
+          callStop(globalEnv);
+        } finally {
+          release();
+        }
+      }
+    }
+
+    /**
+     * Calls the vertx_stop() function defined in an Env, if any.
+     */
+    private void callStop(Env env) {
+      AbstractFunction function = env.findFunction(env.createString("vertx_stop"));
+      if (function != null) {
+        function.call(env);
+      }
+    }
+
+    /**
+     * Releases the verticle's Envs and output stream.
+     */
+    private void release() {
+      for (Env env : replacedEnvs) {
+        env.close();
+      }
+      replacedEnvs.clear();
+
+      if (globalEnv != null) {
+        globalEnv.close();
+        globalEnv = null;
+      }
+
+      if (out != null) {
+        try {
+          runtime.releaseOutput(out);
+        } catch (IOException e) {
+          throw new VertxException(e);
+        }
+        out = null;
+      }
     }
 
   }
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
+
+import com.caucho.quercus.QuercusContext;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.NullValue;
+import com.caucho.quercus.env.Value;
+import com.caucho.quercus.function.AbstractFunction;
+import com.caucho.quercus.program.QuercusProgram;
+
+/**
+ * The require_vertx() PHP function.
+ *
+ * Requires a script from the module class path. This is used by the
+ * Vert.x class autoloader, so resolved resources and the programs that
+ * require them are cached by resource name. Resources that cannot be
+ * found are cached as well so that repeated lookups of missing classes
+ * do not scan the class loader again.
+ *
+ * @author Jordan Halterman
+ */
+public class RequireVertxFunction extends AbstractFunction {
+
+  private static final long serialVersionUID = 5350698219672910902L;
+
+  private static final Logger log = LoggerFactory.getLogger(RequireVertxFunction.class);
+
+  /**
+   * Marks a resource that does not exist on the class path.
+   */
+  private static final Resource MISSING = new Resource(null);
+
+  private final transient QuercusContext context;
+
+  private final transient ClassLoader cl;
+
+  private final transient ConcurrentMap<String, Resource> resources = new ConcurrentHashMap<String, Resource>();
+
+  private final AtomicLong calls = new AtomicLong();
+
+  private final AtomicLong resolves = new AtomicLong();
+
+  private final AtomicLong time = new AtomicLong();
+
+  public RequireVertxFunction(QuercusContext context, ClassLoader cl) {
+    this.context = context;
+    this.cl = cl;
+  }
+
+  @Override
+  public Value call(Env env, Value[] args) {
+    if (args.length != 1) {
+      throw new IllegalArgumentException("require_vertx: missing Argument path");
+    }
+
+    require(env, args[0].toString());
+    return NullValue.create();
+  }
+
+  /**
+   * Requires a script from the module class path.
+   *
+   * @param env The Quercus environment.
+   * @param resourceName The class path resource name of the script.
+   */
+  public void require(Env env, String resourceName) {
+    long start = System.nanoTime();
+    try {
+      Resource resource = resolve(resourceName);
+      if (resource == MISSING) {
+        log.error(String.format("Could not find Vertx resource '%s'", resourceName));
+      }
+      else if (resource != null) {
+        resource.program.execute(env);
+      }
+    } finally {
+      calls.incrementAndGet();
+      time.addAndGet(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Resolves a class path resource to the program that requires it.
+   *
+   * @return The resolved resource, MISSING if the resource does not exist,
+   *         or null if it could not be parsed.
+   */
+  private Resource resolve(String resourceName) {
+    Resource resource = resources.get(resourceName);
+    if (resource != null) {
+      return resource;
+    }
+
+    resolves.incrementAndGet();
+    URL resourcePath = cl.getResource(resourceName);
+    if (resourcePath == null) {
+      resource = MISSING;
+    }
+    else {
+      try {
+        String script = String.format("require('%s');", resourcePath.toString());
+        resource = new Resource(context.parseCode(context.createString(script)));
+      } catch (IOException e) {
+        // Parse failures are not cached so that they are reported on each call.
+        log.error(String.format("Failed to parse Vertx resource '%s'", resourceName), e);
+        return null;
+      }
+    }
+
+    Resource existing = resources.putIfAbsent(resourceName, resource);
+    if (log.isDebugEnabled()) {
+      log.debug(String.format("Resolved Vertx resource '%s' to %s (%s)", resourceName, resourcePath, this));
+    }
+    return existing != null ? existing : resource;
+  }
+
+  /**
+   * Returns the number of calls to require_vertx().
+   */
+  public long calls() {
+    return calls.get();
+  }
+
+  /**
+   * Returns the number of calls that had to resolve a resource.
+   */
+  public long resolves() {
+    return resolves.get();
+  }
+
+  /**
+   * Returns the total time spent in require_vertx(), in nanoseconds.
+   */
+  public long time() {
+    return time.get();
+  }
+
+  public String toString() {
+    long calls = calls();
+    return String.format("calls=%d, resolves=%d, avgLatency=%.3f ms", calls, resolves(),
+        calls > 0 ? time() / 1000000.0 / calls : 0.0);
+  }
+
+  /**
+   * The program that requires a resolved resource.
+   */
+  private static class Resource {
+    private final QuercusProgram program;
+
+    private Resource(QuercusProgram program) {
+      this.program = program;
+    }
+  }
+
+}
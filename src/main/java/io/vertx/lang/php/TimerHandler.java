@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import com.caucho.quercus.env.Callable;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.LongValue;
+
+/**
+ * A timer handler.
+ *
+ * Calls PHP callbacks with the timer ID as a PHP integer rather than
+ * a wrapped java.lang.Long.
+ *
+ * @author Jordan Halterman
+ */
+public class TimerHandler extends Handler<Long> {
+
+  private final boolean periodic;
+
+  public TimerHandler(Env env, Callable handler) {
+    this(env, handler, false);
+  }
+
+  public TimerHandler(Env env, Callable handler, boolean periodic) {
+    super(env, handler);
+    this.periodic = periodic;
+  }
+
+  @Override
+  public void handle(Long timerId) {
+    if (!periodic) {
+      // A fired timer no longer needs to be cancelled on reload.
+      EnvResources.remove(getEnvironment(), timerId);
+    }
+    call(LongValue.create(timerId));
+  }
+
+}
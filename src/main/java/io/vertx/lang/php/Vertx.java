@@ -28,6 +28,7 @@ import io.vertx.lang.php.util.PhpTypes;
 
 import java.util.Map;
 
+import org.vertx.java.core.json.JsonObject;
 import org.vertx.java.core.logging.Logger;
 
 import com.caucho.quercus.annotation.Optional;
@@ -37,6 +38,7 @@ import com.caucho.quercus.env.BooleanValue;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.StringValue;
 import com.caucho.quercus.env.Value;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.LongValue;
 
@@ -129,6 +131,68 @@ public final class Vertx {
     return new Context(PhpVerticleFactory.vertx.currentContext());
   }
 
+  /**
+   * Returns the metrics of PHP callbacks.
+   *
+   * @return An array of callback metrics, or null if metrics are not enabled.
+   */
+  public static Value metrics(Env env) {
+    CallbackMonitor monitor = CallbackMonitor.get();
+    if (monitor == null) {
+      return env.wrapJava(null);
+    }
+    return PhpTypes.arrayFromJson(env, monitor.toJson());
+  }
+
+  /**
+   * Returns statistics of the PHP runtime in which the current verticle runs.
+   *
+   * @return An array holding the ID of the runtime, the name of the current
+   *         thread, and the statistics of the runtime's program cache and
+   *         of the module's require_vertx() function.
+   */
+  public static ArrayValue runtimeStats(Env env) {
+    PhpModule module = PhpModule.get(env);
+    PhpRuntime runtime = module.getRuntime();
+    PhpProgramCache programCache = runtime.getProgramCache();
+    RequireVertxFunction requireVertx = module.getRequireVertx();
+    JsonObject stats = new JsonObject()
+        .putNumber("runtime", runtime.getId())
+        .putString("thread", Thread.currentThread().getName())
+        .putObject("programCache", new JsonObject()
+            .putNumber("hits", programCache.hits())
+            .putNumber("misses", programCache.misses())
+            .putNumber("parseTime", programCache.parseTime())
+            .putNumber("compiled", programCache.compiled())
+            .putNumber("compileFailures", programCache.compileFailures())
+            .putNumber("precompiled", programCache.precompiled()))
+        .putObject("requireVertx", new JsonObject()
+            .putNumber("calls", requireVertx.calls())
+            .putNumber("resolves", requireVertx.resolves())
+            .putNumber("time", requireVertx.time()));
+    return PhpTypes.arrayFromJson(env, stats);
+  }
+
+  /**
+   * Starts the PHP sampling profiler.
+   *
+   * @param interval
+   *          The sampling interval in milliseconds. Defaults to 10.
+   */
+  public static void startProfiler(Env env, @Optional("10") LongValue interval) {
+    PhpProfiler.start(interval.toLong());
+  }
+
+  /**
+   * Stops the PHP sampling profiler.
+   *
+   * @return The samples taken since the profiler was started, in collapsed
+   *         stack format for flame graph tools.
+   */
+  public static StringValue stopProfiler(Env env) {
+    return env.createString(PhpProfiler.stop());
+  }
+
   /**
    * Put the handler on the event queue for the current loop (or worker context)
    * so it will be run asynchronously ASAP after this event has been processed
@@ -144,18 +208,32 @@ public final class Vertx {
    * Sets a timed handler.
    */
   public static LongValue setTimer(Env env, LongValue delay, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx::runOnContext() must be callable.");
-    PhpVerticleFactory.vertx.setTimer(delay.toLong(), HandlerFactory.<Long>createGenericHandler(env, handler));
-    return delay;
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx::setTimer() must be callable.");
+    long id = PhpVerticleFactory.vertx.setTimer(delay.toLong(), HandlerFactory.createTimerHandler(env, callable).setOrigin("Vertx.setTimer"));
+    track(env, id);
+    return LongValue.create(id);
   }
 
   /**
    * Sets a periodic handler.
    */
   public static LongValue setPeriodic(Env env, LongValue delay, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx::runOnContext() must be callable.");
-    PhpVerticleFactory.vertx.setPeriodic(delay.toLong(), HandlerFactory.<Long>createGenericHandler(env, handler));
-    return delay;
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx::setPeriodic() must be callable.");
+    long id = PhpVerticleFactory.vertx.setPeriodic(delay.toLong(), HandlerFactory.createPeriodicHandler(env, callable).setOrigin("Vertx.setPeriodic"));
+    track(env, id);
+    return LongValue.create(id);
+  }
+
+  /**
+   * Records a timer so that it is cancelled when its Env is replaced by a reload.
+   */
+  private static void track(Env env, final long id) {
+    EnvResources.add(env, id, new EnvResources.Resource() {
+      @Override
+      public void release() {
+        PhpVerticleFactory.vertx.cancelTimer(id);
+      }
+    });
   }
 
   /**
@@ -166,6 +244,7 @@ public final class Vertx {
    * @return A value indicating whether the timer was successfully cancelled.
    */
   public static BooleanValue cancelTimer(Env env, LongValue id) {
+    EnvResources.remove(env, id.toLong());
     boolean result = PhpVerticleFactory.vertx.cancelTimer(id.toLong());
     return BooleanValue.create(result);
   }
@@ -185,19 +264,19 @@ public final class Vertx {
     boolean hasConfig = PhpTypes.notNull(config);
     boolean hasHandler = PhpTypes.notNull(handler);
     if (hasConfig && hasHandler) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx::deployModule() must be callable.");
+      Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx::deployModule() must be callable.");
       PhpVerticleFactory.container.deployModule(moduleName.toString(),
           PhpTypes.arrayToJson(env, config), instances.toInt(),
-          HandlerFactory.<String>createAsyncGenericHandler(env, handler));
+          HandlerFactory.<String>createAsyncGenericHandler(env, callable));
     }
     else if (hasConfig) {
       PhpVerticleFactory.container.deployModule(moduleName.toString(),
           PhpTypes.arrayToJson(env, config), instances.toInt());
     }
     else if (hasHandler) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx::deployModule() must be callable.");
+      Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx::deployModule() must be callable.");
       PhpVerticleFactory.container.deployModule(moduleName.toString(), instances.toInt(),
-          HandlerFactory.<String>createAsyncGenericHandler(env, handler));
+          HandlerFactory.<String>createAsyncGenericHandler(env, callable));
     }
     else {
       PhpVerticleFactory.container.deployModule(moduleName.toString(), instances.toInt());
@@ -209,9 +288,9 @@ public final class Vertx {
    */
   public static void undeployModule(Env env, StringValue deploymentID, @Optional Value handler) {
     if (PhpTypes.notNull(handler)) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx::undeployModule() must be callable.");
+      Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx::undeployModule() must be callable.");
       PhpVerticleFactory.container.undeployModule(deploymentID.toString(),
-          HandlerFactory.createAsyncVoidHandler(env, handler));
+          HandlerFactory.createAsyncVoidHandler(env, callable));
     }
     else {
       PhpVerticleFactory.container.undeployModule(deploymentID.toString());
@@ -226,19 +305,19 @@ public final class Vertx {
     boolean hasConfig = PhpTypes.notNull(config);
     boolean hasHandler = PhpTypes.notNull(handler);
     if (hasConfig && hasHandler) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx::deployVerticle() must be callable.");
+      Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx::deployVerticle() must be callable.");
       PhpVerticleFactory.container.deployVerticle(main.toString(),
           PhpTypes.arrayToJson(env, config), instances.toInt(),
-          HandlerFactory.<String>createAsyncGenericHandler(env, handler));
+          HandlerFactory.<String>createAsyncGenericHandler(env, callable));
     }
     else if (hasConfig) {
       PhpVerticleFactory.container.deployVerticle(main.toString(),
           PhpTypes.arrayToJson(env, config), instances.toInt());
     }
     else if (hasHandler) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx::deployVerticle() must be callable.");
+      Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx::deployVerticle() must be callable.");
       PhpVerticleFactory.container.deployVerticle(main.toString(), instances.toInt(),
-          HandlerFactory.<String>createAsyncGenericHandler(env, handler));
+          HandlerFactory.<String>createAsyncGenericHandler(env, callable));
     }
     else {
       PhpVerticleFactory.container.deployVerticle(main.toString(), instances.toInt());
@@ -250,8 +329,8 @@ public final class Vertx {
    */
   public static void undeployVerticle(Env env, StringValue deploymentID, @Optional Value handler) {
     if (PhpTypes.notNull(handler)) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx::undeployVerticle() must be callable.");
-      PhpVerticleFactory.container.undeployVerticle(deploymentID.toString(), HandlerFactory.createAsyncVoidHandler(env, handler));
+      Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx::undeployVerticle() must be callable.");
+      PhpVerticleFactory.container.undeployVerticle(deploymentID.toString(), HandlerFactory.createAsyncVoidHandler(env, callable));
     }
     else {
       PhpVerticleFactory.container.undeployVerticle(deploymentID.toString());
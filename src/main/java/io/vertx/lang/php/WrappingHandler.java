@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php;
+
+import com.caucho.quercus.env.Callable;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.NullValue;
+import com.caucho.quercus.program.JavaClassDef;
+
+/**
+ * A handler that wraps each event in a PHP API object of a single type.
+ *
+ * Env.wrapJava() looks up the PHP class definition of an object each
+ * time it is called. Since all events passed to a wrapping handler are
+ * wrapped in the same type, the class definition is resolved on the
+ * first event and reused for all events after it.
+ *
+ * @author Jordan Halterman
+ */
+public abstract class WrappingHandler<T, E> extends Handler<T> {
+
+  /**
+   * The PHP class definition of the wrapper type.
+   */
+  private JavaClassDef classDef;
+
+  public WrappingHandler(Env env, Callable handler) {
+    super(env, handler);
+  }
+
+  /**
+   * Wraps an event in a PHP API object.
+   */
+  protected abstract E wrap(T arg);
+
+  @Override
+  public void handle(T arg) {
+    Env env = getEnvironment();
+    E wrapped = wrap(arg);
+    if (wrapped == null) {
+      call(NullValue.NULL);
+      return;
+    }
+
+    // Handlers are always called on the same context, so no synchronization is needed.
+    if (classDef == null) {
+      classDef = env.getJavaClassDefinition(wrapped.getClass());
+    }
+    call(classDef.wrap(env, wrapped));
+  }
+
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.buffer;
+
+import io.vertx.lang.php.util.PhpTypes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.Value;
+
+/**
+ * A data handler that delivers chunks of data to PHP in batches.
+ *
+ * Entering the PHP interpreter costs far more than handling a single
+ * chunk of network or file data, so chunks are collected and passed to
+ * the PHP callback together once there are a maximum number of chunks
+ * or bytes, or when the first chunk has waited for the maximum delay.
+ * With a maximum delay of zero, chunks received while the event loop is
+ * busy are delivered together as soon as it is free again.
+ *
+ * Chunks are only collected, not copied, so a batch takes no more memory
+ * than its chunks. The batch handler decides how they are delivered.
+ *
+ * While the handler is paused no batch is delivered, so that pausing the
+ * stream stops the PHP callback being called as it would without batching.
+ * Chunks which were already on their way are held until it is resumed.
+ *
+ * Batches are delivered on the context that received the data, so the
+ * handler needs no synchronization.
+ *
+ * @author Jordan Halterman
+ */
+public class BatchingBufferHandler implements org.vertx.java.core.Handler<org.vertx.java.core.buffer.Buffer> {
+
+  /**
+   * The default maximum number of chunks in a batch.
+   */
+  public static final int DEFAULT_BATCH = 64;
+
+  /**
+   * The default maximum number of bytes in a batch.
+   */
+  public static final int DEFAULT_MAX_BYTES = 1024 * 1024;
+
+  /**
+   * The default maximum time a chunk waits for its batch to be delivered.
+   */
+  public static final long DEFAULT_MAX_DELAY = 1;
+
+  private final org.vertx.java.core.Vertx vertx;
+
+  private final org.vertx.java.core.Handler<List<org.vertx.java.core.buffer.Buffer>> handler;
+
+  private final int maxChunks;
+
+  private final int maxBytes;
+
+  private final long maxDelay;
+
+  private List<org.vertx.java.core.buffer.Buffer> pending;
+
+  private int pendingBytes;
+
+  private long timerId = -1;
+
+  private boolean flushQueued;
+
+  private boolean paused;
+
+  private boolean closed;
+
+  public BatchingBufferHandler(org.vertx.java.core.Vertx vertx, org.vertx.java.core.Handler<List<org.vertx.java.core.buffer.Buffer>> handler,
+      int maxChunks, int maxBytes, long maxDelay) {
+    this.vertx = vertx;
+    this.handler = handler;
+    this.maxChunks = Math.max(1, maxChunks);
+    this.maxBytes = Math.max(1, maxBytes);
+    this.maxDelay = Math.max(0, maxDelay);
+  }
+
+  /**
+   * Creates a batching handler from PHP options.
+   *
+   * @param options An array which may contain the maximum number of chunks
+   *          per batch as "batch", the maximum number of bytes as "maxBytes"
+   *          and the maximum delay in milliseconds as "maxDelayMs".
+   */
+  public static BatchingBufferHandler create(Env env, org.vertx.java.core.Vertx vertx,
+      org.vertx.java.core.Handler<List<org.vertx.java.core.buffer.Buffer>> handler, Value options) {
+    return new BatchingBufferHandler(vertx, handler,
+        (int) option(env, options, "batch", DEFAULT_BATCH),
+        (int) option(env, options, "maxBytes", DEFAULT_MAX_BYTES),
+        option(env, options, "maxDelayMs", DEFAULT_MAX_DELAY));
+  }
+
+  private static long option(Env env, Value options, String name, long def) {
+    if (PhpTypes.isNull(options) || !options.isArray()) {
+      return def;
+    }
+    Value value = options.get(env.createString(name));
+    return PhpTypes.notNull(value) ? value.toLong() : def;
+  }
+
+  @Override
+  public void handle(org.vertx.java.core.buffer.Buffer chunk) {
+    if (pending == null) {
+      pending = new ArrayList<org.vertx.java.core.buffer.Buffer>(Math.min(maxChunks, 16));
+    }
+    pending.add(chunk);
+    pendingBytes += chunk.length();
+
+    if (paused) {
+      return;
+    }
+    if (pending.size() >= maxChunks || pendingBytes >= maxBytes) {
+      flush();
+    }
+    else {
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Stops delivering batches until the handler is resumed.
+   */
+  public void pause() {
+    paused = true;
+    cancelTimer();
+  }
+
+  /**
+   * Resumes delivering batches, scheduling delivery of any pending data.
+   */
+  public void resume() {
+    paused = false;
+    if (pending != null) {
+      scheduleFlush();
+    }
+  }
+
+  /**
+   * Returns whether the handler is paused.
+   */
+  public boolean isPaused() {
+    return paused;
+  }
+
+  /**
+   * Delivers any pending data and stops any scheduled delivery. This must
+   * be called when the handler is replaced, so that data collected for
+   * the previous PHP callback is not delivered after it was replaced.
+   */
+  public void close() {
+    flush();
+    closed = true;
+  }
+
+  /**
+   * Delivers any pending data to the PHP callback.
+   *
+   * This must be called before the stream's end handler is called, so that
+   * all data is delivered before the end of the stream. Pending data is
+   * delivered even while the handler is paused.
+   */
+  public void flush() {
+    cancelTimer();
+    if (pending != null) {
+      List<org.vertx.java.core.buffer.Buffer> batch = pending;
+      pending = null;
+      pendingBytes = 0;
+      handler.handle(batch);
+    }
+  }
+
+  private void cancelTimer() {
+    if (timerId != -1) {
+      vertx.cancelTimer(timerId);
+      timerId = -1;
+    }
+  }
+
+  private void scheduleFlush() {
+    if (maxDelay > 0) {
+      if (timerId == -1) {
+        timerId = vertx.setTimer(maxDelay, new org.vertx.java.core.Handler<Long>() {
+          @Override
+          public void handle(Long timerId) {
+            BatchingBufferHandler.this.timerId = -1;
+            flush();
+          }
+        });
+      }
+    }
+    else if (!flushQueued) {
+      flushQueued = true;
+      vertx.runOnContext(new org.vertx.java.core.Handler<Void>() {
+        @Override
+        public void handle(Void event) {
+          flushQueued = false;
+          // The handler may have been paused or replaced since.
+          if (!paused && !closed) {
+            flush();
+          }
+        }
+      });
+    }
+  }
+
+}
@@ -16,12 +16,16 @@
 package io.vertx.lang.php.buffer;
 
 import io.vertx.lang.php.Gettable;
+import io.vertx.lang.php.util.JsonReader;
+import io.vertx.lang.php.util.JsonWriter;
 import io.vertx.lang.php.util.PhpTypes;
 
+import java.io.IOException;
 import java.util.Arrays;
 
 import com.caucho.quercus.annotation.Optional;
 import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.NullValue;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.StringValue;
 import com.caucho.quercus.env.Value;
@@ -171,6 +175,35 @@ public class Buffer implements ArrayAccess, Countable, Gettable {
     return this;
   }
 
+  /**
+   * Appends a value encoded as UTF-8 JSON.
+   *
+   * Arrays with string keys are encoded as JSON objects and other arrays
+   * as JSON arrays.
+   */
+  public Buffer appendJson(Env env, Value value) {
+    new JsonWriter().write(env, value).appendTo(buffer);
+    return this;
+  }
+
+  /**
+   * Decodes the buffer's contents as UTF-8 JSON.
+   *
+   * JSON objects are decoded to associative arrays, as with
+   * json_decode($json, TRUE), but without first copying the buffer
+   * to a PHP string.
+   *
+   * @return The decoded value, or NULL if the buffer does not hold valid JSON.
+   */
+  public Value decodeJson(Env env) {
+    try {
+      return JsonReader.read(env, buffer);
+    } catch (IOException e) {
+      env.warning("Invalid JSON in Vertx\\Buffer::decodeJson(): " + e.getMessage());
+      return NullValue.NULL;
+    }
+  }
+
   public Buffer getBuffer(Env env, NumberValue start, NumberValue end) {
     return new Buffer(buffer.getBuffer(start.toInt(), end.toInt()));
   }
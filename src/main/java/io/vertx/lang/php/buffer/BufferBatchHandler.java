@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.buffer;
+
+import io.vertx.lang.php.Handler;
+
+import java.util.List;
+
+import com.caucho.quercus.env.ArrayValue;
+import com.caucho.quercus.env.ArrayValueImpl;
+import com.caucho.quercus.env.Callable;
+import com.caucho.quercus.env.Env;
+
+/**
+ * A handler that calls PHP callbacks with batches of buffers.
+ *
+ * Stream data is delivered as a single Vertx\Buffer holding all of the
+ * batch's chunks. Messages, such as WebSocket frames, are delivered as an
+ * array of Vertx\Buffer objects instead, so that message boundaries are
+ * kept.
+ *
+ * @author Jordan Halterman
+ */
+public class BufferBatchHandler extends Handler<List<org.vertx.java.core.buffer.Buffer>> {
+
+  private final boolean messages;
+
+  public BufferBatchHandler(Env env, Callable handler, boolean messages) {
+    super(env, handler);
+    this.messages = messages;
+  }
+
+  @Override
+  public void handle(List<org.vertx.java.core.buffer.Buffer> batch) {
+    Env env = getEnvironment();
+    if (messages) {
+      ArrayValue array = new ArrayValueImpl();
+      for (org.vertx.java.core.buffer.Buffer message : batch) {
+        array.append(env.wrapJava(new Buffer(message)));
+      }
+      call(array);
+    }
+    else {
+      call(env.wrapJava(new Buffer(join(batch))));
+    }
+  }
+
+  /**
+   * Joins the chunks of a batch into a buffer of their total size.
+   */
+  private static org.vertx.java.core.buffer.Buffer join(List<org.vertx.java.core.buffer.Buffer> batch) {
+    if (batch.size() == 1) {
+      return batch.get(0);
+    }
+    int length = 0;
+    for (org.vertx.java.core.buffer.Buffer chunk : batch) {
+      length += chunk.length();
+    }
+    org.vertx.java.core.buffer.Buffer joined = new org.vertx.java.core.buffer.Buffer(length);
+    for (org.vertx.java.core.buffer.Buffer chunk : batch) {
+      joined.appendBuffer(chunk);
+    }
+    return joined;
+  }
+
+}
@@ -15,9 +15,12 @@
  */
 package io.vertx.lang.php.eventbus;
 
+import io.vertx.lang.php.EnvResources;
 import io.vertx.lang.php.Handler;
-import io.vertx.lang.php.ResultModifier;
+import io.vertx.lang.php.PhpModule;
+import io.vertx.lang.php.buffer.Buffer;
 import io.vertx.lang.php.util.HandlerFactory;
+import io.vertx.lang.php.util.MessagePackCodec;
 import io.vertx.lang.php.util.PhpTypes;
 
 import java.util.HashMap;
@@ -29,6 +32,7 @@ import org.vertx.java.core.AsyncResult;
 import com.caucho.quercus.annotation.Optional;
 import com.caucho.quercus.env.LongValue;
 import com.caucho.quercus.env.StringValue;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.Value;
 
@@ -56,20 +60,14 @@ public final class EventBus {
    * @param handler
    *          A PHP callable event handler.
    */
-  private org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>> createAddressHandler(Env env, String address, Value callback) {
-    return new Handler<org.vertx.java.core.eventbus.Message<Object>>(env, PhpTypes.toCallable(callback),
-        new ResultModifier<org.vertx.java.core.eventbus.Message<Object>, Message<Object>>() {
-          @Override
-          public Message<Object> modify(org.vertx.java.core.eventbus.Message<Object> message) {
-            return new Message<Object>(message);
-          }
-        });
+  private org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>> createAddressHandler(Env env, String address, Callable callback) {
+    return new MessageHandler<Object>(env, callback).setOrigin("EventBus.registerHandler:" + address);
   }
 
   /**
    * Creates an address/handler pair from PHP arguments.
    */
-  public AddressPair<String, org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>>> createAddressPair(Env env, StringValue address, Value handler) {
+  public AddressPair<String, org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>>> createAddressPair(Env env, StringValue address, Callable handler) {
     String realAddress = address.toString();
     org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>> realHandler = createAddressHandler(env, realAddress, handler);
     return new AddressPair<String, org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>>>(realAddress, realHandler);
@@ -89,17 +87,19 @@ public final class EventBus {
    * @return The called object.
    */
   public StringValue registerHandler(Env env, StringValue address, Value handler, @Optional Value resultHandler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\EventBus::registerHandler() must be callable.");
-    AddressPair<String, org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>>> addressPair = createAddressPair(env, address, handler);
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\EventBus::registerHandler() must be callable.");
+    AddressPair<String, org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>>> addressPair = createAddressPair(env, address, callable);
 
-    if (PhpTypes.isCallable(env, resultHandler)) {
-      org.vertx.java.core.Handler<AsyncResult<Void>> resultEventHandler = HandlerFactory.createAsyncVoidHandler(env, handler);
+    if (PhpTypes.notNull(resultHandler)) {
+      Callable resultCallable = PhpTypes.resolveCallable(env, resultHandler,
+          "Result handler argument to Vertx\\EventBus::registerHandler() must be callable.");
+      org.vertx.java.core.Handler<AsyncResult<Void>> resultEventHandler = HandlerFactory.createAsyncVoidHandler(env, resultCallable);
       eventBus.registerHandler(addressPair.getAddress(), addressPair.getHandler(), resultEventHandler);
     }
     else {
       eventBus.registerHandler(addressPair.getAddress(), addressPair.getHandler());
     }
-    return env.createString(handlers.register(addressPair).toString());
+    return env.createString(register(env, addressPair).toString());
   }
 
   /**
@@ -112,11 +112,28 @@ public final class EventBus {
    * @return The called object.
    */
   public StringValue registerLocalHandler(Env env, StringValue address, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\EventBus::registerLocalHandler() must be callable.");
-    AddressPair<String, org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>>> addressPair = createAddressPair(env, address, handler);
+    AddressPair<String, org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>>> addressPair = createAddressPair(env, address, callable);
     eventBus.registerLocalHandler(addressPair.getAddress(), addressPair.getHandler());
-    return env.createString(handlers.register(addressPair).toString());
+    return env.createString(register(env, addressPair).toString());
+  }
+
+  /**
+   * Adds a registered handler to the handler registry.
+   *
+   * The handler is unregistered when its Env is replaced by a reload.
+   */
+  private UUID register(Env env, final AddressPair<String, org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>>> addressPair) {
+    UUID id = handlers.register(addressPair);
+    EnvResources.add(env, addressPair.getHandler(), new EnvResources.Resource() {
+      @Override
+      public void release() {
+        eventBus.unregisterHandler(addressPair.getAddress(), addressPair.getHandler());
+        handlers.unregister(addressPair);
+      }
+    });
+    return id;
   }
 
   /**
@@ -133,6 +150,7 @@ public final class EventBus {
       AddressPair<String, org.vertx.java.core.Handler<org.vertx.java.core.eventbus.Message<Object>>> pair = handlers.get(handlerID.toString());
       eventBus.unregisterHandler(pair.getAddress(), pair.getHandler());
       handlers.unregister(pair);
+      EnvResources.remove(env, pair.getHandler());
     }
     return this;
   }
@@ -153,15 +171,9 @@ public final class EventBus {
     Handler<org.vertx.java.core.eventbus.Message<Object>> sendHandler = null;
 
     if (PhpTypes.notNull(handler)) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\EventBus::send() must be callable.");
+      Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\EventBus::send() must be callable.");
       hasHandler = true;
-      sendHandler = new Handler<org.vertx.java.core.eventbus.Message<Object>>(env, PhpTypes.toCallable(handler),
-          new ResultModifier<org.vertx.java.core.eventbus.Message<Object>, Message<Object>>() {
-            @Override
-            public Message<Object> modify(org.vertx.java.core.eventbus.Message<Object> arg) {
-              return new Message<Object>(arg);
-            }
-          });
+      sendHandler = new MessageHandler<Object>(env, callable).setOrigin("EventBus.send");
     }
 
     if (message.isBoolean()) {
@@ -180,12 +192,20 @@ public final class EventBus {
         eventBus.send(address.toString(), message.toString());
       }
     }
+    else if (message.isDouble()) {
+      if (hasHandler) {
+        eventBus.send(address.toString(), message.toDouble(), sendHandler);
+      }
+      else {
+        eventBus.send(address.toString(), message.toDouble());
+      }
+    }
     else if (message.isNumeric()) {
       if (hasHandler) {
-        eventBus.send(address.toString(), message.toInt(), sendHandler);
+        eventBus.send(address.toString(), message.toLong(), sendHandler);
       }
       else {
-        eventBus.send(address.toString(), message.toInt());
+        eventBus.send(address.toString(), message.toLong());
       }
     }
     else if (message.isObject()) {
@@ -196,6 +216,14 @@ public final class EventBus {
         eventBus.send(address.toString(), (org.vertx.java.core.buffer.Buffer) message.toJavaObject(env, org.vertx.java.core.buffer.Buffer.class));
       }
     }
+    else if (message.isArray() && PhpModule.get(env).isBinaryAddress(address.toString())) {
+      if (hasHandler) {
+        eventBus.send(address.toString(), MessagePackCodec.encode(env, message), sendHandler);
+      }
+      else {
+        eventBus.send(address.toString(), MessagePackCodec.encode(env, message));
+      }
+    }
     else if (message.isArray()) {
       if (hasHandler) {
         eventBus.send(address.toString(), PhpTypes.arrayToJson(env, message), sendHandler);
@@ -218,19 +246,10 @@ public final class EventBus {
    *          An optional handler to be invoked in response to the message.
    * @return The called object.
    */
-  public EventBus sendWithTimeout(final Env env, StringValue address, Value message, Value timeout, final Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\EventBus::sendWithTimeout() must be callable.");
-    org.vertx.java.core.Handler<AsyncResult<org.vertx.java.core.eventbus.Message<Object>>> sendHandler = new org.vertx.java.core.Handler<AsyncResult<org.vertx.java.core.eventbus.Message<Object>>>() {
-      @Override
-      public void handle(AsyncResult<org.vertx.java.core.eventbus.Message<Object>> result) {
-        if (result.failed()) {
-          handler.call(env, env.wrapJava(null), env.wrapJava(new ReplyException((org.vertx.java.core.eventbus.ReplyException) result.cause())));
-        }
-        else {
-          handler.call(env, env.wrapJava(new Message<Object>(result.result())), env.wrapJava(null));
-        }
-      }
-    };
+  public EventBus sendWithTimeout(Env env, StringValue address, Value message, Value timeout, Value handler) {
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\EventBus::sendWithTimeout() must be callable.");
+    Handler<AsyncResult<org.vertx.java.core.eventbus.Message<Object>>> sendHandler = new ReplyResultHandler<Object>(env, callable)
+        .setOrigin("EventBus.sendWithTimeout");
 
     if (message.isBoolean()) {
       eventBus.sendWithTimeout(address.toString(), message.toBoolean(), timeout.toLong(), sendHandler);
@@ -238,12 +257,18 @@ public final class EventBus {
     else if (message.isString()) {
       eventBus.sendWithTimeout(address.toString(), message.toString(), timeout.toLong(), sendHandler);
     }
+    else if (message.isDouble()) {
+      eventBus.sendWithTimeout(address.toString(), message.toDouble(), timeout.toLong(), sendHandler);
+    }
     else if (message.isNumeric()) {
-      eventBus.sendWithTimeout(address.toString(), message.toInt(), timeout.toLong(), sendHandler);
+      eventBus.sendWithTimeout(address.toString(), message.toLong(), timeout.toLong(), sendHandler);
     }
     else if (message.isObject()) {
       eventBus.sendWithTimeout(address.toString(), (org.vertx.java.core.buffer.Buffer) message.toJavaObject(env, org.vertx.java.core.buffer.Buffer.class), timeout.toLong(), sendHandler);
     }
+    else if (message.isArray() && PhpModule.get(env).isBinaryAddress(address.toString())) {
+      eventBus.sendWithTimeout(address.toString(), MessagePackCodec.encode(env, message), timeout.toLong(), sendHandler);
+    }
     else if (message.isArray()) {
       eventBus.sendWithTimeout(address.toString(), PhpTypes.arrayToJson(env, message), timeout.toLong(), sendHandler);
     }
@@ -266,18 +291,69 @@ public final class EventBus {
     else if (message.isString()) {
       eventBus.publish(address.toString(), message.toString());
     }
+    else if (message.isDouble()) {
+      eventBus.publish(address.toString(), message.toDouble());
+    }
     else if (message.isNumeric()) {
-      eventBus.publish(address.toString(), message.toInt());
+      eventBus.publish(address.toString(), message.toLong());
     }
     else if (message.isObject()) {
       eventBus.publish(address.toString(), (org.vertx.java.core.buffer.Buffer) message.toJavaObject(env, org.vertx.java.core.buffer.Buffer.class));
     }
+    else if (message.isArray() && PhpModule.get(env).isBinaryAddress(address.toString())) {
+      eventBus.publish(address.toString(), MessagePackCodec.encode(env, message));
+    }
     else if (message.isArray()) {
       eventBus.publish(address.toString(), PhpTypes.arrayToJson(env, message));
     }
     return this;
   }
 
+  /**
+   * Sets the codec with which arrays the module's verticles send to an
+   * address are encoded.
+   *
+   * With the "msgpack" codec arrays are sent as MessagePack in a buffer,
+   * which is smaller and faster to decode than JSON and keeps integer
+   * keys. PHP handlers receive such messages as arrays, but handlers in
+   * other languages receive a buffer, so the codec should only be set on
+   * addresses that are handled in PHP. Replies to such messages are
+   * encoded the same way. The default codec is "json".
+   *
+   * @param address
+   *          The address for which to set the codec.
+   * @param codec
+   *          Either "msgpack" or "json".
+   * @return The called object.
+   */
+  public EventBus setCodec(Env env, StringValue address, StringValue codec) {
+    String name = codec.toString();
+    if (name.equals("msgpack")) {
+      PhpModule.get(env).setBinaryAddress(address.toString(), true);
+    }
+    else if (name.equals("json")) {
+      PhpModule.get(env).setBinaryAddress(address.toString(), false);
+    }
+    else {
+      env.warning("Unknown event bus codec " + name + ". Expected \"msgpack\" or \"json\".");
+    }
+    return this;
+  }
+
+  /**
+   * Encodes a value as MessagePack for sending to a single address.
+   *
+   * PHP handlers receive a buffer returned by this method as the original
+   * value, whatever the codec of the address it is sent to.
+   *
+   * @param value
+   *          The value to encode.
+   * @return A Vertx\Buffer holding the encoded value.
+   */
+  public Value pack(Env env, Value value) {
+    return env.wrapJava(new Buffer(MessagePackCodec.encode(env, value)));
+  }
+
   /**
    * Closes the event bus.
    * 
@@ -288,8 +364,8 @@ public final class EventBus {
    * @return The called object.
    */
   public void close(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\EventBus::close() must be callable.");
-    eventBus.close(HandlerFactory.createAsyncVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\EventBus::close() must be callable.");
+    eventBus.close(HandlerFactory.createAsyncVoidHandler(env, callable));
   }
 
   /**
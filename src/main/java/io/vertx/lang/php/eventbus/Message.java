@@ -17,13 +17,17 @@ package io.vertx.lang.php.eventbus;
 
 import io.vertx.lang.php.Gettable;
 import io.vertx.lang.php.Handler;
-import io.vertx.lang.php.ResultModifier;
 import io.vertx.lang.php.buffer.Buffer;
+import io.vertx.lang.php.util.LazyJsonArrayValue;
+import io.vertx.lang.php.util.MessagePackCodec;
 import io.vertx.lang.php.util.PhpTypes;
 
+import java.io.IOException;
+
 import org.vertx.java.core.json.JsonObject;
 
 import com.caucho.quercus.annotation.Optional;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.Value;
 import com.caucho.quercus.env.StringValue;
@@ -41,21 +45,32 @@ public class Message<T> implements Gettable {
 
   private Value cache;
 
-  public Message(org.vertx.java.core.eventbus.Message<T> message) {
+  private boolean isBinary;
+
+  public Message(Env env, org.vertx.java.core.eventbus.Message<T> message) {
     this.message = message;
-    initCache();
+    initCache(env);
   }
 
-  private void initCache() {
+  private void initCache(Env env) {
     Object body = message.body();
     if (body instanceof JsonObject) {
       isCache = true;
-      Env env = Env.getCurrent();
-      cache = PhpTypes.arrayFromJson(env, (JsonObject) message.body());
+      cache = new LazyJsonArrayValue(env, (JsonObject) body);
     }
     else if (body instanceof org.vertx.java.core.buffer.Buffer) {
       isCache = true;
-      cache = Env.getCurrent().wrapJava(new Buffer((org.vertx.java.core.buffer.Buffer) body));
+      org.vertx.java.core.buffer.Buffer buffer = (org.vertx.java.core.buffer.Buffer) body;
+      if (MessagePackCodec.isEncoded(buffer)) {
+        try {
+          cache = MessagePackCodec.decode(env, buffer);
+          isBinary = true;
+          return;
+        } catch (IOException e) {
+          // Not ours after all, so pass the buffer on as it is.
+        }
+      }
+      cache = env.wrapJava(new Buffer(buffer));
     }
   }
 
@@ -76,12 +91,15 @@ public class Message<T> implements Gettable {
     if (isCache) {
       return cache;
     }
-    return env.wrapJava(message.body());
+    return PhpTypes.valueFromJson(env, message.body());
   }
 
   /**
    * Replies to the message.
    * 
+   * Arrays are replied as MessagePack if the message was received as
+   * MessagePack, and as JSON otherwise.
+   * 
    * @param message
    *          An optional mixed value message. If no message is provided in the
    *          reply, an empty message will be sent.
@@ -92,17 +110,10 @@ public class Message<T> implements Gettable {
   public void reply(Env env, @Optional Value message, @Optional Value replyHandler) {
     if (PhpTypes.notNull(message)) {
       if (PhpTypes.notNull(replyHandler)) {
-        PhpTypes.assertCallable(env, replyHandler,
+        Callable replyCallable = PhpTypes.resolveCallable(env, replyHandler,
             "Handler argument to Vertx\\EventBus\\Message::reply() must be callable.");
 
-        Handler<org.vertx.java.core.eventbus.Message<T>> handler = new Handler<org.vertx.java.core.eventbus.Message<T>>(
-            env, PhpTypes.toCallable(replyHandler),
-            new ResultModifier<org.vertx.java.core.eventbus.Message<T>, Message<T>>() {
-              @Override
-              public Message<T> modify(org.vertx.java.core.eventbus.Message<T> message) {
-                return new Message<T>(message);
-              }
-            });
+        Handler<org.vertx.java.core.eventbus.Message<T>> handler = new MessageHandler<T>(env, replyCallable);
 
         if (message.isBoolean()) {
           this.message.reply(message.toBoolean(), handler);
@@ -110,12 +121,15 @@ public class Message<T> implements Gettable {
         else if (message.isString()) {
           this.message.reply(message.toString(), handler);
         }
-        else if (message.isNumeric()) {
-          this.message.reply(message.toInt(), handler);
-        }
         else if (message.isDouble()) {
           this.message.reply(message.toDouble(), handler);
         }
+        else if (message.isNumeric()) {
+          this.message.reply(message.toLong(), handler);
+        }
+        else if (message.isArray() && isBinary) {
+          this.message.reply(MessagePackCodec.encode(env, message), handler);
+        }
         else if (message.isArray()) {
           this.message.reply(PhpTypes.arrayToJson(env, message), handler);
         }
@@ -127,28 +141,25 @@ public class Message<T> implements Gettable {
         else if (message.isString()) {
           this.message.reply(message.toString());
         }
-        else if (message.isNumeric()) {
-          this.message.reply(message.toInt());
-        }
         else if (message.isDouble()) {
           this.message.reply(message.toDouble());
         }
+        else if (message.isNumeric()) {
+          this.message.reply(message.toLong());
+        }
+        else if (message.isArray() && isBinary) {
+          this.message.reply(MessagePackCodec.encode(env, message));
+        }
         else if (message.isArray()) {
           this.message.reply(PhpTypes.arrayToJson(env, message));
         }
       }
     }
     else if (PhpTypes.notNull(replyHandler)) {
-      PhpTypes.assertCallable(env, replyHandler,
+      Callable replyCallable = PhpTypes.resolveCallable(env, replyHandler,
           "Handler argument to Vertx\\EventBus\\Message::reply() must be callable.");
 
-      this.message.reply(new Handler<org.vertx.java.core.eventbus.Message<T>>(env, PhpTypes.toCallable(replyHandler),
-          new ResultModifier<org.vertx.java.core.eventbus.Message<T>, Message<T>>() {
-            @Override
-            public Message<T> modify(org.vertx.java.core.eventbus.Message<T> message) {
-              return new Message<T>(message);
-            }
-          }));
+      this.message.reply(new MessageHandler<T>(env, replyCallable));
     }
     else {
       this.message.reply();
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.eventbus;
+
+import io.vertx.lang.php.Handler;
+
+import org.vertx.java.core.AsyncResult;
+
+import com.caucho.quercus.env.Callable;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.NullValue;
+
+/**
+ * A handler that calls PHP callbacks with the result of a send with a
+ * timeout.
+ *
+ * The callback is called with a Vertx\EventBus\Message and null if a reply
+ * was received, else with null and a Vertx\EventBus\ReplyException.
+ *
+ * @author Jordan Halterman
+ */
+public class ReplyResultHandler<T> extends Handler<AsyncResult<org.vertx.java.core.eventbus.Message<T>>> {
+
+  public ReplyResultHandler(Env env, Callable handler) {
+    super(env, handler);
+  }
+
+  @Override
+  public void handle(AsyncResult<org.vertx.java.core.eventbus.Message<T>> result) {
+    Env env = getEnvironment();
+    if (result.failed()) {
+      call(NullValue.NULL, env.wrapJava(new ReplyException((org.vertx.java.core.eventbus.ReplyException) result.cause())));
+    }
+    else {
+      call(env.wrapJava(new Message<T>(env, result.result())), NullValue.NULL);
+    }
+  }
+
+}
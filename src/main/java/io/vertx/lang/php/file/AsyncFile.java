@@ -15,6 +15,7 @@
  */
 package io.vertx.lang.php.file;
 
+import io.vertx.lang.php.buffer.BatchingBufferHandler;
 import io.vertx.lang.php.buffer.Buffer;
 import io.vertx.lang.php.streams.ReadStream;
 import io.vertx.lang.php.streams.WriteStream;
@@ -23,6 +24,7 @@ import io.vertx.lang.php.util.PhpTypes;
 
 import com.caucho.quercus.annotation.Optional;
 import com.caucho.quercus.env.BooleanValue;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.StringValue;
@@ -37,6 +39,16 @@ public final class AsyncFile implements ReadStream<AsyncFile>, WriteStream<Async
 
   private org.vertx.java.core.file.AsyncFile file;
 
+  /**
+   * The batching data handler, if data is delivered in batches.
+   */
+  private BatchingBufferHandler batcher;
+
+  /**
+   * Whether PHP has paused the stream, so that a new batcher starts paused.
+   */
+  private boolean paused;
+
   public AsyncFile(org.vertx.java.core.file.AsyncFile file) {
     this.file = file;
   }
@@ -46,9 +58,9 @@ public final class AsyncFile implements ReadStream<AsyncFile>, WriteStream<Async
    */
   public AsyncFile read(Env env, Buffer buffer, NumberValue offset, NumberValue position, NumberValue length,
       Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::read() must be callable.");
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::read() must be callable.");
     file.read(buffer.__toVertxBuffer(), offset.toInt(), position.toInt(), length.toInt(),
-        HandlerFactory.createAsyncBufferHandler(env, handler));
+        HandlerFactory.createAsyncBufferHandler(env, callable));
     return this;
   }
 
@@ -56,8 +68,8 @@ public final class AsyncFile implements ReadStream<AsyncFile>, WriteStream<Async
    * Writes a value to the socket.
    */
   public AsyncFile write(Env env, Buffer buffer, NumberValue position, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::write() must be callable.");
-    file.write(buffer.__toVertxBuffer(), position.toInt(), HandlerFactory.createAsyncVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::write() must be callable.");
+    file.write(buffer.__toVertxBuffer(), position.toInt(), HandlerFactory.createAsyncVoidHandler(env, callable));
     return this;
   }
 
@@ -76,10 +88,29 @@ public final class AsyncFile implements ReadStream<AsyncFile>, WriteStream<Async
 
   /**
    * Sets the file data handler.
+   *
+   * If options are given, data is delivered in batches holding at most
+   * "batch" chunks or "maxBytes" bytes, after waiting at most "maxDelayMs"
+   * milliseconds. Each batch is passed to the handler as a single buffer.
    */
-  public AsyncFile dataHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::dataHandler() must be callable.");
-    file.dataHandler(HandlerFactory.createBufferHandler(env, handler));
+  @Override
+  public AsyncFile dataHandler(Env env, Value handler, @Optional Value options) {
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::dataHandler() must be callable.");
+    if (batcher != null) {
+      // Deliver what was collected for the replaced callback and stop its timer.
+      batcher.close();
+    }
+    if (PhpTypes.notNull(options)) {
+      batcher = HandlerFactory.createBatchingBufferHandler(env, callable, options);
+      if (paused) {
+        batcher.pause();
+      }
+      file.dataHandler(batcher);
+    }
+    else {
+      batcher = null;
+      file.dataHandler(HandlerFactory.createBufferHandler(env, callable));
+    }
     return this;
   }
 
@@ -88,6 +119,10 @@ public final class AsyncFile implements ReadStream<AsyncFile>, WriteStream<Async
    */
   public AsyncFile pause(Env env) {
     file.pause();
+    paused = true;
+    if (batcher != null) {
+      batcher.pause();
+    }
     return this;
   }
 
@@ -96,6 +131,10 @@ public final class AsyncFile implements ReadStream<AsyncFile>, WriteStream<Async
    */
   public AsyncFile resume(Env env) {
     file.resume();
+    paused = false;
+    if (batcher != null) {
+      batcher.resume();
+    }
     return this;
   }
 
@@ -103,8 +142,18 @@ public final class AsyncFile implements ReadStream<AsyncFile>, WriteStream<Async
    * Sets the file end handler.
    */
   public AsyncFile endHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::endHandler() must be callable.");
-    file.endHandler(HandlerFactory.createVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::endHandler() must be callable.");
+    final org.vertx.java.core.Handler<Void> endHandler = HandlerFactory.createVoidHandler(env, callable);
+    file.endHandler(new org.vertx.java.core.Handler<Void>() {
+      @Override
+      public void handle(Void event) {
+        // Deliver any data still waiting in a batch before the end of the stream.
+        if (batcher != null) {
+          batcher.flush();
+        }
+        endHandler.handle(event);
+      }
+    });
     return this;
   }
 
@@ -112,9 +161,9 @@ public final class AsyncFile implements ReadStream<AsyncFile>, WriteStream<Async
    * Sets the file drain handler.
    */
   public AsyncFile drainHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\File\\AsyncFile::drainHandler() must be callable.");
-    file.drainHandler(HandlerFactory.createVoidHandler(env, handler));
+    file.drainHandler(HandlerFactory.createVoidHandler(env, callable));
     return this;
   }
 
@@ -138,8 +187,8 @@ public final class AsyncFile implements ReadStream<AsyncFile>, WriteStream<Async
    */
   public AsyncFile flush(Env env, @Optional Value handler) {
     if (PhpTypes.notNull(handler)) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::flush() must be callable.");
-      file.flush(HandlerFactory.createAsyncVoidHandler(env, handler));
+      Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::flush() must be callable.");
+      file.flush(HandlerFactory.createAsyncVoidHandler(env, callable));
     }
     else {
       file.flush();
@@ -152,8 +201,8 @@ public final class AsyncFile implements ReadStream<AsyncFile>, WriteStream<Async
    */
   public void close(Env env, @Optional Value handler) {
     if (PhpTypes.notNull(handler)) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::close() must be callable.");
-      file.flush(HandlerFactory.createAsyncVoidHandler(env, handler));
+      Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\AsyncFile::close() must be callable.");
+      file.flush(HandlerFactory.createAsyncVoidHandler(env, callable));
     }
     else {
       file.flush();
@@ -164,9 +213,9 @@ public final class AsyncFile implements ReadStream<AsyncFile>, WriteStream<Async
    * Sets the socket exception handler callback.
    */
   public AsyncFile exceptionHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\File\\AsyncFile::exceptionHandler() must be callable.");
-    file.exceptionHandler(HandlerFactory.createExceptionHandler(env, handler));
+    file.exceptionHandler(HandlerFactory.createExceptionHandler(env, callable));
     return this;
   }
 
@@ -25,6 +25,7 @@ import com.caucho.quercus.annotation.Optional;
 import com.caucho.quercus.env.BooleanValue;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.StringValue;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.Value;
 
@@ -51,14 +52,14 @@ public final class FileSystem {
    * Executes an asynchronous chmod call.
    */
   public FileSystem chmod(Env env, StringValue path, StringValue perms, @Optional Value dirPerms, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::chmod() must be callable.");
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::chmod() must be callable.");
     if (PhpTypes.notNull(dirPerms)) {
       fileSystem.chmod(path.toString(), perms.toString(), dirPerms.toString(),
-          HandlerFactory.createAsyncVoidHandler(env, handler));
+          HandlerFactory.createAsyncVoidHandler(env, callable));
     }
     else {
       fileSystem
-          .chmod(path.toString(), perms.toString(), HandlerFactory.createAsyncVoidHandler(env, handler));
+          .chmod(path.toString(), perms.toString(), HandlerFactory.createAsyncVoidHandler(env, callable));
     }
     return this;
   }
@@ -80,8 +81,8 @@ public final class FileSystem {
    * Executes an asynchronous copy call.
    */
   public FileSystem copy(Env env, StringValue from, StringValue to, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::copy() must be callable.");
-    fileSystem.copy(from.toString(), to.toString(), HandlerFactory.createAsyncVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::copy() must be callable.");
+    fileSystem.copy(from.toString(), to.toString(), HandlerFactory.createAsyncVoidHandler(env, callable));
     return this;
   }
 
@@ -97,8 +98,8 @@ public final class FileSystem {
    * Executes an asynchronous recursive copy call.
    */
   public FileSystem copyRecursive(Env env, StringValue from, StringValue to, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::copyRecursive() must be callable.");
-    fileSystem.copy(from.toString(), to.toString(), true, HandlerFactory.createAsyncVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::copyRecursive() must be callable.");
+    fileSystem.copy(from.toString(), to.toString(), true, HandlerFactory.createAsyncVoidHandler(env, callable));
     return this;
   }
 
@@ -114,14 +115,13 @@ public final class FileSystem {
    * Executes an asynchronous create file call.
    */
   public FileSystem createFile(Env env, StringValue path, @Optional StringValue perms, Value handler) {
-    PhpTypes
-        .assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::createFile() must be callable.");
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::createFile() must be callable.");
     if (PhpTypes.notNull(perms)) {
       fileSystem.createFile(path.toString(), perms.toString(),
-          HandlerFactory.createAsyncVoidHandler(env, handler));
+          HandlerFactory.createAsyncVoidHandler(env, callable));
     }
     else {
-      fileSystem.createFile(path.toString(), HandlerFactory.createAsyncVoidHandler(env, handler));
+      fileSystem.createFile(path.toString(), HandlerFactory.createAsyncVoidHandler(env, callable));
     }
     return this;
   }
@@ -143,8 +143,8 @@ public final class FileSystem {
    * Executes an asynchronous delete call.
    */
   public FileSystem delete(Env env, StringValue path, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::delete() must be callable.");
-    fileSystem.delete(path.toString(), HandlerFactory.createAsyncVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::delete() must be callable.");
+    fileSystem.delete(path.toString(), HandlerFactory.createAsyncVoidHandler(env, callable));
     return this;
   }
 
@@ -160,8 +160,8 @@ public final class FileSystem {
    * Executes an asynchronous recursive delete call.
    */
   public FileSystem deleteRecursive(Env env, StringValue path, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::deleteRecursive() must be callable.");
-    fileSystem.delete(path.toString(), true, HandlerFactory.createAsyncVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::deleteRecursive() must be callable.");
+    fileSystem.delete(path.toString(), true, HandlerFactory.createAsyncVoidHandler(env, callable));
     return this;
   }
 
@@ -177,8 +177,8 @@ public final class FileSystem {
    * Executes an asynchronous exists call.
    */
   public FileSystem exists(Env env, StringValue path, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::exists() must be callable.");
-    fileSystem.exists(path.toString(), new AsyncResultHandler<Boolean>(env, PhpTypes.toCallable(handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::exists() must be callable.");
+    fileSystem.exists(path.toString(), new AsyncResultHandler<Boolean>(env, callable));
     return this;
   }
 
@@ -193,8 +193,8 @@ public final class FileSystem {
    * Executes an asynchronous fsprops call.
    */
   public FileSystem fsProps(Env env, StringValue path, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::fsProps() must be callable.");
-    fileSystem.fsProps(path.toString(), new AsyncResultHandler<org.vertx.java.core.file.FileSystemProps>(env, PhpTypes.toCallable(handler), new AsyncResultWrapper<org.vertx.java.core.file.FileSystemProps, FileSystemProps>() {
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::fsProps() must be callable.");
+    fileSystem.fsProps(path.toString(), new AsyncResultHandler<org.vertx.java.core.file.FileSystemProps>(env, callable, new AsyncResultWrapper<org.vertx.java.core.file.FileSystemProps, FileSystemProps>() {
       @Override
       public FileSystemProps wrap(org.vertx.java.core.file.FileSystemProps props) {
         return new FileSystemProps(props);
@@ -214,8 +214,8 @@ public final class FileSystem {
    * Executes an asynchronous link call.
    */
   public FileSystem link(Env env, StringValue link, StringValue existing, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::link() must be callable.");
-    fileSystem.link(link.toString(), existing.toString(), HandlerFactory.createAsyncVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::link() must be callable.");
+    fileSystem.link(link.toString(), existing.toString(), HandlerFactory.createAsyncVoidHandler(env, callable));
     return this;
   }
 
@@ -231,8 +231,8 @@ public final class FileSystem {
    * Executes an asynchronous lprops call.
    */
   public FileSystem lprops(Env env, StringValue path, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::lprops() must be callable.");
-    fileSystem.lprops(path.toString(), new AsyncResultHandler<org.vertx.java.core.file.FileProps>(env, PhpTypes.toCallable(handler), new AsyncResultWrapper<org.vertx.java.core.file.FileProps, FileProps>() {
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::lprops() must be callable.");
+    fileSystem.lprops(path.toString(), new AsyncResultHandler<org.vertx.java.core.file.FileProps>(env, callable, new AsyncResultWrapper<org.vertx.java.core.file.FileProps, FileProps>() {
       @Override
       public FileProps wrap(org.vertx.java.core.file.FileProps props) {
         return new FileProps(props);
@@ -252,12 +252,12 @@ public final class FileSystem {
    * Executes an asynchronous mkdir call.
    */
   public FileSystem mkdir(Env env, StringValue path, @Optional StringValue perms, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::mkdir() must be callable.");
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::mkdir() must be callable.");
     if (PhpTypes.notNull(perms)) {
-      fileSystem.mkdir(path.toString(), perms.toString(), true, HandlerFactory.createAsyncVoidHandler(env, handler));
+      fileSystem.mkdir(path.toString(), perms.toString(), true, HandlerFactory.createAsyncVoidHandler(env, callable));
     }
     else {
-      fileSystem.mkdir(path.toString(), true, HandlerFactory.createAsyncVoidHandler(env, handler));
+      fileSystem.mkdir(path.toString(), true, HandlerFactory.createAsyncVoidHandler(env, callable));
     }
     return this;
   }
@@ -279,8 +279,8 @@ public final class FileSystem {
    * Executes an asynchronous move call.
    */
   public FileSystem move(Env env, StringValue from, StringValue to, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::move() must be callable.");
-    fileSystem.move(from.toString(), to.toString(), HandlerFactory.createAsyncVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::move() must be callable.");
+    fileSystem.move(from.toString(), to.toString(), HandlerFactory.createAsyncVoidHandler(env, callable));
     return this;
   }
 
@@ -297,12 +297,12 @@ public final class FileSystem {
    */
   public FileSystem open(Env env, StringValue path, @Optional StringValue perms, @Optional BooleanValue read,
       @Optional BooleanValue write, @Optional BooleanValue createNew, @Optional BooleanValue flush, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::open() must be callable.");
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::open() must be callable.");
     if (PhpTypes.notNull(perms) && PhpTypes.notNull(read) && PhpTypes.notNull(write) && PhpTypes.notNull(createNew)
         && PhpTypes.notNull(flush)) {
       fileSystem.open(path.toString(), perms.toString(), read.toBoolean(), write.toBoolean(), createNew.toBoolean(),
           flush.toBoolean(),
-          new AsyncResultHandler<org.vertx.java.core.file.AsyncFile>(env, PhpTypes.toCallable(handler),
+          new AsyncResultHandler<org.vertx.java.core.file.AsyncFile>(env, callable,
               new AsyncResultWrapper<org.vertx.java.core.file.AsyncFile, AsyncFile>() {
                 @Override
                 public AsyncFile wrap(org.vertx.java.core.file.AsyncFile file) {
@@ -313,7 +313,7 @@ public final class FileSystem {
     else if (PhpTypes.notNull(perms) && PhpTypes.notNull(read) && PhpTypes.notNull(write)
         && PhpTypes.notNull(createNew)) {
       fileSystem.open(path.toString(), perms.toString(), read.toBoolean(), write.toBoolean(), createNew.toBoolean(),
-          new AsyncResultHandler<org.vertx.java.core.file.AsyncFile>(env, PhpTypes.toCallable(handler),
+          new AsyncResultHandler<org.vertx.java.core.file.AsyncFile>(env, callable,
               new AsyncResultWrapper<org.vertx.java.core.file.AsyncFile, AsyncFile>() {
                 @Override
                 public AsyncFile wrap(org.vertx.java.core.file.AsyncFile file) {
@@ -323,7 +323,7 @@ public final class FileSystem {
     }
     else if (PhpTypes.notNull(perms) && PhpTypes.notNull(createNew)) {
       fileSystem.open(path.toString(), perms.toString(), createNew.toBoolean(),
-          new AsyncResultHandler<org.vertx.java.core.file.AsyncFile>(env, PhpTypes.toCallable(handler),
+          new AsyncResultHandler<org.vertx.java.core.file.AsyncFile>(env, callable,
               new AsyncResultWrapper<org.vertx.java.core.file.AsyncFile, AsyncFile>() {
                 @Override
                 public AsyncFile wrap(org.vertx.java.core.file.AsyncFile file) {
@@ -333,7 +333,7 @@ public final class FileSystem {
     }
     else if (PhpTypes.notNull(perms)) {
       fileSystem.open(path.toString(), perms.toString(), new AsyncResultHandler<org.vertx.java.core.file.AsyncFile>(
-          env, PhpTypes.toCallable(handler), new AsyncResultWrapper<org.vertx.java.core.file.AsyncFile, AsyncFile>() {
+          env, callable, new AsyncResultWrapper<org.vertx.java.core.file.AsyncFile, AsyncFile>() {
             @Override
             public AsyncFile wrap(org.vertx.java.core.file.AsyncFile file) {
               return new AsyncFile(file);
@@ -342,7 +342,7 @@ public final class FileSystem {
     }
     else {
       fileSystem.open(path.toString(),
-          new AsyncResultHandler<org.vertx.java.core.file.AsyncFile>(env, PhpTypes.toCallable(handler),
+          new AsyncResultHandler<org.vertx.java.core.file.AsyncFile>(env, callable,
               new AsyncResultWrapper<org.vertx.java.core.file.AsyncFile, AsyncFile>() {
                 @Override
                 public AsyncFile wrap(org.vertx.java.core.file.AsyncFile file) {
@@ -384,8 +384,8 @@ public final class FileSystem {
    * Executes an asynchronous props call.
    */
   public FileSystem props(Env env, StringValue path, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::props() must be callable.");
-    fileSystem.props(path.toString(), new AsyncResultHandler<org.vertx.java.core.file.FileProps>(env, PhpTypes.toCallable(handler), new AsyncResultWrapper<org.vertx.java.core.file.FileProps, FileProps>() {
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::props() must be callable.");
+    fileSystem.props(path.toString(), new AsyncResultHandler<org.vertx.java.core.file.FileProps>(env, callable, new AsyncResultWrapper<org.vertx.java.core.file.FileProps, FileProps>() {
       @Override
       public FileProps wrap(org.vertx.java.core.file.FileProps props) {
         return new FileProps(props);
@@ -405,13 +405,13 @@ public final class FileSystem {
    * Executes an asynchronous readdir call.
    */
   public FileSystem readDir(Env env, StringValue path, @Optional StringValue filter, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::readDir() must be callable.");
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::readDir() must be callable.");
     if (PhpTypes.notNull(filter)) {
       fileSystem.readDir(path.toString(), filter.toString(),
-          new AsyncResultHandler<String[]>(env, PhpTypes.toCallable(handler)));
+          new AsyncResultHandler<String[]>(env, callable));
     }
     else {
-      fileSystem.readDir(path.toString(), new AsyncResultHandler<String[]>(env, PhpTypes.toCallable(handler)));
+      fileSystem.readDir(path.toString(), new AsyncResultHandler<String[]>(env, callable));
     }
     return this;
   }
@@ -432,8 +432,8 @@ public final class FileSystem {
    * Executes an asynchronous readfile call.
    */
   public FileSystem readFile(Env env, StringValue path, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::readFile() must be callable.");
-    fileSystem.readFile(path.toString(), new AsyncResultHandler<org.vertx.java.core.buffer.Buffer>(env, PhpTypes.toCallable(handler), new AsyncResultWrapper<org.vertx.java.core.buffer.Buffer, Buffer>() {
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::readFile() must be callable.");
+    fileSystem.readFile(path.toString(), new AsyncResultHandler<org.vertx.java.core.buffer.Buffer>(env, callable, new AsyncResultWrapper<org.vertx.java.core.buffer.Buffer, Buffer>() {
       @Override
       public Buffer wrap(org.vertx.java.core.buffer.Buffer buffer) {
         return new Buffer(buffer);
@@ -453,9 +453,9 @@ public final class FileSystem {
    * Executes an asynchronous read symlink call.
    */
   public FileSystem readSymlink(Env env, StringValue link, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\File\\FileSystem::readSymlink() must be callable.");
-    fileSystem.readSymlink(link.toString(), new AsyncResultHandler<String>(env, PhpTypes.toCallable(handler)));
+    fileSystem.readSymlink(link.toString(), new AsyncResultHandler<String>(env, callable));
     return this;
   }
 
@@ -470,9 +470,9 @@ public final class FileSystem {
    * Executes an asynchronous symlink call.
    */
   public FileSystem symlink(Env env, StringValue link, StringValue existing, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::symlink() must be callable.");
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::symlink() must be callable.");
     fileSystem.symlink(link.toString(), existing.toString(),
-        HandlerFactory.createAsyncVoidHandler(env, handler));
+        HandlerFactory.createAsyncVoidHandler(env, callable));
     return this;
   }
 
@@ -488,8 +488,8 @@ public final class FileSystem {
    * Executes an asynchronous truncate call.
    */
   public FileSystem truncate(Env env, StringValue path, NumberValue len, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::truncate() must be callable.");
-    fileSystem.truncate(path.toString(), len.toLong(), HandlerFactory.createAsyncVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::truncate() must be callable.");
+    fileSystem.truncate(path.toString(), len.toLong(), HandlerFactory.createAsyncVoidHandler(env, callable));
     return this;
   }
 
@@ -505,8 +505,8 @@ public final class FileSystem {
    * Executes an asynchronous unlink call.
    */
   public FileSystem unlink(Env env, StringValue link, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::unlink() must be callable.");
-    fileSystem.unlink(link.toString(), HandlerFactory.createAsyncVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::unlink() must be callable.");
+    fileSystem.unlink(link.toString(), HandlerFactory.createAsyncVoidHandler(env, callable));
     return this;
   }
 
@@ -522,8 +522,8 @@ public final class FileSystem {
    * Executes an asynchronous write file call.
    */
   public FileSystem writeFile(Env env, StringValue path, Buffer buffer, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::writeFile() must be callable.");
-    fileSystem.writeFile(path.toString(), buffer.__toVertxBuffer(), HandlerFactory.createAsyncVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\File\\FileSystem::writeFile() must be callable.");
+    fileSystem.writeFile(path.toString(), buffer.__toVertxBuffer(), HandlerFactory.createAsyncVoidHandler(env, callable));
     return this;
   }
 
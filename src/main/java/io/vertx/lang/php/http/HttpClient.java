@@ -24,6 +24,7 @@ import io.vertx.lang.php.util.PhpTypes;
 import com.caucho.quercus.env.BooleanValue;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.StringValue;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.Value;
 
@@ -130,8 +131,8 @@ public class HttpClient extends TCPClient<org.vertx.java.core.http.HttpClient> {
    * Connects to the server.
    */
   public HttpClientRequest connect(Env env, StringValue uri, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::connect() must be callable.");
-    return new HttpClientRequest(client.connect(uri.toString(), createResponseHandler(env, handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::connect() must be callable.");
+    return new HttpClientRequest(client.connect(uri.toString(), createResponseHandler(env, callable)));
   }
 
   /**
@@ -139,8 +140,8 @@ public class HttpClient extends TCPClient<org.vertx.java.core.http.HttpClient> {
    */
   public HttpClient connectWebsocket(Env env, StringValue uri, Value handler) {
     // TODO This method needs to be able to support other HttpClient.connectWebsocket() arguments.
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::connectWebsocket() must be callable.");
-    client.connectWebsocket(uri.toString(), new Handler<org.vertx.java.core.http.WebSocket>(env, PhpTypes.toCallable(handler), new ResultModifier<org.vertx.java.core.http.WebSocket, WebSocket>() {
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::connectWebsocket() must be callable.");
+    client.connectWebsocket(uri.toString(), new Handler<org.vertx.java.core.http.WebSocket>(env, callable, new ResultModifier<org.vertx.java.core.http.WebSocket, WebSocket>() {
       @Override
       public WebSocket modify(org.vertx.java.core.http.WebSocket socket) {
         return new WebSocket(socket);
@@ -153,24 +154,24 @@ public class HttpClient extends TCPClient<org.vertx.java.core.http.HttpClient> {
    * Executes a request.
    */
   public HttpClientRequest request(Env env, StringValue method, StringValue uri, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::request() must be callable.");
-    return new HttpClientRequest(client.request(method.toString(), uri.toString(), createResponseHandler(env, handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::request() must be callable.");
+    return new HttpClientRequest(client.request(method.toString(), uri.toString(), createResponseHandler(env, callable)));
   }
 
   /**
    * Executes a GET request.
    */
   public HttpClientRequest get(Env env, StringValue uri, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::get() must be callable.");
-    return new HttpClientRequest(client.get(uri.toString(), createResponseHandler(env, handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::get() must be callable.");
+    return new HttpClientRequest(client.get(uri.toString(), createResponseHandler(env, callable)));
   }
 
   /**
    * Executes a GET request.
    */
   public HttpClient getNow(Env env, StringValue uri, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::getNow() must be callable.");
-    client.getNow(uri.toString(), createResponseHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::getNow() must be callable.");
+    client.getNow(uri.toString(), createResponseHandler(env, callable));
     return this;
   }
 
@@ -178,63 +179,63 @@ public class HttpClient extends TCPClient<org.vertx.java.core.http.HttpClient> {
    * Executes a PUT request.
    */
   public HttpClientRequest put(Env env, StringValue uri, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::put() must be callable.");
-    return new HttpClientRequest(client.put(uri.toString(), createResponseHandler(env, handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::put() must be callable.");
+    return new HttpClientRequest(client.put(uri.toString(), createResponseHandler(env, callable)));
   }
 
   /**
    * Executes a POST request.
    */
   public HttpClientRequest post(Env env, StringValue uri, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::post() must be callable.");
-    return new HttpClientRequest(client.post(uri.toString(), createResponseHandler(env, handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::post() must be callable.");
+    return new HttpClientRequest(client.post(uri.toString(), createResponseHandler(env, callable)));
   }
 
   /**
    * Executes a DELETE request.
    */
   public HttpClientRequest delete(Env env, StringValue uri, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::delete() must be callable.");
-    return new HttpClientRequest(client.delete(uri.toString(), createResponseHandler(env, handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::delete() must be callable.");
+    return new HttpClientRequest(client.delete(uri.toString(), createResponseHandler(env, callable)));
   }
 
   /**
    * Executes a HEAD request.
    */
   public HttpClientRequest head(Env env, StringValue uri, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::head() must be callable.");
-    return new HttpClientRequest(client.head(uri.toString(), createResponseHandler(env, handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::head() must be callable.");
+    return new HttpClientRequest(client.head(uri.toString(), createResponseHandler(env, callable)));
   }
 
   /**
    * Executes a PATCH request.
    */
   public HttpClientRequest patch(Env env, StringValue uri, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::patch() must be callable.");
-    return new HttpClientRequest(client.patch(uri.toString(), createResponseHandler(env, handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::patch() must be callable.");
+    return new HttpClientRequest(client.patch(uri.toString(), createResponseHandler(env, callable)));
   }
 
   /**
    * Executes a TRACE request.
    */
   public HttpClientRequest trace(Env env, StringValue uri, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::trace() must be callable.");
-    return new HttpClientRequest(client.trace(uri.toString(), createResponseHandler(env, handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::trace() must be callable.");
+    return new HttpClientRequest(client.trace(uri.toString(), createResponseHandler(env, callable)));
   }
 
   /**
    * Executes an OPTIONS request.
    */
   public HttpClientRequest options(Env env, StringValue uri, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::options() must be callable.");
-    return new HttpClientRequest(client.options(uri.toString(), createResponseHandler(env, handler)));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::options() must be callable.");
+    return new HttpClientRequest(client.options(uri.toString(), createResponseHandler(env, callable)));
   }
 
   /**
    * Creates a client response handler.
    */
-  private Handler<org.vertx.java.core.http.HttpClientResponse> createResponseHandler(Env env, Value handler) {
-    return new Handler<org.vertx.java.core.http.HttpClientResponse>(env, PhpTypes.toCallable(handler),
+  private Handler<org.vertx.java.core.http.HttpClientResponse> createResponseHandler(Env env, Callable handler) {
+    return new Handler<org.vertx.java.core.http.HttpClientResponse>(env, handler,
         new ResultModifier<org.vertx.java.core.http.HttpClientResponse, HttpClientResponse>() {
           @Override
           public HttpClientResponse modify(org.vertx.java.core.http.HttpClientResponse response) {
@@ -247,8 +248,8 @@ public class HttpClient extends TCPClient<org.vertx.java.core.http.HttpClient> {
    * Sets the client exception handler.
    */
   public HttpClient exceptionHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::exceptionHandler() must be callable.");
-    client.exceptionHandler(HandlerFactory.createExceptionHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\HttpClient::exceptionHandler() must be callable.");
+    client.exceptionHandler(HandlerFactory.createExceptionHandler(env, callable));
     return this;
   }
 
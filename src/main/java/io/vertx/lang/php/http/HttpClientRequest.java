@@ -26,6 +26,7 @@ import io.vertx.lang.php.util.PhpTypes;
 
 import com.caucho.quercus.annotation.Optional;
 import com.caucho.quercus.env.BooleanValue;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.StringValue;
 import com.caucho.quercus.env.NumberValue;
@@ -103,9 +104,9 @@ public class HttpClientRequest implements WriteStream<HttpClientRequest>, Except
   }
 
   public HttpClientRequest continueHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpClientRequest::continueHandler() must be callable.");
-    request.continueHandler(HandlerFactory.createVoidHandler(env, handler));
+    request.continueHandler(HandlerFactory.createVoidHandler(env, callable));
     return this;
   }
 
@@ -123,9 +124,9 @@ public class HttpClientRequest implements WriteStream<HttpClientRequest>, Except
 
   @Override
   public HttpClientRequest drainHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpClientRequest::drainHandler() must be callable.");
-    request.drainHandler(HandlerFactory.createVoidHandler(env, handler));
+    request.drainHandler(HandlerFactory.createVoidHandler(env, callable));
     return this;
   }
 
@@ -156,9 +157,9 @@ public class HttpClientRequest implements WriteStream<HttpClientRequest>, Except
 
   @Override
   public HttpClientRequest exceptionHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpClientRequest::exceptionhandler() must be callable.");
-    request.exceptionHandler(HandlerFactory.createExceptionHandler(env, handler));
+    request.exceptionHandler(HandlerFactory.createExceptionHandler(env, callable));
     return this;
   }
 
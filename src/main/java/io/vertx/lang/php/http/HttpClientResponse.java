@@ -17,12 +17,15 @@ package io.vertx.lang.php.http;
 
 import io.vertx.lang.php.Gettable;
 import io.vertx.lang.php.MultiMapArray;
+import io.vertx.lang.php.buffer.BatchingBufferHandler;
 import io.vertx.lang.php.net.NetSocket;
 import io.vertx.lang.php.streams.ExceptionSupport;
 import io.vertx.lang.php.streams.ReadStream;
 import io.vertx.lang.php.util.HandlerFactory;
 import io.vertx.lang.php.util.PhpTypes;
 
+import com.caucho.quercus.annotation.Optional;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.StringValue;
 import com.caucho.quercus.env.Value;
@@ -37,6 +40,10 @@ public class HttpClientResponse implements ReadStream<HttpClientResponse>, Excep
 
   private org.vertx.java.core.http.HttpClientResponse response;
 
+  private BatchingBufferHandler batcher;
+
+  private boolean paused;
+
   public HttpClientResponse(org.vertx.java.core.http.HttpClientResponse response) {
     this.response = response;
   }
@@ -53,12 +60,20 @@ public class HttpClientResponse implements ReadStream<HttpClientResponse>, Excep
   @Override
   public HttpClientResponse pause(Env env) {
     response.pause();
+    paused = true;
+    if (batcher != null) {
+      batcher.pause();
+    }
     return this;
   }
 
   @Override
   public HttpClientResponse resume(Env env) {
     response.resume();
+    paused = false;
+    if (batcher != null) {
+      batcher.resume();
+    }
     return this;
   }
 
@@ -86,34 +101,65 @@ public class HttpClientResponse implements ReadStream<HttpClientResponse>, Excep
     return env.wrapJava(response.statusMessage());
   }
 
+  /**
+   * Sets the response data handler.
+   *
+   * If options are given, data is delivered in batches holding at most
+   * "batch" chunks or "maxBytes" bytes, after waiting at most "maxDelayMs"
+   * milliseconds. Each batch is passed to the handler as a single buffer.
+   */
   @Override
-  public HttpClientResponse dataHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+  public HttpClientResponse dataHandler(Env env, Value handler, @Optional Value options) {
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpClientResponse::dataHandler() must be callable.");
-    response.dataHandler(HandlerFactory.createBufferHandler(env, handler));
+    if (batcher != null) {
+      // Deliver what was collected for the replaced callback and stop its timer.
+      batcher.close();
+    }
+    if (PhpTypes.notNull(options)) {
+      batcher = HandlerFactory.createBatchingBufferHandler(env, callable, options);
+      if (paused) {
+        batcher.pause();
+      }
+      response.dataHandler(batcher);
+    }
+    else {
+      batcher = null;
+      response.dataHandler(HandlerFactory.createBufferHandler(env, callable));
+    }
     return this;
   }
 
   public HttpClientResponse bodyHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpClientResponse::bodyHandler() must be callable.");
-    response.bodyHandler(HandlerFactory.createBufferHandler(env, handler));
+    response.bodyHandler(HandlerFactory.createBufferHandler(env, callable));
     return this;
   }
 
   @Override
   public HttpClientResponse endHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpClientResponse::endHandler() must be callable.");
-    response.endHandler(HandlerFactory.createVoidHandler(env, handler));
+    final org.vertx.java.core.Handler<Void> endHandler = HandlerFactory.createVoidHandler(env, callable);
+    response.endHandler(new org.vertx.java.core.Handler<Void>() {
+      @Override
+      public void handle(Void event) {
+        // Deliver any data still waiting in a batch before the end of the stream.
+        if (batcher != null) {
+          batcher.flush();
+        }
+        endHandler.handle(event);
+      }
+    });
     return this;
   }
 
   @Override
   public HttpClientResponse exceptionHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpClientResponse::exceptionHandler() must be callable.");
-    response.exceptionHandler(HandlerFactory.createExceptionHandler(env, handler));
+    response.exceptionHandler(HandlerFactory.createExceptionHandler(env, callable));
     return this;
   }
 
@@ -17,12 +17,14 @@ package io.vertx.lang.php.http;
 
 import io.vertx.lang.php.AsyncResultHandler;
 import io.vertx.lang.php.AsyncResultWrapper;
+import io.vertx.lang.php.EnvResources;
 import io.vertx.lang.php.Handler;
 import io.vertx.lang.php.ResultModifier;
 import io.vertx.lang.php.TCPServer;
 import io.vertx.lang.php.util.PhpTypes;
 
 import com.caucho.quercus.annotation.Optional;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.Value;
@@ -61,14 +63,20 @@ public class HttpServer extends TCPServer<org.vertx.java.core.http.HttpServer> {
    * @return The called server instance.
    */
   public HttpServer listen(Env env, NumberValue port, @Optional Value host, @Optional Value handler) {
-    if (PhpTypes.notNull(handler)) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\Http\\HttpServer::listen() must be callable.");
-    }
+    Callable callable = PhpTypes.notNull(handler) ? PhpTypes.resolveCallable(env, handler,
+        "Handler argument to Vertx\\Http\\HttpServer::listen() must be callable.") : null;
+    // The server is closed when its Env is replaced by a reload.
+    EnvResources.add(env, server, new EnvResources.Resource() {
+      @Override
+      public void release() {
+        server.close();
+      }
+    });
 
     if (PhpTypes.notNull(host)) {
-      if (PhpTypes.isCallable(env, handler)) {
+      if (callable != null) {
         server.listen(port.toInt(), host.toString(), new AsyncResultHandler<org.vertx.java.core.http.HttpServer>(env,
-            PhpTypes.toCallable(handler), new AsyncResultWrapper<org.vertx.java.core.http.HttpServer, HttpServer>() {
+            callable, new AsyncResultWrapper<org.vertx.java.core.http.HttpServer, HttpServer>() {
               @Override
               public HttpServer wrap(org.vertx.java.core.http.HttpServer server) {
                 return new HttpServer(server);
@@ -79,9 +87,9 @@ public class HttpServer extends TCPServer<org.vertx.java.core.http.HttpServer> {
         server.listen(port.toInt(), host.toString());
       }
     }
-    else if (PhpTypes.isCallable(env, handler)) {
+    else if (callable != null) {
       server.listen(port.toInt(),
-          new AsyncResultHandler<org.vertx.java.core.http.HttpServer>(env, PhpTypes.toCallable(handler),
+          new AsyncResultHandler<org.vertx.java.core.http.HttpServer>(env, callable,
               new AsyncResultWrapper<org.vertx.java.core.http.HttpServer, HttpServer>() {
                 @Override
                 public HttpServer wrap(org.vertx.java.core.http.HttpServer server) {
@@ -103,19 +111,11 @@ public class HttpServer extends TCPServer<org.vertx.java.core.http.HttpServer> {
    *          request handler will be returned.
    */
   public Value requestHandler(Env env, @Optional Value handler) {
-    if (PhpTypes.notNull(handler)) {
-      PhpTypes.assertCallable(env, handler,
-          "Handler argument to Vertx\\Http\\HttpServer::requestHandler() must be callable.");
-    }
+    Callable callable = PhpTypes.notNull(handler) ? PhpTypes.resolveCallable(env, handler,
+        "Handler argument to Vertx\\Http\\HttpServer::requestHandler() must be callable.") : null;
 
-    if (PhpTypes.isCallable(env, handler)) {
-      server.requestHandler(new Handler<org.vertx.java.core.http.HttpServerRequest>(env, PhpTypes.toCallable(handler),
-          new ResultModifier<org.vertx.java.core.http.HttpServerRequest, HttpServerRequest>() {
-            @Override
-            public HttpServerRequest modify(org.vertx.java.core.http.HttpServerRequest request) {
-              return new HttpServerRequest(request);
-            }
-          }));
+    if (callable != null) {
+      server.requestHandler(new HttpServerRequestHandler(env, callable).setOrigin("HttpServer.requestHandler"));
       return env.wrapJava(this);
     }
     else {
@@ -145,13 +145,11 @@ public class HttpServer extends TCPServer<org.vertx.java.core.http.HttpServer> {
    * Creates or gets the server websocket handler.
    */
   public Value websocketHandler(Env env, @Optional Value handler) {
-    if (PhpTypes.notNull(handler)) {
-      PhpTypes.assertCallable(env, handler,
-          "Handler argument to Vertx\\Http\\HttpServer::websocketHandler() must be callable.");
-    }
+    Callable callable = PhpTypes.notNull(handler) ? PhpTypes.resolveCallable(env, handler,
+        "Handler argument to Vertx\\Http\\HttpServer::websocketHandler() must be callable.") : null;
 
-    if (PhpTypes.isCallable(env, handler)) {
-      server.websocketHandler(new Handler<org.vertx.java.core.http.ServerWebSocket>(env, PhpTypes.toCallable(handler),
+    if (callable != null) {
+      server.websocketHandler(new Handler<org.vertx.java.core.http.ServerWebSocket>(env, callable,
           new ResultModifier<org.vertx.java.core.http.ServerWebSocket, ServerWebSocket>() {
             @Override
             public ServerWebSocket modify(org.vertx.java.core.http.ServerWebSocket socket) {
@@ -168,7 +166,8 @@ public class HttpServer extends TCPServer<org.vertx.java.core.http.HttpServer> {
   /**
    * Closes the server connection.
    */
-  public void close() {
+  public void close(Env env) {
+    EnvResources.remove(env, server);
     server.close();
   }
 
@@ -15,10 +15,13 @@
  */
 package io.vertx.lang.php.http;
 
+import io.vertx.lang.php.buffer.BatchingBufferHandler;
 import io.vertx.lang.php.streams.ReadStream;
 import io.vertx.lang.php.util.HandlerFactory;
 import io.vertx.lang.php.util.PhpTypes;
 
+import com.caucho.quercus.annotation.Optional;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.Value;
 import com.caucho.quercus.env.LongValue;
@@ -33,6 +36,10 @@ public class HttpServerFileUpload implements ReadStream<HttpServerFileUpload> {
 
   private org.vertx.java.core.http.HttpServerFileUpload upload;
 
+  private BatchingBufferHandler batcher;
+
+  private boolean paused;
+
   public HttpServerFileUpload(org.vertx.java.core.http.HttpServerFileUpload upload) {
     this.upload = upload;
   }
@@ -69,28 +76,67 @@ public class HttpServerFileUpload implements ReadStream<HttpServerFileUpload> {
   @Override
   public HttpServerFileUpload pause(Env env) {
     upload.pause();
+    paused = true;
+    if (batcher != null) {
+      batcher.pause();
+    }
     return this;
   }
 
   @Override
   public HttpServerFileUpload resume(Env env) {
     upload.resume();
+    paused = false;
+    if (batcher != null) {
+      batcher.resume();
+    }
     return this;
   }
 
+  /**
+   * Sets the upload data handler.
+   *
+   * If options are given, data is delivered in batches holding at most
+   * "batch" chunks or "maxBytes" bytes, after waiting at most "maxDelayMs"
+   * milliseconds. Each batch is passed to the handler as a single buffer.
+   */
   @Override
-  public HttpServerFileUpload dataHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+  public HttpServerFileUpload dataHandler(Env env, Value handler, @Optional Value options) {
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpServerFileUpload::dataHandler() must be callable.");
-    upload.dataHandler(HandlerFactory.createBufferHandler(env, handler));
+    if (batcher != null) {
+      // Deliver what was collected for the replaced callback and stop its timer.
+      batcher.close();
+    }
+    if (PhpTypes.notNull(options)) {
+      batcher = HandlerFactory.createBatchingBufferHandler(env, callable, options);
+      if (paused) {
+        batcher.pause();
+      }
+      upload.dataHandler(batcher);
+    }
+    else {
+      batcher = null;
+      upload.dataHandler(HandlerFactory.createBufferHandler(env, callable));
+    }
     return this;
   }
 
   @Override
   public HttpServerFileUpload endHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpServerFileUpload::endHandler() must be callable.");
-    upload.endHandler(HandlerFactory.createVoidHandler(env, handler));
+    final org.vertx.java.core.Handler<Void> endHandler = HandlerFactory.createVoidHandler(env, callable);
+    upload.endHandler(new org.vertx.java.core.Handler<Void>() {
+      @Override
+      public void handle(Void event) {
+        // Deliver any data still waiting in a batch before the end of the stream.
+        if (batcher != null) {
+          batcher.flush();
+        }
+        endHandler.handle(event);
+      }
+    });
     return this;
   }
 
@@ -19,6 +19,7 @@ import io.vertx.lang.php.Gettable;
 import io.vertx.lang.php.Handler;
 import io.vertx.lang.php.MultiMapArray;
 import io.vertx.lang.php.ResultModifier;
+import io.vertx.lang.php.buffer.BatchingBufferHandler;
 import io.vertx.lang.php.net.NetSocket;
 import io.vertx.lang.php.streams.ReadStream;
 import io.vertx.lang.php.util.HandlerFactory;
@@ -26,7 +27,9 @@ import io.vertx.lang.php.util.PhpTypes;
 
 import javax.net.ssl.SSLPeerUnverifiedException;
 
+import com.caucho.quercus.annotation.Optional;
 import com.caucho.quercus.env.BooleanValue;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.StringValue;
 import com.caucho.quercus.env.Value;
@@ -40,6 +43,10 @@ public class HttpServerRequest implements ReadStream<HttpServerRequest>, Gettabl
 
   private org.vertx.java.core.http.HttpServerRequest request;
 
+  private BatchingBufferHandler batcher;
+
+  private boolean paused;
+
   public HttpServerRequest(org.vertx.java.core.http.HttpServerRequest request) {
     this.request = request;
   }
@@ -118,26 +125,34 @@ public class HttpServerRequest implements ReadStream<HttpServerRequest>, Gettabl
   @Override
   public HttpServerRequest pause(Env env) {
     request.pause();
+    paused = true;
+    if (batcher != null) {
+      batcher.pause();
+    }
     return this;
   }
 
   @Override
   public HttpServerRequest resume(Env env) {
     request.resume();
+    paused = false;
+    if (batcher != null) {
+      batcher.resume();
+    }
     return this;
   }
 
   public HttpServerRequest bodyHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpServerRequest::bodyHandler() must be callable.");
-    request.bodyHandler(HandlerFactory.createBufferHandler(env, handler));
+    request.bodyHandler(HandlerFactory.createBufferHandler(env, callable));
     return this;
   }
 
   public HttpServerRequest uploadHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpServerRequest::uploadHandler() must be callable.");
-    request.uploadHandler(new Handler<org.vertx.java.core.http.HttpServerFileUpload>(env, PhpTypes.toCallable(handler),
+    request.uploadHandler(new Handler<org.vertx.java.core.http.HttpServerFileUpload>(env, callable,
         new ResultModifier<org.vertx.java.core.http.HttpServerFileUpload, HttpServerFileUpload>() {
           @Override
           public HttpServerFileUpload modify(org.vertx.java.core.http.HttpServerFileUpload upload) {
@@ -147,19 +162,50 @@ public class HttpServerRequest implements ReadStream<HttpServerRequest>, Gettabl
     return this;
   }
 
+  /**
+   * Sets the request data handler.
+   *
+   * If options are given, data is delivered in batches holding at most
+   * "batch" chunks or "maxBytes" bytes, after waiting at most "maxDelayMs"
+   * milliseconds. Each batch is passed to the handler as a single buffer.
+   */
   @Override
-  public HttpServerRequest dataHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+  public HttpServerRequest dataHandler(Env env, Value handler, @Optional Value options) {
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpServerRequest::dataHandler() must be callable.");
-    request.dataHandler(HandlerFactory.createBufferHandler(env, handler));
+    if (batcher != null) {
+      // Deliver what was collected for the replaced callback and stop its timer.
+      batcher.close();
+    }
+    if (PhpTypes.notNull(options)) {
+      batcher = HandlerFactory.createBatchingBufferHandler(env, callable, options);
+      if (paused) {
+        batcher.pause();
+      }
+      request.dataHandler(batcher);
+    }
+    else {
+      batcher = null;
+      request.dataHandler(HandlerFactory.createBufferHandler(env, callable));
+    }
     return this;
   }
 
   @Override
   public HttpServerRequest endHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpServerRequest::endHandler() must be callable.");
-    request.endHandler(HandlerFactory.createVoidHandler(env, handler));
+    final org.vertx.java.core.Handler<Void> endHandler = HandlerFactory.createVoidHandler(env, callable);
+    request.endHandler(new org.vertx.java.core.Handler<Void>() {
+      @Override
+      public void handle(Void event) {
+        // Deliver any data still waiting in a batch before the end of the stream.
+        if (batcher != null) {
+          batcher.flush();
+        }
+        endHandler.handle(event);
+      }
+    });
     return this;
   }
 
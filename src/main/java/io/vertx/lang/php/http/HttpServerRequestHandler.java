@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.http;
+
+import io.vertx.lang.php.WrappingHandler;
+
+import com.caucho.quercus.env.Callable;
+import com.caucho.quercus.env.Env;
+
+/**
+ * A handler that calls PHP callbacks with Vertx\Http\HttpServerRequest objects.
+ *
+ * @author Jordan Halterman
+ */
+public class HttpServerRequestHandler extends WrappingHandler<org.vertx.java.core.http.HttpServerRequest, HttpServerRequest> {
+
+  public HttpServerRequestHandler(Env env, Callable handler) {
+    super(env, handler);
+  }
+
+  @Override
+  protected HttpServerRequest wrap(org.vertx.java.core.http.HttpServerRequest request) {
+    return new HttpServerRequest(request);
+  }
+
+}
@@ -22,10 +22,12 @@ import io.vertx.lang.php.buffer.Buffer;
 import io.vertx.lang.php.streams.ExceptionSupport;
 import io.vertx.lang.php.streams.WriteStream;
 import io.vertx.lang.php.util.HandlerFactory;
+import io.vertx.lang.php.util.JsonWriter;
 import io.vertx.lang.php.util.PhpTypes;
 
 import com.caucho.quercus.annotation.Optional;
 import com.caucho.quercus.env.BooleanValue;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.StringValue;
@@ -141,6 +143,9 @@ public class HttpServerResponse implements WriteStream<HttpServerResponse>, Exce
       if (data.isObject()) {
         response.write(((Buffer) data.toJavaObject(env, Buffer.class)).__toVertxBuffer());
       }
+      else if (data.isArray()) {
+        response.write(JsonWriter.toBuffer(env, data));
+      }
       else {
         response.write(data.toString());
       }
@@ -157,21 +162,26 @@ public class HttpServerResponse implements WriteStream<HttpServerResponse>, Exce
   }
 
   public void end(Env env, Value data) {
-    response.end(data.toString());
+    if (data.isArray()) {
+      response.end(JsonWriter.toBuffer(env, data));
+    }
+    else {
+      response.end(data.toString());
+    }
   }
 
   @Override
   public HttpServerResponse drainHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpServerResponse::drainHandler() must be callable.");
-    response.drainHandler(HandlerFactory.createVoidHandler(env, handler));
+    response.drainHandler(HandlerFactory.createVoidHandler(env, callable));
     return this;
   }
 
   public HttpServerResponse closeHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpServerResponse::closeHandler() must be callable.");
-    response.closeHandler(HandlerFactory.createVoidHandler(env, handler));
+    response.closeHandler(HandlerFactory.createVoidHandler(env, callable));
     return this;
   }
 
@@ -206,9 +216,9 @@ public class HttpServerResponse implements WriteStream<HttpServerResponse>, Exce
 
   @Override
   public HttpServerResponse exceptionHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Http\\HttpServerResponse::exceptionHandler() must be callable.");
-    response.exceptionHandler(HandlerFactory.createExceptionHandler(env, handler));
+    response.exceptionHandler(HandlerFactory.createExceptionHandler(env, callable));
     return this;
   }
 
@@ -15,10 +15,9 @@
  */
 package io.vertx.lang.php.http;
 
-import io.vertx.lang.php.Handler;
-import io.vertx.lang.php.ResultModifier;
 import io.vertx.lang.php.util.PhpTypes;
 
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.StringValue;
 import com.caucho.quercus.env.Value;
@@ -40,8 +39,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for all HTTP methods.
    */
   public RouteMatcher all(Env env, StringValue pattern, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::all() must be callable.");
-    matcher.all(pattern.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::all() must be callable.");
+    matcher.all(pattern.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -49,8 +48,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for all HTTP methods.
    */
   public RouteMatcher allWithRegex(Env env, StringValue regex, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::allWithRegex() must be callable.");
-    matcher.allWithRegEx(regex.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::allWithRegex() must be callable.");
+    matcher.allWithRegEx(regex.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -58,8 +57,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP CONNECT.
    */
   public RouteMatcher connect(Env env, StringValue pattern, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::connect() must be callable.");
-    matcher.connect(pattern.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::connect() must be callable.");
+    matcher.connect(pattern.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -67,9 +66,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP CONNECT.
    */
   public RouteMatcher connectWithRegex(Env env, StringValue regex, Value handler) {
-    PhpTypes
-        .assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::connectWithRegex() must be callable.");
-    matcher.connectWithRegEx(regex.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::connectWithRegex() must be callable.");
+    matcher.connectWithRegEx(regex.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -77,8 +75,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP GET.
    */
   public RouteMatcher get(Env env, StringValue pattern, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::get() must be callable.");
-    matcher.get(pattern.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::get() must be callable.");
+    matcher.get(pattern.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -86,8 +84,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP GET.
    */
   public RouteMatcher getWithRegex(Env env, StringValue regex, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::getWithRegex() must be callable.");
-    matcher.getWithRegEx(regex.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::getWithRegex() must be callable.");
+    matcher.getWithRegEx(regex.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -95,8 +93,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP POST.
    */
   public RouteMatcher post(Env env, StringValue pattern, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::post() must be callable.");
-    matcher.post(pattern.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::post() must be callable.");
+    matcher.post(pattern.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -104,8 +102,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP POST.
    */
   public RouteMatcher postWithRegex(Env env, StringValue regex, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::postWithRegex() must be callable.");
-    matcher.postWithRegEx(regex.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::postWithRegex() must be callable.");
+    matcher.postWithRegEx(regex.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -113,8 +111,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP PUT.
    */
   public RouteMatcher put(Env env, StringValue pattern, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::put() must be callable.");
-    matcher.put(pattern.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::put() must be callable.");
+    matcher.put(pattern.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -122,8 +120,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP PUT.
    */
   public RouteMatcher putWithRegex(Env env, StringValue regex, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::putWithRegex() must be callable.");
-    matcher.putWithRegEx(regex.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::putWithRegex() must be callable.");
+    matcher.putWithRegEx(regex.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -131,8 +129,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP DELETE.
    */
   public RouteMatcher delete(Env env, StringValue pattern, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::delete() must be callable.");
-    matcher.delete(pattern.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::delete() must be callable.");
+    matcher.delete(pattern.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -140,8 +138,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP DELETE.
    */
   public RouteMatcher deleteWithRegex(Env env, StringValue regex, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::deleteWithRegex() must be callable.");
-    matcher.deleteWithRegEx(regex.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::deleteWithRegex() must be callable.");
+    matcher.deleteWithRegEx(regex.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -149,8 +147,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP HEAD.
    */
   public RouteMatcher head(Env env, StringValue pattern, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::head() must be callable.");
-    matcher.head(pattern.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::head() must be callable.");
+    matcher.head(pattern.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -158,8 +156,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP HEAD.
    */
   public RouteMatcher headWithRegex(Env env, StringValue regex, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::headWithRegex() must be callable.");
-    matcher.headWithRegEx(regex.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::headWithRegex() must be callable.");
+    matcher.headWithRegEx(regex.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -167,8 +165,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP TRACE.
    */
   public RouteMatcher trace(Env env, StringValue pattern, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::trace() must be callable.");
-    matcher.trace(pattern.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::trace() must be callable.");
+    matcher.trace(pattern.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -176,8 +174,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP TRACE.
    */
   public RouteMatcher traceWithRegex(Env env, StringValue regex, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::traceWithRegex() must be callable.");
-    matcher.traceWithRegEx(regex.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::traceWithRegex() must be callable.");
+    matcher.traceWithRegEx(regex.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -185,8 +183,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP OPTIONS.
    */
   public RouteMatcher options(Env env, StringValue pattern, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::options() must be callable.");
-    matcher.options(pattern.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::options() must be callable.");
+    matcher.options(pattern.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -194,9 +192,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP OPTIONS.
    */
   public RouteMatcher optionsWithRegex(Env env, StringValue regex, Value handler) {
-    PhpTypes
-        .assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::optionsWithRegex() must be callable.");
-    matcher.optionsWithRegEx(regex.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::optionsWithRegex() must be callable.");
+    matcher.optionsWithRegEx(regex.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -204,8 +201,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP PATCH.
    */
   public RouteMatcher patch(Env env, StringValue pattern, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::patch() must be callable.");
-    matcher.patch(pattern.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::patch() must be callable.");
+    matcher.patch(pattern.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -213,8 +210,8 @@ public class RouteMatcher {
    * Specify a handler that will be called for a matching HTTP PATCH.
    */
   public RouteMatcher patchWithRegex(Env env, StringValue regex, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::patchWithRegex() must be callable.");
-    matcher.patchWithRegEx(regex.toString(), createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::patchWithRegex() must be callable.");
+    matcher.patchWithRegEx(regex.toString(), createHandler(env, callable));
     return this;
   }
 
@@ -222,19 +219,13 @@ public class RouteMatcher {
    * Specify a handler that will be called when no other handlers match.
    */
   public RouteMatcher noMatch(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::noMatch() must be callable.");
-    matcher.noMatch(createHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\RouteMatcher::noMatch() must be callable.");
+    matcher.noMatch(createHandler(env, callable));
     return this;
   }
 
-  private org.vertx.java.core.Handler<org.vertx.java.core.http.HttpServerRequest> createHandler(Env env, Value handler) {
-    return new Handler<org.vertx.java.core.http.HttpServerRequest>(env, PhpTypes.toCallable(handler),
-        new ResultModifier<org.vertx.java.core.http.HttpServerRequest, HttpServerRequest>() {
-      @Override
-      public HttpServerRequest modify(org.vertx.java.core.http.HttpServerRequest request) {
-        return new HttpServerRequest(request);
-      }
-    });
+  private org.vertx.java.core.Handler<org.vertx.java.core.http.HttpServerRequest> createHandler(Env env, Callable handler) {
+    return new HttpServerRequestHandler(env, handler);
   }
 
   /**
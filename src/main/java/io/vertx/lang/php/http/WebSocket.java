@@ -16,6 +16,7 @@
 package io.vertx.lang.php.http;
 
 import io.vertx.lang.php.Gettable;
+import io.vertx.lang.php.buffer.BatchingBufferHandler;
 import io.vertx.lang.php.streams.ExceptionSupport;
 import io.vertx.lang.php.streams.ReadStream;
 import io.vertx.lang.php.streams.WriteStream;
@@ -24,7 +25,9 @@ import io.vertx.lang.php.util.PhpTypes;
 
 import org.vertx.java.core.http.WebSocketVersion;
 
+import com.caucho.quercus.annotation.Optional;
 import com.caucho.quercus.env.BooleanValue;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.StringValue;
@@ -39,6 +42,16 @@ public class WebSocket implements ReadStream<WebSocket>, WriteStream<WebSocket>,
 
   private org.vertx.java.core.http.WebSocket socket;
 
+  /**
+   * The batching data handler, if data is delivered in batches.
+   */
+  private BatchingBufferHandler batcher;
+
+  /**
+   * Whether PHP has paused the stream, so that a new batcher starts paused.
+   */
+  private boolean paused;
+
   /**
    * Web socket version numbers.
    */
@@ -97,8 +110,8 @@ public class WebSocket implements ReadStream<WebSocket>, WriteStream<WebSocket>,
 
   @Override
   public WebSocket drainHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\WebSocket::drainHandler() must be callable.");
-    socket.drainHandler(HandlerFactory.createVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\WebSocket::drainHandler() must be callable.");
+    socket.drainHandler(HandlerFactory.createVoidHandler(env, callable));
     return this;
   }
 
@@ -116,39 +129,79 @@ public class WebSocket implements ReadStream<WebSocket>, WriteStream<WebSocket>,
   @Override
   public WebSocket pause(Env env) {
     socket.pause();
+    paused = true;
+    if (batcher != null) {
+      batcher.pause();
+    }
     return this;
   }
 
   @Override
   public WebSocket resume(Env env) {
     socket.resume();
+    paused = false;
+    if (batcher != null) {
+      batcher.resume();
+    }
     return this;
   }
 
+  /**
+   * Sets the socket data handler.
+   *
+   * If options are given, messages are delivered in batches holding at
+   * most "batch" messages or "maxBytes" bytes, after waiting at most
+   * "maxDelayMs" milliseconds. Each batch is passed to the handler as an
+   * array of buffers, one per message.
+   */
   @Override
-  public WebSocket dataHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\WebSocket::dataHandler() must be callable.");
-    socket.dataHandler(HandlerFactory.createBufferHandler(env, handler));
+  public WebSocket dataHandler(Env env, Value handler, @Optional Value options) {
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\WebSocket::dataHandler() must be callable.");
+    if (batcher != null) {
+      // Deliver what was collected for the replaced callback and stop its timer.
+      batcher.close();
+    }
+    if (PhpTypes.notNull(options)) {
+      batcher = HandlerFactory.createBatchingMessageHandler(env, callable, options);
+      if (paused) {
+        batcher.pause();
+      }
+      socket.dataHandler(batcher);
+    }
+    else {
+      batcher = null;
+      socket.dataHandler(HandlerFactory.createBufferHandler(env, callable));
+    }
     return this;
   }
 
   @Override
   public WebSocket endHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\WebSocket::endHandler() must be callable.");
-    socket.endHandler(HandlerFactory.createVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\WebSocket::endHandler() must be callable.");
+    final org.vertx.java.core.Handler<Void> endHandler = HandlerFactory.createVoidHandler(env, callable);
+    socket.endHandler(new org.vertx.java.core.Handler<Void>() {
+      @Override
+      public void handle(Void event) {
+        // Deliver any data still waiting in a batch before the end of the stream.
+        if (batcher != null) {
+          batcher.flush();
+        }
+        endHandler.handle(event);
+      }
+    });
     return this;
   }
 
   @Override
   public WebSocket exceptionHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\WebSocket::exceptionHandler() must be callable.");
-    socket.exceptionHandler(HandlerFactory.createExceptionHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\WebSocket::exceptionHandler() must be callable.");
+    socket.exceptionHandler(HandlerFactory.createExceptionHandler(env, callable));
     return this;
   }
 
   public Value closeHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\Http\\WebSocket::closeHandler() must be callable.");
-    socket.closeHandler(HandlerFactory.createVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\Http\\WebSocket::closeHandler() must be callable.");
+    socket.closeHandler(HandlerFactory.createVoidHandler(env, callable));
     return env.wrapJava(this);
   }
 
@@ -21,6 +21,7 @@ import io.vertx.lang.php.TCPClient;
 import io.vertx.lang.php.util.PhpTypes;
 
 import com.caucho.quercus.annotation.Optional;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.LongValue;
 import com.caucho.quercus.env.NumberValue;
@@ -45,10 +46,10 @@ public class NetClient extends TCPClient<org.vertx.java.core.net.NetClient> {
    * Connects to a server.
    */
   public NetClient connect(Env env, NumberValue port, @Optional Value host, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\Net\\NetClient::connect() must be callable.");
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\Net\\NetClient::connect() must be callable.");
     if (PhpTypes.notNull(host)) {
       client.connect(port.toInt(), host.toString(), new AsyncResultHandler<org.vertx.java.core.net.NetSocket>(env,
-          PhpTypes.toCallable(handler), new AsyncResultWrapper<org.vertx.java.core.net.NetSocket, NetSocket>() {
+          callable, new AsyncResultWrapper<org.vertx.java.core.net.NetSocket, NetSocket>() {
             @Override
             public NetSocket wrap(org.vertx.java.core.net.NetSocket socket) {
               return new NetSocket(socket);
@@ -57,7 +58,7 @@ public class NetClient extends TCPClient<org.vertx.java.core.net.NetClient> {
     }
     else {
       client.connect(port.toInt(),
-          new AsyncResultHandler<org.vertx.java.core.net.NetSocket>(env, PhpTypes.toCallable(handler),
+          new AsyncResultHandler<org.vertx.java.core.net.NetSocket>(env, callable,
               new AsyncResultWrapper<org.vertx.java.core.net.NetSocket, NetSocket>() {
                 @Override
                 public NetSocket wrap(org.vertx.java.core.net.NetSocket socket) {
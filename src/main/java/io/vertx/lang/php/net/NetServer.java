@@ -17,6 +17,7 @@ package io.vertx.lang.php.net;
 
 import io.vertx.lang.php.AsyncResultHandler;
 import io.vertx.lang.php.AsyncResultWrapper;
+import io.vertx.lang.php.EnvResources;
 import io.vertx.lang.php.Handler;
 import io.vertx.lang.php.ResultModifier;
 import io.vertx.lang.php.TCPServer;
@@ -24,6 +25,7 @@ import io.vertx.lang.php.util.HandlerFactory;
 import io.vertx.lang.php.util.PhpTypes;
 
 import com.caucho.quercus.annotation.Optional;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.Value;
@@ -51,15 +53,15 @@ public class NetServer extends TCPServer<org.vertx.java.core.net.NetServer> {
    * @return The called server instance.
    */
   public NetServer connectHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\Net\\NetServer::connectHandler() must be callable.");
-    server.connectHandler(new Handler<org.vertx.java.core.net.NetSocket>(env, PhpTypes.toCallable(handler),
+    server.connectHandler(new Handler<org.vertx.java.core.net.NetSocket>(env, callable,
         new ResultModifier<org.vertx.java.core.net.NetSocket, NetSocket>() {
           @Override
           public NetSocket modify(org.vertx.java.core.net.NetSocket socket) {
             return new NetSocket(socket);
           }
-        }));
+        }).setOrigin("NetServer.connectHandler"));
     return this;
   }
 
@@ -78,14 +80,20 @@ public class NetServer extends TCPServer<org.vertx.java.core.net.NetServer> {
    * @return The called server instance.
    */
   public NetServer listen(Env env, NumberValue port, @Optional Value host, @Optional Value handler) {
-    if (PhpTypes.notNull(handler)) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\Net\\NetServer::listen() must be callable.");
-    }
+    Callable callable = PhpTypes.notNull(handler) ? PhpTypes.resolveCallable(env, handler,
+        "Handler argument to Vertx\\Net\\NetServer::listen() must be callable.") : null;
+    // The server is closed when its Env is replaced by a reload.
+    EnvResources.add(env, server, new EnvResources.Resource() {
+      @Override
+      public void release() {
+        server.close();
+      }
+    });
 
     if (PhpTypes.notNull(host)) {
-      if (PhpTypes.isCallable(env, handler)) {
+      if (callable != null) {
         server.listen(port.toInt(), host.toString(), new AsyncResultHandler<org.vertx.java.core.net.NetServer>(env,
-            PhpTypes.toCallable(handler), new AsyncResultWrapper<org.vertx.java.core.net.NetServer, NetServer>() {
+            callable, new AsyncResultWrapper<org.vertx.java.core.net.NetServer, NetServer>() {
               @Override
               public NetServer wrap(org.vertx.java.core.net.NetServer server) {
                 return new NetServer(server);
@@ -96,9 +104,9 @@ public class NetServer extends TCPServer<org.vertx.java.core.net.NetServer> {
         server.listen(port.toInt(), host.toString());
       }
     }
-    else if (PhpTypes.isCallable(env, handler)) {
+    else if (callable != null) {
       server.listen(port.toInt(),
-          new AsyncResultHandler<org.vertx.java.core.net.NetServer>(env, PhpTypes.toCallable(handler),
+          new AsyncResultHandler<org.vertx.java.core.net.NetServer>(env, callable,
               new AsyncResultWrapper<org.vertx.java.core.net.NetServer, NetServer>() {
                 @Override
                 public NetServer wrap(org.vertx.java.core.net.NetServer server) {
@@ -127,9 +135,10 @@ public class NetServer extends TCPServer<org.vertx.java.core.net.NetServer> {
    *          closed.
    */
   public void close(Env env, @Optional Value handler) {
+    EnvResources.remove(env, server);
     if (PhpTypes.notNull(handler)) {
-      PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\Net\\NetServer::close() must be callable.");
-      server.close(HandlerFactory.createAsyncVoidHandler(env, handler));
+      Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\Net\\NetServer::close() must be callable.");
+      server.close(HandlerFactory.createAsyncVoidHandler(env, callable));
     }
     else {
       server.close();
@@ -16,6 +16,7 @@
 package io.vertx.lang.php.net;
 
 import io.vertx.lang.php.Gettable;
+import io.vertx.lang.php.buffer.BatchingBufferHandler;
 import io.vertx.lang.php.buffer.Buffer;
 import io.vertx.lang.php.streams.ExceptionSupport;
 import io.vertx.lang.php.streams.ReadStream;
@@ -23,7 +24,9 @@ import io.vertx.lang.php.streams.WriteStream;
 import io.vertx.lang.php.util.HandlerFactory;
 import io.vertx.lang.php.util.PhpTypes;
 
+import com.caucho.quercus.annotation.Optional;
 import com.caucho.quercus.env.BooleanValue;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.Value;
@@ -38,6 +41,16 @@ public class NetSocket implements ReadStream<NetSocket>, WriteStream<NetSocket>,
 
   private org.vertx.java.core.net.NetSocket socket;
 
+  /**
+   * The batching data handler, if data is delivered in batches.
+   */
+  private BatchingBufferHandler batcher;
+
+  /**
+   * Whether PHP has paused the stream, so that a new batcher starts paused.
+   */
+  private boolean paused;
+
   public NetSocket(org.vertx.java.core.net.NetSocket socket) {
     this.socket = socket;
   }
@@ -63,10 +76,29 @@ public class NetSocket implements ReadStream<NetSocket>, WriteStream<NetSocket>,
 
   /**
    * Sets the socket data handler.
+   *
+   * If options are given, data is delivered in batches holding at most
+   * "batch" chunks or "maxBytes" bytes, after waiting at most "maxDelayMs"
+   * milliseconds. Each batch is passed to the handler as a single buffer.
    */
-  public NetSocket dataHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\Net\\NetSocket::dataHandler() must be callable.");
-    socket.dataHandler(HandlerFactory.createBufferHandler(env, handler));
+  @Override
+  public NetSocket dataHandler(Env env, Value handler, @Optional Value options) {
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\Net\\NetSocket::dataHandler() must be callable.");
+    if (batcher != null) {
+      // Deliver what was collected for the replaced callback and stop its timer.
+      batcher.close();
+    }
+    if (PhpTypes.notNull(options)) {
+      batcher = HandlerFactory.createBatchingBufferHandler(env, callable, options);
+      if (paused) {
+        batcher.pause();
+      }
+      socket.dataHandler(batcher);
+    }
+    else {
+      batcher = null;
+      socket.dataHandler(HandlerFactory.createBufferHandler(env, callable));
+    }
     return this;
   }
 
@@ -75,6 +107,10 @@ public class NetSocket implements ReadStream<NetSocket>, WriteStream<NetSocket>,
    */
   public NetSocket pause(Env env) {
     socket.pause();
+    paused = true;
+    if (batcher != null) {
+      batcher.pause();
+    }
     return this;
   }
 
@@ -83,6 +119,10 @@ public class NetSocket implements ReadStream<NetSocket>, WriteStream<NetSocket>,
    */
   public NetSocket resume(Env env) {
     socket.resume();
+    paused = false;
+    if (batcher != null) {
+      batcher.resume();
+    }
     return this;
   }
 
@@ -90,8 +130,18 @@ public class NetSocket implements ReadStream<NetSocket>, WriteStream<NetSocket>,
    * Sets the socket end handler.
    */
   public NetSocket endHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\Net\\NetSocket::endHandler() must be callable.");
-    socket.endHandler(HandlerFactory.createVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\Net\\NetSocket::endHandler() must be callable.");
+    final org.vertx.java.core.Handler<Void> endHandler = HandlerFactory.createVoidHandler(env, callable);
+    socket.endHandler(new org.vertx.java.core.Handler<Void>() {
+      @Override
+      public void handle(Void event) {
+        // Deliver any data still waiting in a batch before the end of the stream.
+        if (batcher != null) {
+          batcher.flush();
+        }
+        endHandler.handle(event);
+      }
+    });
     return this;
   }
 
@@ -99,8 +149,8 @@ public class NetSocket implements ReadStream<NetSocket>, WriteStream<NetSocket>,
    * Sets the socket drain handler.
    */
   public NetSocket drainHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\Net\\NetSocket::drainHandler() must be callable.");
-    socket.drainHandler(HandlerFactory.createVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\Net\\NetSocket::drainHandler() must be callable.");
+    socket.drainHandler(HandlerFactory.createVoidHandler(env, callable));
     return this;
   }
 
@@ -143,8 +193,8 @@ public class NetSocket implements ReadStream<NetSocket>, WriteStream<NetSocket>,
    * Sets the socket close handler.
    */
   public void closeHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\Net\\NetSocket::closeHandler() must be callable.");
-    socket.closeHandler(HandlerFactory.createVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\Net\\NetSocket::closeHandler() must be callable.");
+    socket.closeHandler(HandlerFactory.createVoidHandler(env, callable));
   }
 
   /**
@@ -158,8 +208,8 @@ public class NetSocket implements ReadStream<NetSocket>, WriteStream<NetSocket>,
    * Sets the socket exception handler callback.
    */
   public NetSocket exceptionHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\Net\\NetSocket::exceptionHandler() must be callable.");
-    socket.exceptionHandler(HandlerFactory.createExceptionHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\Net\\NetSocket::exceptionHandler() must be callable.");
+    socket.exceptionHandler(HandlerFactory.createExceptionHandler(env, callable));
     return this;
   }
 
@@ -19,6 +19,7 @@ import io.vertx.lang.php.buffer.Buffer;
 import io.vertx.lang.php.util.HandlerFactory;
 import io.vertx.lang.php.util.PhpTypes;
 
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.Value;
@@ -45,10 +46,10 @@ public class RecordParser {
    */
   public static RecordParser newDelimited(Env env, Value delim, Value handler) {
     PhpTypes.assertNotNull(env, delim);
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\ParseTools\\RecordParser::newDelimited() must be callable.");
     return new RecordParser(org.vertx.java.core.parsetools.RecordParser.newDelimited(delim.toString(),
-        HandlerFactory.createBufferHandler(env, handler)));
+        HandlerFactory.createBufferHandler(env, callable)));
   }
 
   /**
@@ -56,10 +57,10 @@ public class RecordParser {
    */
   public static RecordParser newFixed(Env env, NumberValue size, Value handler) {
     PhpTypes.assertNotNull(env, size);
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\ParseTools\\RecordParser::newFixed() must be callable.");
     return new RecordParser(org.vertx.java.core.parsetools.RecordParser.newFixed(size.toInt(),
-        HandlerFactory.createBufferHandler(env, handler)));
+        HandlerFactory.createBufferHandler(env, callable)));
   }
 
   /**
@@ -96,9 +97,9 @@ public class RecordParser {
    * Sets the parser output handler.
    */
   public void setOutput(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler,
+    Callable callable = PhpTypes.resolveCallable(env, handler,
         "Handler argument to Vertx\\ParseTools\\RecordParser::setOutput() must be callable.");
-    parser.setOutput(HandlerFactory.createBufferHandler(env, handler));
+    parser.setOutput(HandlerFactory.createBufferHandler(env, callable));
   }
 
 }
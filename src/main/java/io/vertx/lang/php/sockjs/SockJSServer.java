@@ -20,6 +20,7 @@ import io.vertx.lang.php.ResultModifier;
 import io.vertx.lang.php.util.PhpTypes;
 
 import com.caucho.quercus.annotation.Optional;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.Value;
 import com.caucho.quercus.env.ArrayValue;
@@ -63,9 +64,9 @@ public class SockJSServer {
    * Installs an app.
    */
   public SockJSServer installApp(Env env, ArrayValue config, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Handler argument to Vertx\\SockJS\\SockJSServer::installApp() must be callable.");
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Handler argument to Vertx\\SockJS\\SockJSServer::installApp() must be callable.");
     server.installApp(PhpTypes.arrayToJson(env, config),
-        new Handler<org.vertx.java.core.sockjs.SockJSSocket>(env, PhpTypes.toCallable(handler),
+        new Handler<org.vertx.java.core.sockjs.SockJSSocket>(env, callable,
             new ResultModifier<org.vertx.java.core.sockjs.SockJSSocket, SockJSSocket>() {
               @Override
               public SockJSSocket modify(org.vertx.java.core.sockjs.SockJSSocket socket) {
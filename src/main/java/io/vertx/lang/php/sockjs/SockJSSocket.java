@@ -16,6 +16,7 @@
 package io.vertx.lang.php.sockjs;
 
 import io.vertx.lang.php.Gettable;
+import io.vertx.lang.php.buffer.BatchingBufferHandler;
 import io.vertx.lang.php.streams.ReadStream;
 import io.vertx.lang.php.streams.WriteStream;
 import io.vertx.lang.php.util.HandlerFactory;
@@ -23,7 +24,9 @@ import io.vertx.lang.php.util.PhpTypes;
 
 import org.vertx.java.core.buffer.Buffer;
 
+import com.caucho.quercus.annotation.Optional;
 import com.caucho.quercus.env.BooleanValue;
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
 import com.caucho.quercus.env.NumberValue;
 import com.caucho.quercus.env.StringValue;
@@ -38,6 +41,10 @@ public class SockJSSocket implements ReadStream<SockJSSocket>, WriteStream<SockJ
 
   private org.vertx.java.core.sockjs.SockJSSocket socket;
 
+  private BatchingBufferHandler batcher;
+
+  private boolean paused;
+
   public SockJSSocket(org.vertx.java.core.sockjs.SockJSSocket socket) {
     this.socket = socket;
   }
@@ -59,8 +66,8 @@ public class SockJSSocket implements ReadStream<SockJSSocket>, WriteStream<SockJ
 
   @Override
   public SockJSSocket drainHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\SockJS\\SockJSSocket::drainHandler() must be callable.");
-    socket.drainHandler(HandlerFactory.createVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\SockJS\\SockJSSocket::drainHandler() must be callable.");
+    socket.drainHandler(HandlerFactory.createVoidHandler(env, callable));
     return this;
   }
 
@@ -85,26 +92,66 @@ public class SockJSSocket implements ReadStream<SockJSSocket>, WriteStream<SockJ
   @Override
   public SockJSSocket pause(Env env) {
     socket.pause();
+    paused = true;
+    if (batcher != null) {
+      batcher.pause();
+    }
     return this;
   }
 
   @Override
   public SockJSSocket resume(Env env) {
     socket.resume();
+    paused = false;
+    if (batcher != null) {
+      batcher.resume();
+    }
     return this;
   }
 
+  /**
+   * Sets the socket data handler.
+   *
+   * If options are given, messages are delivered in batches holding at
+   * most "batch" messages or "maxBytes" bytes, after waiting at most
+   * "maxDelayMs" milliseconds. Each batch is passed to the handler as an
+   * array of buffers, one per message.
+   */
   @Override
-  public SockJSSocket dataHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\SockJS\\SockJSSocket::dataHandler() must be callable.");
-    socket.dataHandler(HandlerFactory.createBufferHandler(env, handler));
+  public SockJSSocket dataHandler(Env env, Value handler, @Optional Value options) {
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\SockJS\\SockJSSocket::dataHandler() must be callable.");
+    if (batcher != null) {
+      // Deliver what was collected for the replaced callback and stop its timer.
+      batcher.close();
+    }
+    if (PhpTypes.notNull(options)) {
+      batcher = HandlerFactory.createBatchingMessageHandler(env, callable, options);
+      if (paused) {
+        batcher.pause();
+      }
+      socket.dataHandler(batcher);
+    }
+    else {
+      batcher = null;
+      socket.dataHandler(HandlerFactory.createBufferHandler(env, callable));
+    }
     return this;
   }
 
   @Override
   public SockJSSocket endHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler, "Argument to Vertx\\SockJS\\SockJSSocket::endHandler() must be callable.");
-    socket.endHandler(HandlerFactory.createVoidHandler(env, handler));
+    Callable callable = PhpTypes.resolveCallable(env, handler, "Argument to Vertx\\SockJS\\SockJSSocket::endHandler() must be callable.");
+    final org.vertx.java.core.Handler<Void> endHandler = HandlerFactory.createVoidHandler(env, callable);
+    socket.endHandler(new org.vertx.java.core.Handler<Void>() {
+      @Override
+      public void handle(Void event) {
+        // Deliver any data still waiting in a batch before the end of the stream.
+        if (batcher != null) {
+          batcher.flush();
+        }
+        endHandler.handle(event);
+      }
+    });
     return this;
   }
 
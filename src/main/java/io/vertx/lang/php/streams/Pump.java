@@ -169,7 +169,7 @@ public class Pump {
    * Start the Pump. The Pump can be started and stopped multiple times.
    */
   public Pump start(Env env) {
-    readStream.dataHandler(env, dataHandlerValue);
+    readStream.dataHandler(env, dataHandlerValue, null);
     return this;
   }
 
@@ -178,7 +178,7 @@ public class Pump {
    */
   public Pump stop(Env env) {
     writeStream.drainHandler(env, null);
-    readStream.dataHandler(env, null);
+    readStream.dataHandler(env, null, null);
     return this;
   }
 
@@ -15,6 +15,7 @@
  */
 package io.vertx.lang.php.streams;
 
+import com.caucho.quercus.annotation.Optional;
 import com.caucho.quercus.env.Value;
 import com.caucho.quercus.env.Env;
 
@@ -43,9 +44,11 @@ public interface ReadStream<T> {
    * Sets a data handler on the stream.
    *
    * @param handler A PHP callback.
+   * @param options An optional array of batching options. If given, data
+   *          is delivered to the callback in batches.
    * @return The stream implementation.
    */
-  public T dataHandler(Env env, Value handler);
+  public T dataHandler(Env env, Value handler, @Optional Value options);
 
   /**
    * Sets an end handler on the stream.
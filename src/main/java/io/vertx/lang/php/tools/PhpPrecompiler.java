@@ -0,0 +1,177 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.tools;
+
+import io.vertx.lang.php.PhpPrecompiledPages;
+import io.vertx.lang.php.PhpProgramCache;
+import io.vertx.lang.php.PhpRuntime;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.vertx.java.core.logging.Logger;
+import org.vertx.java.core.logging.impl.LoggerFactory;
+
+import com.caucho.quercus.QuercusContext;
+import com.caucho.quercus.page.InterpretedPage;
+import com.caucho.quercus.page.QuercusPage;
+import com.caucho.vfs.Vfs;
+
+/**
+ * Compiles the PHP scripts of a module at build time.
+ *
+ * The precompiler walks a source directory and compiles every PHP script
+ * it finds to Java classes in a work directory under the output directory.
+ * Scripts are compiled from their paths relative to the source directory,
+ * which is the root of the module class path, so that generated class
+ * names do not depend on where the module was built. The precompiler also
+ * writes an index of the compiled scripts, mapping each script's relative
+ * name to its class and a hash of its content. When the factory finds the
+ * index on a module's class path it loads the compiled pages instead of
+ * parsing the scripts at deploy time.
+ *
+ * Usage: PhpPrecompiler &lt;source directory&gt; &lt;output directory&gt;
+ *
+ * The build fails if any script cannot be parsed.
+ *
+ * @author Jordan Halterman
+ */
+public class PhpPrecompiler {
+
+  private static final Logger log = LoggerFactory.getLogger(PhpPrecompiler.class);
+
+  /**
+   * The class path resource listing the precompiled scripts.
+   */
+  public static final String INDEX_RESOURCE = "META-INF/vertx-php/precompiled.properties";
+
+  /**
+   * The directory, relative to the index, that holds the compiled classes.
+   */
+  public static final String WORK_DIR = "work";
+
+  private final File sourceDir;
+
+  private final File outputDir;
+
+  public PhpPrecompiler(File sourceDir, File outputDir) {
+    this.sourceDir = sourceDir;
+    this.outputDir = outputDir;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length != 2) {
+      throw new IllegalArgumentException("Usage: PhpPrecompiler <source directory> <output directory>");
+    }
+
+    // Failures are reported by throwing rather than exiting so that the
+    // precompiler can run inside the Maven JVM.
+    PhpPrecompiler precompiler = new PhpPrecompiler(new File(args[0]), new File(args[1]));
+    if (!precompiler.run()) {
+      throw new IllegalStateException("PHP precompilation failed");
+    }
+  }
+
+  /**
+   * Compiles all scripts in the source directory.
+   *
+   * @return Indicates whether all scripts were compiled successfully.
+   */
+  public boolean run() throws IOException {
+    List<Path> scripts = findScripts();
+    if (scripts.isEmpty()) {
+      log.info("No PHP scripts found in " + sourceDir);
+      return true;
+    }
+
+    File indexFile = new File(outputDir, INDEX_RESOURCE);
+    File workDir = new File(indexFile.getParentFile(), WORK_DIR);
+    if (!workDir.isDirectory() && !workDir.mkdirs()) {
+      throw new IOException("Cannot create directory " + workDir);
+    }
+
+    QuercusContext context = PhpRuntime.createQuercusContext(getClass().getClassLoader(), true);
+    context.setWorkDir(Vfs.lookup(workDir.getAbsolutePath()));
+    context.setPwd(Vfs.lookup(sourceDir.getAbsolutePath()));
+    context.init();
+    context.start();
+
+    Properties index = new Properties();
+    int compiled = 0;
+    int failed = 0;
+    try {
+      for (Path script : scripts) {
+        String name = sourceDir.toPath().relativize(script).toString().replace(File.separatorChar, '/');
+        try {
+          QuercusPage page = context.parse(context.getPwd().lookup(name));
+          if (page.getCompiledPage() != null) {
+            page = page.getCompiledPage();
+          }
+          // Interpreted pages are not indexed, so they are parsed at deploy time.
+          if (!(page instanceof InterpretedPage)) {
+            byte[] hash = PhpProgramCache.hash(Files.readAllBytes(script));
+            index.setProperty(name, page.getClass().getName() + ":" + PhpPrecompiledPages.toHex(hash));
+            compiled++;
+          }
+        } catch (Exception e) {
+          log.error(String.format("Failed to compile %s: %s", name, e.getMessage()), e);
+          failed++;
+        }
+      }
+    } finally {
+      context.close();
+    }
+
+    try (OutputStream out = new FileOutputStream(indexFile)) {
+      index.store(out, "Scripts precompiled by " + getClass().getName());
+    }
+
+    log.info(String.format("Precompiled %d of %d PHP scripts into %s", compiled, scripts.size(), workDir));
+    return failed == 0;
+  }
+
+  /**
+   * Finds all PHP scripts in the source directory.
+   */
+  private List<Path> findScripts() throws IOException {
+    final List<Path> scripts = new ArrayList<Path>();
+    if (!sourceDir.isDirectory()) {
+      return scripts;
+    }
+
+    Files.walkFileTree(sourceDir.toPath(), new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        if (file.getFileName().toString().endsWith(".php")) {
+          scripts.add(file);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return scripts;
+  }
+
+}
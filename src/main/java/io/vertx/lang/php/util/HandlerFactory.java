@@ -18,12 +18,18 @@ package io.vertx.lang.php.util;
 import io.vertx.lang.php.AsyncResultHandler;
 import io.vertx.lang.php.AsyncResultWrapper;
 import io.vertx.lang.php.Handler;
-import io.vertx.lang.php.ResultModifier;
+import io.vertx.lang.php.PhpVerticleFactory;
+import io.vertx.lang.php.TimerHandler;
+import io.vertx.lang.php.buffer.BatchingBufferHandler;
 import io.vertx.lang.php.buffer.Buffer;
+import io.vertx.lang.php.buffer.BufferBatchHandler;
+import io.vertx.lang.php.buffer.BufferHandler;
 
 import org.vertx.java.core.AsyncResult;
 
+import com.caucho.quercus.env.Callable;
 import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.NullValue;
 import com.caucho.quercus.env.Value;
 
 /**
@@ -39,21 +45,18 @@ public class HandlerFactory {
   /**
    * Creates a generic handler.
    */
-  public static <T> org.vertx.java.core.Handler<T> createGenericHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler);
-    return new Handler<T>(env, PhpTypes.toCallable(handler));
+  public static <T> org.vertx.java.core.Handler<T> createGenericHandler(Env env, Callable handler) {
+    return new Handler<T>(env, handler);
   }
 
   /**
    * Creates a void result handler.
    */
-  public static org.vertx.java.core.Handler<Void> createVoidHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler);
-    return new Handler<Void>(env, PhpTypes.toCallable(handler)) {
+  public static org.vertx.java.core.Handler<Void> createVoidHandler(Env env, Callable handler) {
+    return new Handler<Void>(env, handler) {
       @Override
       public void handle(Void arg) {
-        Env env = getEnvironment();
-        getCallable().call(env);
+        call();
       }
     };
   }
@@ -61,46 +64,70 @@ public class HandlerFactory {
   /**
    * Creates a buffer handler.
    */
-  public static org.vertx.java.core.Handler<org.vertx.java.core.buffer.Buffer> createBufferHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler);
-    return new Handler<org.vertx.java.core.buffer.Buffer>(env, PhpTypes.toCallable(handler), new ResultModifier<org.vertx.java.core.buffer.Buffer, Buffer>() {
-      @Override
-      public Buffer modify(org.vertx.java.core.buffer.Buffer buffer) {
-        return new Buffer(buffer);
-      }
-    });
+  public static org.vertx.java.core.Handler<org.vertx.java.core.buffer.Buffer> createBufferHandler(Env env, Callable handler) {
+    return new BufferHandler(env, handler);
+  }
+
+  /**
+   * Creates a buffer handler which delivers stream data in batches, each
+   * batch as a single buffer.
+   *
+   * @see BatchingBufferHandler#create(Env, org.vertx.java.core.Vertx, org.vertx.java.core.Handler, Value)
+   */
+  public static BatchingBufferHandler createBatchingBufferHandler(Env env, Callable handler, Value options) {
+    return BatchingBufferHandler.create(env, PhpVerticleFactory.vertx, new BufferBatchHandler(env, handler, false), options);
+  }
+
+  /**
+   * Creates a buffer handler which delivers messages in batches, each
+   * batch as an array of buffers.
+   *
+   * @see BatchingBufferHandler#create(Env, org.vertx.java.core.Vertx, org.vertx.java.core.Handler, Value)
+   */
+  public static BatchingBufferHandler createBatchingMessageHandler(Env env, Callable handler, Value options) {
+    return BatchingBufferHandler.create(env, PhpVerticleFactory.vertx, new BufferBatchHandler(env, handler, true), options);
+  }
+
+  /**
+   * Creates a timer handler.
+   */
+  public static Handler<Long> createTimerHandler(Env env, Callable handler) {
+    return new TimerHandler(env, handler);
+  }
+
+  /**
+   * Creates a periodic timer handler.
+   */
+  public static Handler<Long> createPeriodicHandler(Env env, Callable handler) {
+    return new TimerHandler(env, handler, true);
   }
 
   /**
    * Creates an exception handler.
    */
-  public static org.vertx.java.core.Handler<Throwable> createExceptionHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler);
-    return new Handler<Throwable>(env, PhpTypes.toCallable(handler));
+  public static org.vertx.java.core.Handler<Throwable> createExceptionHandler(Env env, Callable handler) {
+    return new Handler<Throwable>(env, handler);
   }
 
   /**
    * Creates a generic asynchronous handler.
    */
-  public static <T> org.vertx.java.core.Handler<AsyncResult<T>> createAsyncGenericHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler);
-    return new AsyncResultHandler<T>(env, PhpTypes.toCallable(handler));
+  public static <T> org.vertx.java.core.Handler<AsyncResult<T>> createAsyncGenericHandler(Env env, Callable handler) {
+    return new AsyncResultHandler<T>(env, handler);
   }
 
   /**
    * Creates an asynchronous void handler.
    */
-  public static org.vertx.java.core.Handler<AsyncResult<Void>> createAsyncVoidHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler);
-    return new AsyncResultHandler<Void>(env, PhpTypes.toCallable(handler)) {
+  public static org.vertx.java.core.Handler<AsyncResult<Void>> createAsyncVoidHandler(Env env, Callable handler) {
+    return new AsyncResultHandler<Void>(env, handler) {
       @Override
       public void handle(AsyncResult<Void> result) {
-        Env env = getEnvironment();
         if (result.succeeded()) {
-          getCallable().call(env, env.wrapJava(null));
+          call(NullValue.NULL);
         }
         else {
-          getCallable().call(env, env.wrapJava(result.cause()));
+          call(getEnvironment().wrapJava(result.cause()));
         }
       }
     };
@@ -109,9 +136,8 @@ public class HandlerFactory {
   /**
    * Creates an asynchronous buffer result handler.
    */
-  public static org.vertx.java.core.Handler<AsyncResult<org.vertx.java.core.buffer.Buffer>> createAsyncBufferHandler(Env env, Value handler) {
-    PhpTypes.assertCallable(env, handler);
-    return new AsyncResultHandler<org.vertx.java.core.buffer.Buffer>(env, PhpTypes.toCallable(handler), new AsyncResultWrapper<org.vertx.java.core.buffer.Buffer, Buffer>() {
+  public static org.vertx.java.core.Handler<AsyncResult<org.vertx.java.core.buffer.Buffer>> createAsyncBufferHandler(Env env, Callable handler) {
+    return new AsyncResultHandler<org.vertx.java.core.buffer.Buffer>(env, handler, new AsyncResultWrapper<org.vertx.java.core.buffer.Buffer, Buffer>() {
       @Override
       public Buffer wrap(org.vertx.java.core.buffer.Buffer buffer) {
         return new Buffer(buffer);
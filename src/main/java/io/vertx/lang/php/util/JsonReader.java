@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.util;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.vertx.java.core.buffer.Buffer;
+
+import com.caucho.quercus.env.ArrayValue;
+import com.caucho.quercus.env.ArrayValueImpl;
+import com.caucho.quercus.env.BooleanValue;
+import com.caucho.quercus.env.DoubleValue;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.LongValue;
+import com.caucho.quercus.env.NullValue;
+import com.caucho.quercus.env.StringValue;
+import com.caucho.quercus.env.Value;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads UTF-8 encoded JSON into PHP values.
+ *
+ * JSON is parsed with Jackson's streaming parser directly into PHP arrays,
+ * without building the maps and lists of a JsonObject first. Objects and
+ * arrays both become PHP arrays, as with json_decode($json, TRUE).
+ *
+ * Unless Quercus uses unicode semantics, strings are created from their
+ * UTF-8 bytes, which is how PHP scripts hold text.
+ *
+ * @author Jordan Halterman
+ */
+public class JsonReader {
+
+  private static final JsonFactory factory = new JsonFactory();
+
+  /**
+   * The deepest nesting of objects and arrays that is read. Deeper JSON is
+   * rejected rather than overflowing the stack.
+   */
+  private static final int MAX_DEPTH = 512;
+
+  private JsonReader() {
+  }
+
+  /**
+   * Reads the JSON held by a Vert.x buffer.
+   */
+  public static Value read(Env env, Buffer buffer) throws IOException {
+    ByteBuf buf = buffer.getByteBuf();
+    if (buf.hasArray()) {
+      return JsonReader.read(env, buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes());
+    }
+    byte[] bytes = buffer.getBytes();
+    return JsonReader.read(env, bytes, 0, bytes.length);
+  }
+
+  /**
+   * Reads JSON from a byte array.
+   *
+   * @throws IOException If the bytes do not hold a single JSON value, or
+   *           hold objects or arrays nested too deeply to read.
+   */
+  public static Value read(Env env, byte[] bytes, int offset, int length) throws IOException {
+    try (JsonParser parser = factory.createParser(bytes, offset, length)) {
+      JsonToken token = parser.nextToken();
+      if (token == null) {
+        throw new JsonParseException("No JSON value", parser.getCurrentLocation());
+      }
+      Value value = JsonReader.readValue(env, KeyInternTable.get(env), parser, token, 0);
+      if (parser.nextToken() != null) {
+        throw new JsonParseException("Unexpected content after JSON value", parser.getCurrentLocation());
+      }
+      return value;
+    }
+  }
+
+  private static Value readValue(Env env, KeyInternTable keys, JsonParser parser, JsonToken token, int depth) throws IOException {
+    switch (token) {
+      case START_OBJECT:
+        return JsonReader.readObject(env, keys, parser, JsonReader.enter(parser, depth));
+      case START_ARRAY:
+        return JsonReader.readArray(env, keys, parser, JsonReader.enter(parser, depth));
+      case VALUE_STRING:
+        return JsonReader.createString(env, parser.getText());
+      case VALUE_NUMBER_INT:
+        if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+          return DoubleValue.create(parser.getDoubleValue());
+        }
+        return LongValue.create(parser.getLongValue());
+      case VALUE_NUMBER_FLOAT:
+        return DoubleValue.create(parser.getDoubleValue());
+      case VALUE_TRUE:
+        return BooleanValue.TRUE;
+      case VALUE_FALSE:
+        return BooleanValue.FALSE;
+      case VALUE_NULL:
+        return NullValue.NULL;
+      default:
+        throw new JsonParseException("Unexpected token " + token, parser.getCurrentLocation());
+    }
+  }
+
+  private static int enter(JsonParser parser, int depth) throws IOException {
+    if (depth >= MAX_DEPTH) {
+      throw new JsonParseException("JSON nested deeper than " + MAX_DEPTH + " levels", parser.getCurrentLocation());
+    }
+    return depth + 1;
+  }
+
+  private static ArrayValue readObject(Env env, KeyInternTable keys, JsonParser parser, int depth) throws IOException {
+    ArrayValue array = new ArrayValueImpl();
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_OBJECT) {
+      if (token != JsonToken.FIELD_NAME) {
+        throw new JsonParseException("Unexpected token " + token, parser.getCurrentLocation());
+      }
+      String name = parser.getCurrentName();
+      StringValue key = keys != null ? keys.intern(name) : null;
+      if (key == null) {
+        key = JsonReader.createString(env, name);
+      }
+      array.put(key, JsonReader.readValue(env, keys, parser, parser.nextToken(), depth));
+    }
+    return array;
+  }
+
+  private static ArrayValue readArray(Env env, KeyInternTable keys, JsonParser parser, int depth) throws IOException {
+    ArrayValue array = new ArrayValueImpl();
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      array.put(JsonReader.readValue(env, keys, parser, token, depth));
+    }
+    return array;
+  }
+
+  private static StringValue createString(Env env, String value) {
+    if (env.isUnicodeSemantics()) {
+      return env.createString(value);
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    return env.createString(bytes, 0, bytes.length);
+  }
+
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.vertx.java.core.buffer.Buffer;
+
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.StringValue;
+import com.caucho.quercus.env.Value;
+
+/**
+ * Writes PHP values as UTF-8 encoded JSON.
+ *
+ * Arrays are written in a single pass. An array is written as a JSON array
+ * until a string key is found, in which case whatever was written for it
+ * is discarded and it is written again as a JSON object. Since PHP arrays
+ * rarely mix integer and string keys, almost every array is written only
+ * once, without the JsonObject tree otherwise built for it.
+ *
+ * Strings which Quercus holds as bytes are written as they are, so PHP
+ * scripts are expected to hold UTF-8 text.
+ *
+ * @author Jordan Halterman
+ */
+public class JsonWriter {
+
+  private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+  private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+
+  private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+  private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+  private byte[] bytes;
+
+  private int length;
+
+  public JsonWriter() {
+    this(256);
+  }
+
+  public JsonWriter(int capacity) {
+    bytes = new byte[capacity];
+  }
+
+  /**
+   * Writes a PHP value to a new Vert.x buffer.
+   */
+  public static Buffer toBuffer(Env env, Value value) {
+    JsonWriter writer = new JsonWriter();
+    writer.write(env, value);
+    Buffer buffer = new Buffer(writer.length);
+    writer.appendTo(buffer);
+    return buffer;
+  }
+
+  /**
+   * Writes a PHP value.
+   *
+   * Arrays are written as JSON arrays or objects depending on their keys,
+   * and other values as the matching JSON value. Objects are written as
+   * strings.
+   */
+  public JsonWriter write(Env env, Value value) {
+    if (value == null || value.isNull()) {
+      writeBytes(NULL);
+    }
+    else if (value.isArray()) {
+      writeArray(env, value);
+    }
+    else if (value.isBoolean()) {
+      writeBytes(value.toBoolean() ? TRUE : FALSE);
+    }
+    else if (value.isLong()) {
+      writeLong(value.toLong());
+    }
+    else if (value.isDouble()) {
+      writeDouble(value.toDouble());
+    }
+    else {
+      writeString(value.toStringValue(env));
+    }
+    return this;
+  }
+
+  /**
+   * Returns the number of bytes written.
+   */
+  public int length() {
+    return length;
+  }
+
+  /**
+   * Returns a copy of the bytes written.
+   */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(bytes, length);
+  }
+
+  /**
+   * Appends the bytes written to a Vert.x buffer.
+   */
+  public void appendTo(Buffer buffer) {
+    buffer.getByteBuf().writeBytes(bytes, 0, length);
+  }
+
+  /**
+   * Discards the bytes written so that the writer can be reused.
+   */
+  public JsonWriter reset() {
+    length = 0;
+    return this;
+  }
+
+  private void writeArray(Env env, Value array) {
+    int start = length;
+    ensure(1);
+    bytes[length++] = '[';
+    boolean first = true;
+    Iterator<Map.Entry<Value, Value>> iter = array.getIterator(env);
+    while (iter.hasNext()) {
+      Map.Entry<Value, Value> entry = iter.next();
+      if (entry.getKey().isString()) {
+        length = start;
+        writeObject(env, array);
+        return;
+      }
+      if (!first) {
+        ensure(1);
+        bytes[length++] = ',';
+      }
+      write(env, entry.getValue());
+      first = false;
+    }
+    ensure(1);
+    bytes[length++] = ']';
+  }
+
+  private void writeObject(Env env, Value array) {
+    ensure(1);
+    bytes[length++] = '{';
+    boolean first = true;
+    Iterator<Map.Entry<Value, Value>> iter = array.getIterator(env);
+    while (iter.hasNext()) {
+      Map.Entry<Value, Value> entry = iter.next();
+      if (!first) {
+        ensure(1);
+        bytes[length++] = ',';
+      }
+      Value key = entry.getKey();
+      if (key.isLong()) {
+        ensure(1);
+        bytes[length++] = '"';
+        writeLong(key.toLong());
+        ensure(1);
+        bytes[length++] = '"';
+      }
+      else {
+        writeString(key.toStringValue(env));
+      }
+      ensure(1);
+      bytes[length++] = ':';
+      write(env, entry.getValue());
+      first = false;
+    }
+    ensure(1);
+    bytes[length++] = '}';
+  }
+
+  private void writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      writeAscii(Long.toString(value));
+      return;
+    }
+    ensure(20);
+    if (value < 0) {
+      bytes[length++] = '-';
+      value = -value;
+    }
+    int digits = 1;
+    for (long n = value; n >= 10; n /= 10) {
+      digits++;
+    }
+    for (int i = length + digits - 1; i >= length; i--) {
+      bytes[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    length += digits;
+  }
+
+  private void writeDouble(double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      // JSON has no representation of these.
+      writeBytes(NULL);
+    }
+    else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      writeLong((long) value);
+      writeAscii(".0");
+    }
+    else {
+      writeAscii(Double.toString(value));
+    }
+  }
+
+  private void writeString(StringValue value) {
+    boolean unicode = value.isUnicode();
+    int size = value.length();
+    ensure(size + 2);
+    bytes[length++] = '"';
+    for (int i = 0; i < size; i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        ensure(2);
+        bytes[length++] = '\\';
+        bytes[length++] = (byte) c;
+      }
+      else if (c < 0x20) {
+        writeControl(c);
+      }
+      else if (c < 0x80 || !unicode) {
+        ensure(1);
+        bytes[length++] = (byte) c;
+      }
+      else if (c < 0x800) {
+        ensure(2);
+        bytes[length++] = (byte) (0xc0 | (c >> 6));
+        bytes[length++] = (byte) (0x80 | (c & 0x3f));
+      }
+      else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        ensure(4);
+        bytes[length++] = (byte) (0xf0 | (codePoint >> 18));
+        bytes[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+        bytes[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+        bytes[length++] = (byte) (0x80 | (codePoint & 0x3f));
+      }
+      else {
+        ensure(3);
+        bytes[length++] = (byte) (0xe0 | (c >> 12));
+        bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        bytes[length++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+    ensure(1);
+    bytes[length++] = '"';
+  }
+
+  private void writeControl(char c) {
+    ensure(6);
+    bytes[length++] = '\\';
+    switch (c) {
+      case '\n':
+        bytes[length++] = 'n';
+        break;
+      case '\r':
+        bytes[length++] = 'r';
+        break;
+      case '\t':
+        bytes[length++] = 't';
+        break;
+      case '\b':
+        bytes[length++] = 'b';
+        break;
+      case '\f':
+        bytes[length++] = 'f';
+        break;
+      default:
+        bytes[length++] = 'u';
+        bytes[length++] = '0';
+        bytes[length++] = '0';
+        bytes[length++] = HEX[c >> 4];
+        bytes[length++] = HEX[c & 0xf];
+    }
+  }
+
+  private void writeAscii(String value) {
+    int size = value.length();
+    ensure(size);
+    for (int i = 0; i < size; i++) {
+      bytes[length++] = (byte) value.charAt(i);
+    }
+  }
+
+  private void writeBytes(byte[] value) {
+    ensure(value.length);
+    System.arraycopy(value, 0, bytes, length, value.length);
+    length += value.length;
+  }
+
+  private void ensure(int size) {
+    if (length + size > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, length + size));
+    }
+  }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.caucho.quercus.QuercusContext;
+import com.caucho.quercus.env.ConstStringValue;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.StringValue;
+
+/**
+ * A bounded table of PHP strings for the keys of JSON objects converted
+ * to PHP arrays.
+ *
+ * Messages usually repeat the same few keys, so sharing one string per
+ * key avoids creating a new one for every key of every message. Shared
+ * strings also keep their hash codes, which speeds up later lookups.
+ *
+ * Each Quercus context has a table of its own. A key is looked for in a
+ * small window of slots chosen by its hash. When a missing key is added
+ * and every slot in its window is taken, one is evicted using the clock
+ * algorithm: each entry has a referenced bit, set when it is found, and
+ * the clock clears bits until it finds an entry without one. New entries
+ * start unreferenced, so keys seen only once are evicted before keys
+ * that are found again.
+ *
+ * The table is shared by all threads of a context without locking. Racing
+ * updates may lose an entry, which only costs creating its string again.
+ *
+ * @author Jordan Halterman
+ */
+public class KeyInternTable {
+
+  /**
+   * The number of slots, which must be a power of two.
+   */
+  private static final int CAPACITY = 1024;
+
+  /**
+   * The number of slots a key may be held in, which must be a power of two.
+   */
+  private static final int WINDOW = 4;
+
+  /**
+   * The length of the longest key interned. Longer keys are unlikely to repeat.
+   */
+  private static final int MAX_KEY_LENGTH = 64;
+
+  private static final ConcurrentMap<QuercusContext, KeyInternTable> tables = new ConcurrentHashMap<QuercusContext, KeyInternTable>();
+
+  private static final class Entry {
+    private final String key;
+    private final StringValue value;
+    private volatile boolean referenced;
+
+    private Entry(String key, StringValue value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  private final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<Entry>(CAPACITY);
+
+  /**
+   * The clock hand. Updates from several threads may be lost, which only
+   * makes eviction less fair.
+   */
+  private int hand;
+
+  /**
+   * Returns the table used by an Env, or null if keys should not be
+   * interned for it.
+   *
+   * Keys are held as byte strings, so they are not interned when Quercus
+   * uses unicode semantics.
+   */
+  public static KeyInternTable get(Env env) {
+    if (env.isUnicodeSemantics()) {
+      return null;
+    }
+    QuercusContext context = env.getQuercus();
+    KeyInternTable table = tables.get(context);
+    if (table == null) {
+      KeyInternTable created = new KeyInternTable();
+      table = tables.putIfAbsent(context, created);
+      if (table == null) {
+        table = created;
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Discards the table of a context which is being closed.
+   */
+  public static void release(QuercusContext context) {
+    tables.remove(context);
+  }
+
+  /**
+   * Returns the shared string for a key.
+   *
+   * @return The shared string, or null if the key is not interned because
+   *         it is too long or not ASCII.
+   */
+  public StringValue intern(String key) {
+    int length = key.length();
+    if (length > MAX_KEY_LENGTH) {
+      return null;
+    }
+    for (int i = 0; i < length; i++) {
+      if (key.charAt(i) >= 0x80) {
+        return null;
+      }
+    }
+
+    int hash = key.hashCode();
+    int start = (hash ^ (hash >>> 16)) & (CAPACITY - 1) & ~(WINDOW - 1);
+    for (int i = 0; i < WINDOW; i++) {
+      Entry entry = slots.get(start + i);
+      if (entry != null && entry.key.equals(key)) {
+        if (!entry.referenced) {
+          entry.referenced = true;
+        }
+        return entry.value;
+      }
+    }
+
+    Entry entry = new Entry(key, new ConstStringValue(key));
+    slots.set(victim(start), entry);
+    return entry.value;
+  }
+
+  /**
+   * Chooses the slot to hold a new entry in a window.
+   */
+  private int victim(int start) {
+    int offset = hand;
+    for (int i = 0; i < WINDOW * 2; i++) {
+      int slot = start + ((offset + i) & (WINDOW - 1));
+      Entry entry = slots.get(slot);
+      if (entry == null || !entry.referenced) {
+        hand = offset + i + 1;
+        return slot;
+      }
+      entry.referenced = false;
+    }
+    hand = offset + 1;
+    return start + (offset & (WINDOW - 1));
+  }
+
+}
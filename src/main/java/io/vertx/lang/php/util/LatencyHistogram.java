@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.util;
+
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+/**
+ * A lock-free latency histogram.
+ *
+ * Latencies are counted in power of two buckets of microseconds, so the
+ * histogram has a fixed size and recording a latency never allocates.
+ * The buckets, count, total and maximum are held in a single striped
+ * counter, so threads recording latencies at once rarely contend.
+ *
+ * @author Jordan Halterman
+ */
+public class LatencyHistogram {
+
+  /**
+   * The number of buckets. The last bucket counts all latencies of
+   * 2^30 microseconds (about 18 minutes) or more.
+   */
+  private static final int BUCKETS = 32;
+
+  /**
+   * The indexes of the count, total and maximum, which follow the buckets.
+   */
+  private static final int COUNT = BUCKETS;
+  private static final int TOTAL = BUCKETS + 1;
+  private static final int MAX = BUCKETS + 2;
+
+  private final StripedCounter values = new StripedCounter(BUCKETS + 3);
+
+  /**
+   * Records a latency.
+   *
+   * @param nanos The latency in nanoseconds.
+   */
+  public void record(long nanos) {
+    long micros = nanos / 1000;
+    int bucket = micros <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    values.increment(bucket);
+    values.increment(COUNT);
+    values.add(TOTAL, nanos);
+    values.max(MAX, nanos);
+  }
+
+  /**
+   * Returns the number of recorded latencies.
+   */
+  public long count() {
+    return values.get(COUNT);
+  }
+
+  /**
+   * Returns the sum of all recorded latencies, in nanoseconds.
+   */
+  public long total() {
+    return values.get(TOTAL);
+  }
+
+  /**
+   * Returns the highest recorded latency, in nanoseconds.
+   */
+  public long max() {
+    return values.getMax(MAX);
+  }
+
+  /**
+   * Returns an upper bound of a latency percentile, in microseconds.
+   *
+   * @param percentile A percentile between 0 and 100.
+   * @return The upper bound of the bucket in which the percentile falls,
+   *         or 0 if no latencies were recorded.
+   */
+  public long percentile(double percentile) {
+    long[] counts = new long[BUCKETS];
+    long recorded = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = values.get(i);
+      recorded += counts[i];
+    }
+    if (recorded == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(recorded * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS - 1; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return 1L << i;
+      }
+    }
+    return max() / 1000;
+  }
+
+  /**
+   * Returns the histogram as JSON.
+   *
+   * Each bucket is reported with its upper bound in microseconds. Empty
+   * buckets are omitted.
+   */
+  public JsonObject toJson() {
+    JsonArray jsonBuckets = new JsonArray();
+    for (int i = 0; i < BUCKETS; i++) {
+      long bucketCount = values.get(i);
+      if (bucketCount > 0) {
+        jsonBuckets.addObject(new JsonObject()
+            .putNumber("le", i < BUCKETS - 1 ? 1L << i : Long.MAX_VALUE)
+            .putNumber("count", bucketCount));
+      }
+    }
+    return new JsonObject()
+        .putNumber("count", count())
+        .putNumber("totalMicros", total() / 1000)
+        .putNumber("maxMicros", max() / 1000)
+        .putNumber("p50Micros", percentile(50))
+        .putNumber("p90Micros", percentile(90))
+        .putNumber("p99Micros", percentile(99))
+        .putArray("buckets", jsonBuckets);
+  }
+
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.util;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.vertx.java.core.json.JsonArray;
+import org.vertx.java.core.json.JsonObject;
+
+import com.caucho.quercus.env.ArrayValue;
+import com.caucho.quercus.env.ArrayValueImpl;
+import com.caucho.quercus.env.CopyRoot;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.UnsetValue;
+import com.caucho.quercus.env.Value;
+import com.caucho.quercus.env.Var;
+
+/**
+ * A PHP array view of a JsonObject or JsonArray which converts values
+ * only as they are read.
+ *
+ * Reading an element by key, counting the elements or testing for a key
+ * is served from the JSON, converting only the element read. Nested
+ * objects and arrays are returned as lazy views of their own. Every other
+ * operation, such as iterating, writing or moving the internal pointer,
+ * first copies all elements into an ordinary PHP array, to which the view
+ * then delegates all operations.
+ *
+ * As long as the array has not been copied its JSON is unchanged, so it
+ * can be sent on without being converted back. The JSON is never
+ * modified.
+ *
+ * @author Jordan Halterman
+ */
+public class LazyJsonArrayValue extends ArrayValue {
+
+  private static final long serialVersionUID = 1L;
+
+  private final transient Env env;
+
+  private final transient JsonObject object;
+
+  private final transient JsonArray array;
+
+  private transient Map<String, Value> fields;
+
+  private transient Value[] elements;
+
+  private Values values;
+
+  public LazyJsonArrayValue(Env env, JsonObject object) {
+    this.env = env;
+    this.object = object;
+    this.array = null;
+  }
+
+  public LazyJsonArrayValue(Env env, JsonArray array) {
+    this.env = env;
+    this.object = null;
+    this.array = array;
+  }
+
+  /**
+   * Returns the JSON object viewed by the array, or null if the array views
+   * a JSON array or has been copied, in which case it may have been modified.
+   */
+  public JsonObject getJsonObject() {
+    return values != null ? null : object;
+  }
+
+  /**
+   * Returns the JSON array viewed by the array, or null if the array views
+   * a JSON object or has been copied, in which case it may have been modified.
+   */
+  public JsonArray getJsonArray() {
+    return values != null ? null : array;
+  }
+
+  /**
+   * Converts the element at a key, or returns null if there is none.
+   */
+  private Value element(Value key) {
+    if (object != null) {
+      String name = key.toString();
+      if (fields == null) {
+        fields = new HashMap<String, Value>();
+      }
+      Value value = fields.get(name);
+      if (value == null && object.containsField(name)) {
+        value = convert(object.getField(name));
+        fields.put(name, value);
+      }
+      return value;
+    }
+
+    if (!key.isLongConvertible()) {
+      return null;
+    }
+    long index = key.toLong();
+    if (index < 0 || index >= array.size()) {
+      return null;
+    }
+    if (elements == null) {
+      elements = new Value[array.size()];
+    }
+    Value value = elements[(int) index];
+    if (value == null) {
+      value = convert(array.get((int) index));
+      elements[(int) index] = value;
+    }
+    return value;
+  }
+
+  private Value convert(Object value) {
+    if (value instanceof JsonObject) {
+      return new LazyJsonArrayValue(env, (JsonObject) value);
+    }
+    else if (value instanceof JsonArray) {
+      return new LazyJsonArrayValue(env, (JsonArray) value);
+    }
+    return PhpTypes.valueFromJson(env, value);
+  }
+
+  /**
+   * Copies all elements into the array the view delegates to.
+   */
+  private Values materialize() {
+    if (values != null) {
+      return values;
+    }
+    Values copied = new Values();
+    if (object != null) {
+      KeyInternTable keys = KeyInternTable.get(env);
+      for (String name : object.getFieldNames()) {
+        Value value = fields != null ? fields.get(name) : null;
+        copied.put(PhpTypes.keyFromJson(env, keys, name), value != null ? value : convert(object.getField(name)));
+      }
+    }
+    else {
+      for (int i = 0; i < array.size(); i++) {
+        Value value = elements != null ? elements[i] : null;
+        copied.put(value != null ? value : convert(array.get(i)));
+      }
+    }
+    values = copied;
+    fields = null;
+    elements = null;
+    return values;
+  }
+
+  /**
+   * Returns a new view of the same JSON. The JSON is never modified, so
+   * the copy behaves as an independent array.
+   */
+  private Value view() {
+    return object != null ? new LazyJsonArrayValue(env, object) : new LazyJsonArrayValue(env, array);
+  }
+
+  @Override
+  public int getSize() {
+    if (values == null) {
+      return object != null ? object.size() : array.size();
+    }
+    return values.getSize();
+  }
+
+  @Override
+  public Value get(Value key) {
+    if (values == null) {
+      Value value = element(key);
+      return value != null ? value : UnsetValue.UNSET;
+    }
+    return values.get(key);
+  }
+
+  @Override
+  public Value getRaw(Value key) {
+    if (values == null) {
+      return get(key);
+    }
+    return values.getRaw(key);
+  }
+
+  @Override
+  public Value containsKey(Value key) {
+    if (values == null) {
+      return element(key);
+    }
+    return values.containsKey(key);
+  }
+
+  @Override
+  public Value copy() {
+    return values == null ? view() : values.copy();
+  }
+
+  @Override
+  public Value copyReturn() {
+    return values == null ? view() : values.copyReturn();
+  }
+
+  @Override
+  public Value copySaveFunArg() {
+    return values == null ? view() : values.copySaveFunArg();
+  }
+
+  @Override
+  public Value toLocalValue() {
+    return values == null ? view() : values.toLocalValue();
+  }
+
+  @Override
+  public Value toLocalRef() {
+    return values == null ? view() : values.toLocalRef();
+  }
+
+  @Override
+  public Value copy(Env env, IdentityHashMap<Value, Value> map) {
+    return materialize().copy(env, map);
+  }
+
+  @Override
+  public Value copyTree(Env env, CopyRoot root) {
+    return materialize().copyTree(env, root);
+  }
+
+  @Override
+  public Value getArg(Value key, boolean isTop) {
+    return materialize().getArg(key, isTop);
+  }
+
+  @Override
+  public Value getArgTail(Env env, boolean isTop) {
+    return materialize().getArgTail(env, isTop);
+  }
+
+  @Override
+  public Var getVar(Value key) {
+    return materialize().getVar(key);
+  }
+
+  @Override
+  public Var getRef(Value key) {
+    return materialize().getRef(key);
+  }
+
+  @Override
+  public Value getArray(Value key) {
+    return materialize().getArray(key);
+  }
+
+  @Override
+  public Value getObject(Env env, Value key) {
+    return materialize().getObject(env, key);
+  }
+
+  @Override
+  public Value getDirty(Value key) {
+    return materialize().getDirty(key);
+  }
+
+  @Override
+  public Var putVar() {
+    return materialize().putVar();
+  }
+
+  @Override
+  public Value createTailKey() {
+    return materialize().createTailKey();
+  }
+
+  @Override
+  public Value put(Value key, Value value) {
+    return materialize().put(key, value);
+  }
+
+  @Override
+  public ArrayValue put(Value value) {
+    materialize().put(value);
+    return this;
+  }
+
+  @Override
+  public ArrayValue append(Value key, Value value) {
+    materialize().append(key, value);
+    return this;
+  }
+
+  @Override
+  public ArrayValue unshift(Value value) {
+    materialize().unshift(value);
+    return this;
+  }
+
+  @Override
+  public ArrayValue splice(int begin, int end, ArrayValue replace) {
+    return materialize().splice(begin, end, replace);
+  }
+
+  @Override
+  public ArrayValue slice(Env env, int start, int end, boolean isPreserveKeys) {
+    return materialize().slice(env, start, end, isPreserveKeys);
+  }
+
+  @Override
+  public Value remove(Value key) {
+    return materialize().remove(key);
+  }
+
+  @Override
+  public Value pop(Env env) {
+    return materialize().pop(env);
+  }
+
+  @Override
+  public Value shuffle() {
+    return materialize().shuffle();
+  }
+
+  @Override
+  public void clear() {
+    materialize().clear();
+  }
+
+  @Override
+  public Value contains(Value value) {
+    return materialize().contains(value);
+  }
+
+  @Override
+  public Value containsStrict(Value value) {
+    return materialize().containsStrict(value);
+  }
+
+  @Override
+  public Value getKeys() {
+    return materialize().getKeys();
+  }
+
+  @Override
+  public Value getValues() {
+    return materialize().getValues();
+  }
+
+  @Override
+  public Entry getHead() {
+    return materialize().getHead();
+  }
+
+  @Override
+  protected Entry getTail() {
+    return materialize().tail();
+  }
+
+  // The internal pointer lives in the delegate, so that removing the
+  // current entry advances it as it would for an ordinary array.
+
+  @Override
+  public Value current() {
+    return materialize().current();
+  }
+
+  @Override
+  public Value key() {
+    return materialize().key();
+  }
+
+  @Override
+  public boolean hasCurrent() {
+    return materialize().hasCurrent();
+  }
+
+  @Override
+  public Value next() {
+    return materialize().next();
+  }
+
+  @Override
+  public Value prev() {
+    return materialize().prev();
+  }
+
+  @Override
+  public Value reset() {
+    return materialize().reset();
+  }
+
+  @Override
+  public Value end() {
+    return materialize().end();
+  }
+
+  @Override
+  public Value each() {
+    return materialize().each();
+  }
+
+  /**
+   * The array the view delegates to once copied, which exposes its tail.
+   */
+  private static class Values extends ArrayValueImpl {
+
+    private static final long serialVersionUID = 1L;
+
+    private Entry tail() {
+      return getTail();
+    }
+
+  }
+
+}
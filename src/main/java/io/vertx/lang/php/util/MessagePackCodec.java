@@ -0,0 +1,520 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.util;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.vertx.java.core.buffer.Buffer;
+
+import com.caucho.quercus.env.ArrayValue;
+import com.caucho.quercus.env.ArrayValueImpl;
+import com.caucho.quercus.env.BooleanValue;
+import com.caucho.quercus.env.DoubleValue;
+import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.LongValue;
+import com.caucho.quercus.env.NullValue;
+import com.caucho.quercus.env.StringValue;
+import com.caucho.quercus.env.Value;
+
+/**
+ * Encodes PHP values as MessagePack in Vert.x buffers.
+ *
+ * Encoded buffers start with a four byte prefix, which MessagePack never
+ * produces, so that receivers can tell them from other buffers. Unlike
+ * JSON, MessagePack keeps integer keys, so arrays with keys other than
+ * 0 to n - 1 are decoded with the same keys. Vertx\Buffer objects are
+ * encoded as binary and decoded as buffers. Other objects are encoded as
+ * their string value.
+ *
+ * Arrays are written in a single pass, as a MessagePack array until a key
+ * is found which does not continue the list, in which case the array is
+ * written again as a map.
+ *
+ * @author Jordan Halterman
+ */
+public class MessagePackCodec {
+
+  private static final byte[] PREFIX = {(byte) 0xc1, 'v', 'x', 'm'};
+
+  /**
+   * The deepest nesting of arrays and maps that is decoded. Deeper values
+   * are rejected rather than overflowing the stack.
+   */
+  private static final int MAX_DEPTH = 512;
+
+  private byte[] bytes = new byte[256];
+
+  private int length;
+
+  private MessagePackCodec() {
+  }
+
+  /**
+   * Indicates whether a buffer holds a value encoded by this codec.
+   */
+  public static boolean isEncoded(Buffer buffer) {
+    if (buffer.length() < PREFIX.length) {
+      return false;
+    }
+    for (int i = 0; i < PREFIX.length; i++) {
+      if (buffer.getByte(i) != PREFIX[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Encodes a PHP value.
+   */
+  public static Buffer encode(Env env, Value value) {
+    MessagePackCodec codec = new MessagePackCodec();
+    codec.writeBytes(PREFIX, 0, PREFIX.length);
+    codec.write(env, value);
+    Buffer buffer = new Buffer(codec.length);
+    buffer.getByteBuf().writeBytes(codec.bytes, 0, codec.length);
+    return buffer;
+  }
+
+  /**
+   * Decodes a PHP value from a buffer for which isEncoded() is true.
+   *
+   * @throws IOException If the buffer does not hold a valid value, or
+   *           holds arrays nested too deeply to decode.
+   */
+  public static Value decode(Env env, Buffer buffer) throws IOException {
+    ByteBuf buf = buffer.getByteBuf();
+    byte[] bytes;
+    int offset;
+    if (buf.hasArray()) {
+      bytes = buf.array();
+      offset = buf.arrayOffset();
+    }
+    else {
+      bytes = buffer.getBytes();
+      offset = 0;
+    }
+    Reader reader = new Reader(env, bytes, offset + PREFIX.length, offset + buffer.length());
+    Value value = reader.read();
+    if (reader.position != reader.end) {
+      throw new IOException("Unexpected content after MessagePack value");
+    }
+    return value;
+  }
+
+  private void write(Env env, Value value) {
+    if (value == null || value.isNull()) {
+      writeByte(0xc0);
+    }
+    else if (value.isArray()) {
+      writeArray(env, value);
+    }
+    else if (value.isBoolean()) {
+      writeByte(value.toBoolean() ? 0xc3 : 0xc2);
+    }
+    else if (value.isLong()) {
+      writeLong(value.toLong());
+    }
+    else if (value.isDouble()) {
+      writeByte(0xcb);
+      writeLong64(Double.doubleToLongBits(value.toDouble()));
+    }
+    else if (value.isString()) {
+      writeString(value.toStringValue(env));
+    }
+    else if (value.isObject() && value.toJavaObject() instanceof io.vertx.lang.php.buffer.Buffer) {
+      writeBinary(((io.vertx.lang.php.buffer.Buffer) value.toJavaObject()).__toVertxBuffer());
+    }
+    else {
+      writeString(value.toStringValue(env));
+    }
+  }
+
+  private void writeArray(Env env, Value array) {
+    int start = length;
+    int size = array.getSize();
+    writeHeader(size, 0x90, 0xdc, 0xdd);
+    long index = 0;
+    Iterator<Map.Entry<Value, Value>> iter = array.getIterator(env);
+    while (iter.hasNext()) {
+      Map.Entry<Value, Value> entry = iter.next();
+      Value key = entry.getKey();
+      if (!key.isLong() || key.toLong() != index) {
+        length = start;
+        writeMap(env, array, size);
+        return;
+      }
+      write(env, entry.getValue());
+      index++;
+    }
+  }
+
+  private void writeMap(Env env, Value array, int size) {
+    writeHeader(size, 0x80, 0xde, 0xdf);
+    Iterator<Map.Entry<Value, Value>> iter = array.getIterator(env);
+    while (iter.hasNext()) {
+      Map.Entry<Value, Value> entry = iter.next();
+      Value key = entry.getKey();
+      if (key.isLong()) {
+        writeLong(key.toLong());
+      }
+      else {
+        writeString(key.toStringValue(env));
+      }
+      write(env, entry.getValue());
+    }
+  }
+
+  private void writeHeader(int size, int fix, int code16, int code32) {
+    if (size < 16) {
+      writeByte(fix | size);
+    }
+    else if (size < 0x10000) {
+      writeByte(code16);
+      writeShort(size);
+    }
+    else {
+      writeByte(code32);
+      writeInt(size);
+    }
+  }
+
+  private void writeLong(long value) {
+    if (value >= -32 && value < 128) {
+      writeByte((int) value);
+    }
+    else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      writeByte(0xd0);
+      writeByte((int) value);
+    }
+    else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+      writeByte(0xd1);
+      writeShort((int) value);
+    }
+    else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      writeByte(0xd2);
+      writeInt((int) value);
+    }
+    else {
+      writeByte(0xd3);
+      writeLong64(value);
+    }
+  }
+
+  private void writeString(StringValue value) {
+    byte[] data;
+    int size;
+    if (value.isUnicode()) {
+      data = value.toString().getBytes(StandardCharsets.UTF_8);
+      size = data.length;
+    }
+    else {
+      size = value.length();
+      data = null;
+    }
+
+    if (size < 32) {
+      writeByte(0xa0 | size);
+    }
+    else if (size < 0x100) {
+      writeByte(0xd9);
+      writeByte(size);
+    }
+    else if (size < 0x10000) {
+      writeByte(0xda);
+      writeShort(size);
+    }
+    else {
+      writeByte(0xdb);
+      writeInt(size);
+    }
+
+    if (data != null) {
+      writeBytes(data, 0, size);
+    }
+    else {
+      // Quercus holds byte strings as chars of at most 0xff.
+      ensure(size);
+      for (int i = 0; i < size; i++) {
+        bytes[length++] = (byte) value.charAt(i);
+      }
+    }
+  }
+
+  private void writeBinary(Buffer buffer) {
+    int size = buffer.length();
+    if (size < 0x100) {
+      writeByte(0xc4);
+      writeByte(size);
+    }
+    else if (size < 0x10000) {
+      writeByte(0xc5);
+      writeShort(size);
+    }
+    else {
+      writeByte(0xc6);
+      writeInt(size);
+    }
+    ensure(size);
+    buffer.getByteBuf().getBytes(0, bytes, length, size);
+    length += size;
+  }
+
+  private void writeByte(int value) {
+    ensure(1);
+    bytes[length++] = (byte) value;
+  }
+
+  private void writeShort(int value) {
+    ensure(2);
+    bytes[length++] = (byte) (value >> 8);
+    bytes[length++] = (byte) value;
+  }
+
+  private void writeInt(int value) {
+    ensure(4);
+    bytes[length++] = (byte) (value >> 24);
+    bytes[length++] = (byte) (value >> 16);
+    bytes[length++] = (byte) (value >> 8);
+    bytes[length++] = (byte) value;
+  }
+
+  private void writeLong64(long value) {
+    writeInt((int) (value >> 32));
+    writeInt((int) value);
+  }
+
+  private void writeBytes(byte[] data, int offset, int size) {
+    ensure(size);
+    System.arraycopy(data, offset, bytes, length, size);
+    length += size;
+  }
+
+  private void ensure(int size) {
+    if (length + size > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, length + size));
+    }
+  }
+
+  /**
+   * Reads MessagePack values from a byte array.
+   */
+  private static final class Reader {
+
+    private final Env env;
+
+    private final KeyInternTable keys;
+
+    private final byte[] bytes;
+
+    private int position;
+
+    private final int end;
+
+    private int depth;
+
+    private Reader(Env env, byte[] bytes, int position, int end) {
+      this.env = env;
+      this.keys = KeyInternTable.get(env);
+      this.bytes = bytes;
+      this.position = position;
+      this.end = end;
+    }
+
+    private Value read() throws IOException {
+      int code = readByte();
+      if (code <= 0x7f) {
+        return LongValue.create(code);
+      }
+      else if (code >= 0xe0) {
+        return LongValue.create((byte) code);
+      }
+      else if (code <= 0x8f) {
+        return readMap(code & 0x0f);
+      }
+      else if (code <= 0x9f) {
+        return readArray(code & 0x0f);
+      }
+      else if (code <= 0xbf) {
+        return readString(code & 0x1f);
+      }
+
+      switch (code) {
+        case 0xc0:
+          return NullValue.NULL;
+        case 0xc2:
+          return BooleanValue.FALSE;
+        case 0xc3:
+          return BooleanValue.TRUE;
+        case 0xc4:
+          return readBinary(readByte());
+        case 0xc5:
+          return readBinary(readShort());
+        case 0xc6:
+          return readBinary(readSize());
+        case 0xca:
+          return DoubleValue.create(Float.intBitsToFloat(readInt()));
+        case 0xcb:
+          return DoubleValue.create(Double.longBitsToDouble(readLong()));
+        case 0xcc:
+          return LongValue.create(readByte());
+        case 0xcd:
+          return LongValue.create(readShort());
+        case 0xce:
+          return LongValue.create(readInt() & 0xffffffffL);
+        case 0xcf:
+          long unsigned = readLong();
+          if (unsigned < 0) {
+            // Does not fit a PHP integer.
+            return DoubleValue.create((unsigned >>> 1) * 2.0 + (unsigned & 1));
+          }
+          return LongValue.create(unsigned);
+        case 0xd0:
+          return LongValue.create((byte) readByte());
+        case 0xd1:
+          return LongValue.create((short) readShort());
+        case 0xd2:
+          return LongValue.create(readInt());
+        case 0xd3:
+          return LongValue.create(readLong());
+        case 0xd9:
+          return readString(readByte());
+        case 0xda:
+          return readString(readShort());
+        case 0xdb:
+          return readString(readSize());
+        case 0xdc:
+          return readArray(readShort());
+        case 0xdd:
+          return readArray(readSize());
+        case 0xde:
+          return readMap(readShort());
+        case 0xdf:
+          return readMap(readSize());
+        default:
+          throw new IOException("Unsupported MessagePack type 0x" + Integer.toHexString(code));
+      }
+    }
+
+    private ArrayValue readArray(int size) throws IOException {
+      enter();
+      ArrayValue array = new ArrayValueImpl();
+      for (int i = 0; i < size; i++) {
+        array.put(read());
+      }
+      depth--;
+      return array;
+    }
+
+    private ArrayValue readMap(int size) throws IOException {
+      enter();
+      ArrayValue array = new ArrayValueImpl();
+      for (int i = 0; i < size; i++) {
+        Value key = readKey();
+        array.put(key, read());
+      }
+      depth--;
+      return array;
+    }
+
+    private void enter() throws IOException {
+      if (++depth > MAX_DEPTH) {
+        throw new IOException("MessagePack value nested deeper than " + MAX_DEPTH + " levels");
+      }
+    }
+
+    /**
+     * Reads a map key, sharing the strings of short string keys.
+     */
+    private Value readKey() throws IOException {
+      require(1);
+      int code = bytes[position] & 0xff;
+      if (code >= 0xa0 && code <= 0xbf && keys != null) {
+        int size = code & 0x1f;
+        position++;
+        require(size);
+        StringValue key = keys.intern(new String(bytes, position, size, StandardCharsets.ISO_8859_1));
+        if (key != null) {
+          position += size;
+          return key;
+        }
+        position--;
+      }
+      return read();
+    }
+
+    private Value readString(int size) throws IOException {
+      require(size);
+      StringValue value;
+      if (env.isUnicodeSemantics()) {
+        value = env.createString(new String(bytes, position, size, StandardCharsets.UTF_8));
+      }
+      else {
+        value = env.createString(bytes, position, size);
+      }
+      position += size;
+      return value;
+    }
+
+    private Value readBinary(int size) throws IOException {
+      require(size);
+      Buffer buffer = new Buffer(size);
+      buffer.getByteBuf().writeBytes(bytes, position, size);
+      position += size;
+      return env.wrapJava(new io.vertx.lang.php.buffer.Buffer(buffer));
+    }
+
+    private int readByte() throws IOException {
+      require(1);
+      return bytes[position++] & 0xff;
+    }
+
+    private int readShort() throws IOException {
+      return (readByte() << 8) | readByte();
+    }
+
+    private int readInt() throws IOException {
+      return (readShort() << 16) | readShort();
+    }
+
+    private int readSize() throws IOException {
+      int size = readInt();
+      if (size < 0) {
+        throw new IOException("MessagePack length too large");
+      }
+      return size;
+    }
+
+    private long readLong() throws IOException {
+      return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+    }
+
+    private void require(int size) throws IOException {
+      if (size > end - position) {
+        throw new EOFException("Truncated MessagePack value");
+      }
+    }
+
+  }
+
+}
@@ -15,6 +15,8 @@
  */
 package io.vertx.lang.php.util;
 
+import io.vertx.lang.php.MethodCallback;
+
 import java.util.Iterator;
 import java.util.Map;
 
@@ -24,8 +26,13 @@ import org.vertx.java.core.json.JsonObject;
 import com.caucho.quercus.Location;
 import com.caucho.quercus.env.ArrayValue;
 import com.caucho.quercus.env.ArrayValueImpl;
+import com.caucho.quercus.env.BooleanValue;
 import com.caucho.quercus.env.Callable;
+import com.caucho.quercus.env.DoubleValue;
 import com.caucho.quercus.env.Env;
+import com.caucho.quercus.env.LongValue;
+import com.caucho.quercus.env.NullValue;
+import com.caucho.quercus.env.StringValue;
 import com.caucho.quercus.env.Value;
 
 /**
@@ -225,6 +232,32 @@ public class PhpTypes {
     return value.toCallable(env, isOptional);
   }
 
+  /**
+   * Converts a PHP value to a callable, reporting an error if the value
+   * is not callable.
+   *
+   * This resolves the value only once, whereas assertCallable() followed
+   * by toCallable() resolves it twice. Method callbacks are resolved to
+   * their method, so that calling them does not look the method up again.
+   */
+  public static Callable resolveCallable(Env env, Value value) {
+    return PhpTypes.resolveCallable(env, value, "Object is not callable.");
+  }
+
+  /**
+   * Converts a PHP value to a callable, reporting an error if the value
+   * is not callable.
+   */
+  public static Callable resolveCallable(Env env, Value value, String message, Object... args) {
+    Callable callable = PhpTypes.notNull(value) ? value.toCallable(env, true) : null;
+    if (callable == null || !callable.isValid(env)) {
+      env.error(PhpTypes.buildErrorMessage(env, message, args));
+      return callable;
+    }
+    Callable method = MethodCallback.resolve(env, value, callable);
+    return method != null ? method : callable;
+  }
+
   /**
    * Asserts that a value is a boolean.
    */
@@ -304,34 +337,43 @@ public class PhpTypes {
    * @return A populated JsonObject instance.
    */
   public static JsonObject arrayToJsonObject(Env env, Value array) {
+    if (array instanceof LazyJsonArrayValue) {
+      // Arrays received as JSON and not modified since are sent as they are.
+      JsonObject received = ((LazyJsonArrayValue) array).getJsonObject();
+      if (received != null) {
+        return received;
+      }
+    }
+
     JsonObject json = new JsonObject();
-    Iterator<Value> iter = array.getKeyIterator(env);
+    Iterator<Map.Entry<Value, Value>> iter = array.getIterator(env);
     while (iter.hasNext()) {
-      Value key = iter.next();
-      Value value = array.get(key);
+      Map.Entry<Value, Value> entry = iter.next();
+      String key = entry.getKey().toString();
+      Value value = entry.getValue();
       if (value.isArray()) {
-        // Determine whether this is an associative array.
-        if (PhpTypes.arrayIsAssoc(env, value)) {
-          json.putObject(key.toString(), PhpTypes.arrayToJsonObject(env, value));
+        Object nested = PhpTypes.arrayToJsonValue(env, value);
+        if (nested instanceof JsonObject) {
+          json.putObject(key, (JsonObject) nested);
         }
         else {
-          json.putArray(key.toString(), PhpTypes.arrayToJsonArray(env, value));
+          json.putArray(key, (JsonArray) nested);
         }
       }
       else if (value.isBoolean()) {
-        json.putBoolean(key.toString(), value.toBoolean());
+        json.putBoolean(key, value.toBoolean());
       }
-      else if (value.isDouble()) {
-        json.putNumber(key.toString(), value.toJavaDouble());
+      else if (value.isLong()) {
+        json.putNumber(key, value.toLong());
       }
-      else if (value.isNumeric()) {
-        json.putNumber(key.toString(), value.toInt());
+      else if (value.isDouble()) {
+        json.putNumber(key, value.toDouble());
       }
       else if (value.isString()) {
-        json.putString(key.toString(), value.toString());
+        json.putString(key, value.toString());
       }
       else {
-        json.putValue(key.toString(), value.toJavaObject());
+        json.putValue(key, value.toJavaObject());
       }
     }
     return json;
@@ -348,46 +390,71 @@ public class PhpTypes {
     JsonArray json = new JsonArray();
     Iterator<Value> iter = array.getValueIterator(env);
     while (iter.hasNext()) {
-      Value value = iter.next();
-      if (value.isArray()) {
-        if (PhpTypes.arrayIsAssoc(env, value)) {
-          json.addObject(PhpTypes.arrayToJsonObject(env, value));
-        }
-        else {
-          json.addArray(PhpTypes.arrayToJsonArray(env, value));
-        }
-      }
-      else if (value.isBoolean()) {
-        json.addBoolean(value.toBoolean());
-      }
-      else if (value.isDouble()) {
-        json.addNumber(value.toJavaDouble());
-      }
-      else if (value.isNumeric()) {
-        json.addNumber(value.toInt());
+      PhpTypes.addToJsonArray(env, json, iter.next());
+    }
+    return json;
+  }
+
+  /**
+   * Converts a nested PHP array to either a JsonObject or a JsonArray,
+   * depending on whether it has any string keys.
+   *
+   * The array is speculatively converted to a JsonArray. If a string key
+   * is found, the partial JsonArray is discarded and the array converted
+   * to a JsonObject instead, so arrays are iterated once unless they mix
+   * integer and string keys.
+   */
+  private static Object arrayToJsonValue(Env env, Value array) {
+    if (array instanceof LazyJsonArrayValue) {
+      LazyJsonArrayValue received = (LazyJsonArrayValue) array;
+      if (received.getJsonObject() != null) {
+        return received.getJsonObject();
       }
-      else if (value.isString()) {
-        json.addString(value.toString());
+      else if (received.getJsonArray() != null) {
+        return received.getJsonArray();
       }
-      else {
-        json.add(value.toJavaObject());
+    }
+
+    JsonArray json = new JsonArray();
+    Iterator<Map.Entry<Value, Value>> iter = array.getIterator(env);
+    while (iter.hasNext()) {
+      Map.Entry<Value, Value> entry = iter.next();
+      if (entry.getKey().isString()) {
+        return PhpTypes.arrayToJsonObject(env, array);
       }
+      PhpTypes.addToJsonArray(env, json, entry.getValue());
     }
     return json;
   }
 
   /**
-   * Determines whether a PHP array is associative by looking at the keys.
+   * Adds a PHP value to a JSON array.
    */
-  private static boolean arrayIsAssoc(Env env, Value array) {
-    Iterator<Value> iter = array.getKeyIterator(env);
-    while (iter.hasNext()) {
-      Value key = iter.next();
-      if (key.isString() || key.isBoolean()) {
-        return true;
+  private static void addToJsonArray(Env env, JsonArray json, Value value) {
+    if (value.isArray()) {
+      Object nested = PhpTypes.arrayToJsonValue(env, value);
+      if (nested instanceof JsonObject) {
+        json.addObject((JsonObject) nested);
+      }
+      else {
+        json.addArray((JsonArray) nested);
       }
     }
-    return false;
+    else if (value.isBoolean()) {
+      json.addBoolean(value.toBoolean());
+    }
+    else if (value.isLong()) {
+      json.addNumber(value.toLong());
+    }
+    else if (value.isDouble()) {
+      json.addNumber(value.toDouble());
+    }
+    else if (value.isString()) {
+      json.addString(value.toString());
+    }
+    else {
+      json.add(value.toJavaObject());
+    }
   }
 
   /**
@@ -398,20 +465,22 @@ public class PhpTypes {
    * @return A populated PHP array.
    */
   public static ArrayValue arrayFromJson(Env env, JsonObject json) {
+    return PhpTypes.arrayFromJson(env, json, KeyInternTable.get(env));
+  }
+
+  private static ArrayValue arrayFromJson(Env env, JsonObject json, KeyInternTable keys) {
     ArrayValue result = new ArrayValueImpl();
-    Map<String, Object> map = json.toMap();
-    Iterator<String> iter = map.keySet().iterator();
-    while (iter.hasNext()) {
-      String key = iter.next();
-      Object value = map.get(key);
+    // Fields are read in place, since JsonObject.toMap() copies the whole tree.
+    for (String key : json.getFieldNames()) {
+      Object value = json.getField(key);
       if (value instanceof JsonObject) {
-        result.put(env.createString(key), PhpTypes.arrayFromJson(env, (JsonObject) value));;
+        result.put(PhpTypes.keyFromJson(env, keys, key), PhpTypes.arrayFromJson(env, (JsonObject) value, keys));
       }
       else if (value instanceof JsonArray) {
-        result.put(env.createString(key), PhpTypes.arrayFromJson(env, (JsonArray) value));;
+        result.put(PhpTypes.keyFromJson(env, keys, key), PhpTypes.arrayFromJson(env, (JsonArray) value, keys));
       }
       else {
-        result.put(env.createString(key), env.wrapJava(value));
+        result.put(PhpTypes.keyFromJson(env, keys, key), PhpTypes.valueFromJson(env, value));
       }
     }
     return result;
@@ -425,21 +494,77 @@ public class PhpTypes {
    * @return A populated PHP array.
    */
   public static ArrayValue arrayFromJson(Env env, JsonArray json) {
+    return PhpTypes.arrayFromJson(env, json, KeyInternTable.get(env));
+  }
+
+  private static ArrayValue arrayFromJson(Env env, JsonArray json, KeyInternTable keys) {
     ArrayValue result = new ArrayValueImpl();
     Iterator<Object> iter = json.iterator();
     while (iter.hasNext()) {
       Object value = iter.next();
       if (value instanceof JsonObject) {
-        result.put(PhpTypes.arrayFromJson(env, (JsonObject) value));
+        result.put(PhpTypes.arrayFromJson(env, (JsonObject) value, keys));
       }
       else if (value instanceof JsonArray) {
-        result.put(PhpTypes.arrayFromJson(env, (JsonArray) value));
+        result.put(PhpTypes.arrayFromJson(env, (JsonArray) value, keys));
       }
       else {
-        result.put(env.wrapJava(iter.next()));
+        result.put(PhpTypes.valueFromJson(env, value));
       }
     }
     return result;
   }
 
+  /**
+   * Converts the key of a JSON object field to a PHP string.
+   *
+   * @param env The Quercus environment.
+   * @param keys The key intern table, or null if keys are not interned.
+   * @param key The field name.
+   * @return The shared string for the key if it is interned, or a new string.
+   */
+  public static StringValue keyFromJson(Env env, KeyInternTable keys, String key) {
+    StringValue value = keys != null ? keys.intern(key) : null;
+    return value != null ? value : env.createString(key);
+  }
+
+  /**
+   * Converts a scalar JSON value to a PHP value.
+   *
+   * The types Vert.x JSON holds are tested in order of how common they
+   * are, and PHP values created for them directly, so that Quercus does
+   * not look up a marshaller for every value. Booleans and null map to
+   * shared constants, and LongValue.create() returns shared instances for
+   * small integers. Anything else falls back to Quercus' marshalling.
+   *
+   * @param env The Quercus environment.
+   * @param value A string, number, boolean or null.
+   * @return The PHP value.
+   */
+  public static Value valueFromJson(Env env, Object value) {
+    if (value instanceof String) {
+      return env.createString((String) value);
+    }
+    else if (value instanceof Integer || value instanceof Long) {
+      return LongValue.create(((Number) value).longValue());
+    }
+    else if (value instanceof Double || value instanceof Float) {
+      return DoubleValue.create(((Number) value).doubleValue());
+    }
+    else if (value instanceof Boolean) {
+      return ((Boolean) value).booleanValue() ? BooleanValue.TRUE : BooleanValue.FALSE;
+    }
+    else if (value == null) {
+      return NullValue.NULL;
+    }
+    else if (value instanceof Short || value instanceof Byte) {
+      return LongValue.create(((Number) value).longValue());
+    }
+    else if (value instanceof Number) {
+      // Big integers and decimals, which do not fit a PHP integer.
+      return DoubleValue.create(((Number) value).doubleValue());
+    }
+    return env.wrapJava(value);
+  }
+
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.vertx.lang.php.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free counter for values updated from many threads.
+ *
+ * Each thread updates one of several cells, chosen by its thread ID,
+ * so that event loop threads counting the same events rarely contend.
+ * Cells are padded to separate cache lines. Reading the counter sums
+ * all cells.
+ *
+ * A counter may hold several values that are updated together, such as
+ * the buckets of a histogram. Each stripe then holds all of the values,
+ * so that a thread updating several of them touches its own cache lines
+ * only.
+ *
+ * @author Jordan Halterman
+ */
+public class StripedCounter {
+
+  /**
+   * The number of longs between two cells, so that each cell is on a
+   * cache line of its own.
+   */
+  private static final int PADDING = 8;
+
+  private static final int STRIPES = stripes();
+
+  /**
+   * The number of longs in a stripe.
+   */
+  private final int stripeSize;
+
+  private final AtomicLongArray cells;
+
+  public StripedCounter() {
+    this(1);
+  }
+
+  /**
+   * Creates a counter holding several values.
+   *
+   * @param values The number of values.
+   */
+  public StripedCounter(int values) {
+    stripeSize = (values + PADDING - 1) / PADDING * PADDING;
+    cells = new AtomicLongArray(STRIPES * stripeSize);
+  }
+
+  /**
+   * Returns the smallest power of two of at least twice the number of processors.
+   */
+  private static int stripes() {
+    int target = Runtime.getRuntime().availableProcessors() * 2;
+    int stripes = 1;
+    while (stripes < target) {
+      stripes <<= 1;
+    }
+    return stripes;
+  }
+
+  /**
+   * Increments the counter by one.
+   */
+  public void increment() {
+    increment(0);
+  }
+
+  /**
+   * Increments a value of the counter by one.
+   */
+  public void increment(int value) {
+    cells.incrementAndGet(cell(value));
+  }
+
+  /**
+   * Adds a value to the counter.
+   */
+  public void add(long value) {
+    add(0, value);
+  }
+
+  /**
+   * Adds to a value of the counter.
+   */
+  public void add(int value, long delta) {
+    cells.addAndGet(cell(value), delta);
+  }
+
+  /**
+   * Raises a value of the counter to at least the given amount.
+   *
+   * Each stripe keeps its own maximum, so threads only compete for the
+   * update with the threads that share their stripe.
+   */
+  public void max(int value, long amount) {
+    int cell = cell(value);
+    long current = cells.get(cell);
+    while (amount > current && !cells.compareAndSet(cell, current, amount)) {
+      current = cells.get(cell);
+    }
+  }
+
+  /**
+   * Returns the current value of the counter.
+   */
+  public long get() {
+    return get(0);
+  }
+
+  /**
+   * Returns the current sum of a value of the counter.
+   */
+  public long get(int value) {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += cells.get(i * stripeSize + value);
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the maximum of a value raised with max().
+   */
+  public long getMax(int value) {
+    long max = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      max = Math.max(max, cells.get(i * stripeSize + value));
+    }
+    return max;
+  }
+
+  private int cell(int value) {
+    return ((int) Thread.currentThread().getId() & (STRIPES - 1)) * stripeSize + value;
+  }
+
+}
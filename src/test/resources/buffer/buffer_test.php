@@ -134,6 +134,45 @@ class BufferTestCase extends PhpTestCase {
     $this->complete();
   }
 
+
+  /**
+   * Tests appending a JSON encoded array.
+   */
+  public function testAppendJson() {
+    $buffer = new Buffer();
+    $buffer->appendJson(array('name' => "a \"b\"", 'list' => array(1, 2.5, TRUE, NULL), 'empty' => array()));
+    $this->assertEquals($buffer->toString(), '{"name":"a \\"b\\"","list":[1,2.5,true,null],"empty":[]}');
+    $this->assertEquals(json_decode($buffer->toString(), TRUE), array('name' => 'a "b"', 'list' => array(1, 2.5, TRUE, NULL), 'empty' => array()));
+    $this->complete();
+  }
+
+
+  /**
+   * Tests decoding a JSON buffer.
+   */
+  public function testDecodeJson() {
+    $buffer = new Buffer('{"name":"foo","list":[1,2.5,true,null],"child":{"id":9007199254740993}}');
+    $data = $buffer->decodeJson();
+    $this->assertEquals($data['name'], 'foo');
+    $this->assertEquals($data['list'], array(1, 2.5, TRUE, NULL));
+    $this->assertEquals($data['child']['id'], 9007199254740993);
+    $buffer = new Buffer();
+    $buffer->appendJson($data);
+    $this->assertEquals($buffer->decodeJson(), $data);
+    $this->complete();
+  }
+
+  /**
+   * Tests decoding JSON nested too deeply to read.
+   */
+  public function testDecodeJsonTooDeep() {
+    $buffer = new Buffer(str_repeat('[', 512) . str_repeat(']', 512));
+    $this->assertTrue(is_array($buffer->decodeJson()));
+    $buffer = new Buffer(str_repeat('[', 100000) . str_repeat(']', 100000));
+    $this->assertNull(@$buffer->decodeJson());
+    $this->complete();
+  }
+
 }
 
 TestRunner::run(new BufferTestCase());
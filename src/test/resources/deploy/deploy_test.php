@@ -75,6 +75,24 @@ class DeployTestCase extends PhpTestCase {
     });
   }
 
+  /**
+   * Tests that undeploying a verticle calls its vertx_stop() function.
+   */
+  public function testUndeployStop() {
+    $this->eventBus->registerHandler(self::TEST_ADDRESS, function($message) {
+      if ($message->body == 'stopped') {
+        $this->complete();
+      }
+    });
+
+    Vertx::deployVerticle('child3.php', NULL, 1, function($id, $error) {
+      $this->assertNull($error);
+      Vertx::undeployVerticle($id, function($error) {
+        $this->assertNull($error);
+      });
+    });
+  }
+
   /**
    * Tests failing a verticle deploy.
    */
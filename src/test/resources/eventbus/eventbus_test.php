@@ -31,6 +31,8 @@ class EventBusTestCase extends PhpTestCase {
 
   const TEST_ADDRESS = 'test-address';
 
+  const MSGPACK_ADDRESS = 'test-address-msgpack';
+
   private static $jsonMessage = array(
     'message' => 'Hello world!',
   );
@@ -224,6 +226,20 @@ class EventBusTestCase extends PhpTestCase {
     $this->doEcho(1.2345);
   }
 
+  /**
+   * Tests echoing a number which does not fit in 32 bits.
+   */
+  public function testEchoLong() {
+    $this->doEcho(9007199254740993);
+  }
+
+  /**
+   * Tests echoing an array of longs and floats.
+   */
+  public function testEchoNumbers() {
+    $this->doEcho(array('long' => 9007199254740993, 'double' => 1.5, 'list' => array(2.25, 4294967296)));
+  }
+
   /**
    * Tests echoing a boolean true.
    */
@@ -259,6 +275,138 @@ class EventBusTestCase extends PhpTestCase {
     $this->doEcho(array('a' => 'b', 'c' => array('d', 'e')));
   }
 
+  /**
+   * Tests echoing an array on an address that uses MessagePack.
+   */
+  public function testEchoMsgpack() {
+    $message = array(3 => 'three', 'a' => array(1, 2.5, TRUE, NULL), 'long' => 9007199254740993);
+    $this->eventBus->setCodec(self::MSGPACK_ADDRESS, 'msgpack');
+    $this->currentHandlerId = $this->eventBus->registerHandler(self::MSGPACK_ADDRESS, function($echo) {
+      $this->assertEquals($echo->body[3], 'three');
+      $echo->reply($echo->body);
+    });
+
+    $this->eventBus->send(self::MSGPACK_ADDRESS, $message, function($reply) use ($message) {
+      $this->assertEqualsRecursive($message, $reply->body);
+      $this->assertEquals($reply->body[3], 'three');
+      $this->eventBus->unregisterHandler($this->currentHandlerId);
+      $this->eventBus->setCodec(self::MSGPACK_ADDRESS, 'json');
+      $this->complete();
+    });
+  }
+
+  /**
+   * Tests sending a single array packed as MessagePack.
+   */
+  public function testSendPacked() {
+    $this->currentHandlerId = $this->eventBus->registerHandler(self::TEST_ADDRESS, function($message) {
+      $this->assertEqualsRecursive(array('foo' => 'bar', 'baz' => array(1, 2)), $message->body);
+      $this->eventBus->unregisterHandler($this->currentHandlerId);
+      $this->complete();
+    });
+
+    $this->eventBus->send(self::TEST_ADDRESS, $this->eventBus->pack(array('foo' => 'bar', 'baz' => array(1, 2))));
+  }
+
+  /**
+   * Tests modifying a received array before replying with it.
+   */
+  public function testReplyModified() {
+    $this->currentHandlerId = $this->eventBus->registerHandler(self::TEST_ADDRESS, function($message) {
+      $body = $message->body;
+      $this->assertEquals(count($body), 2);
+      $this->assertEquals($body['b']['c'], 'd');
+      $body['b']['c'] = 'e';
+      $body['f'] = 'g';
+      $this->assertEquals($message->body['b']['c'], 'd');
+      $message->reply($body);
+    });
+
+    $this->eventBus->send(self::TEST_ADDRESS, array('a' => 1, 'b' => array('c' => 'd')), function($reply) {
+      $this->assertEqualsRecursive(array('a' => 1, 'b' => array('c' => 'e'), 'f' => 'g'), $reply->body);
+      $this->eventBus->unregisterHandler($this->currentHandlerId);
+      $this->complete();
+    });
+  }
+
+  /**
+   * Tests iterating over a received array with foreach.
+   */
+  public function testReceivedForeach() {
+    $this->currentHandlerId = $this->eventBus->registerHandler(self::TEST_ADDRESS, function($message) {
+      $keys = array();
+      $values = array();
+      foreach ($message->body as $key => $value) {
+        $keys[] = $key;
+        $values[] = $value;
+      }
+      $this->assertEqualsRecursive(array('a', 'b', 'c'), $keys);
+      $this->assertEqualsRecursive(array(1, 2, 3), $values);
+      $this->eventBus->unregisterHandler($this->currentHandlerId);
+      $this->complete();
+    });
+
+    $this->eventBus->send(self::TEST_ADDRESS, array('a' => 1, 'b' => 2, 'c' => 3));
+  }
+
+  /**
+   * Tests reading the keys and values of a received array.
+   */
+  public function testReceivedKeysAndValues() {
+    $this->currentHandlerId = $this->eventBus->registerHandler(self::TEST_ADDRESS, function($message) {
+      $this->assertEqualsRecursive(array('a', 'b', 'c'), array_keys($message->body));
+      $this->assertEqualsRecursive(array(1, 2, 3), array_values($message->body));
+      $this->eventBus->unregisterHandler($this->currentHandlerId);
+      $this->complete();
+    });
+
+    $this->eventBus->send(self::TEST_ADDRESS, array('a' => 1, 'b' => 2, 'c' => 3));
+  }
+
+  /**
+   * Tests popping the last element of a received array.
+   */
+  public function testReceivedPop() {
+    $this->currentHandlerId = $this->eventBus->registerHandler(self::TEST_ADDRESS, function($message) {
+      $body = $message->body;
+      $this->assertEquals(array_pop($body), 3);
+      $this->assertEquals(count($body), 2);
+      $this->assertEqualsRecursive(array('a' => 1, 'b' => 2), $body);
+      $this->assertEquals(count($message->body), 3);
+      $this->eventBus->unregisterHandler($this->currentHandlerId);
+      $this->complete();
+    });
+
+    $this->eventBus->send(self::TEST_ADDRESS, array('a' => 1, 'b' => 2, 'c' => 3));
+  }
+
+  /**
+   * Tests searching a received array for a value.
+   */
+  public function testReceivedInArray() {
+    $this->currentHandlerId = $this->eventBus->registerHandler(self::TEST_ADDRESS, function($message) {
+      $this->assertTrue(in_array('bar', $message->body['list']));
+      $this->assertFalse(in_array('qux', $message->body['list']));
+      $this->eventBus->unregisterHandler($this->currentHandlerId);
+      $this->complete();
+    });
+
+    $this->eventBus->send(self::TEST_ADDRESS, array('list' => array('foo', 'bar', 'baz')));
+  }
+
+  /**
+   * Tests encoding a received array as JSON.
+   */
+  public function testReceivedJsonEncode() {
+    $this->currentHandlerId = $this->eventBus->registerHandler(self::TEST_ADDRESS, function($message) {
+      $this->assertEqualsRecursive(array('a' => 1, 'b' => array('c' => 'd'), 'e' => array(1, 2)), json_decode(json_encode($message->body), TRUE));
+      $this->eventBus->unregisterHandler($this->currentHandlerId);
+      $this->complete();
+    });
+
+    $this->eventBus->send(self::TEST_ADDRESS, array('a' => 1, 'b' => array('c' => 'd'), 'e' => array(1, 2)));
+  }
+
   public function testPrintInHandlerCallbackClosure() {
     $this->currentHandlerId = $this->eventBus->registerHandler(self::TEST_ADDRESS, function($echo) use($complete) {
       try {
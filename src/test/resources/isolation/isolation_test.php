@@ -0,0 +1,110 @@
+<?php
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+use Vertx\Test\TestRunner;
+use Vertx\Test\PhpTestCase;
+
+/**
+ * A Quercus context isolation test case.
+ */
+class IsolationTestCase extends PhpTestCase {
+
+  const MESSAGES = 8;
+
+  /**
+   * Tests that modules isolated by thread run a runtime per thread.
+   */
+  public function testThreadIsolation() {
+    $this->deploy('io.vertx~php-threadtest-mod~v1.0', 4, function() {
+      $own = Vertx::runtimeStats();
+      $runtimes = array();
+      $replies = 0;
+      $messages = self::MESSAGES;
+      for ($i = 0; $i < $messages; $i++) {
+        Vertx::eventBus()->send('test.isolation.thread', 'runtime', function($reply) use ($own, $messages, &$runtimes, &$replies) {
+          $thread = $reply->body['thread'];
+          $runtime = $reply->body['runtime'];
+          $this->assertNotEquals($own['runtime'], $runtime);
+          if (isset($runtimes[$thread])) {
+            $this->assertEquals($runtimes[$thread], $runtime);
+          }
+          $runtimes[$thread] = $runtime;
+          if (++$replies == $messages) {
+            $this->assertEquals(count($runtimes), count(array_unique($runtimes)));
+            $this->complete();
+          }
+        });
+      }
+    });
+  }
+
+  /**
+   * Tests that modules isolated by platform share a single runtime.
+   */
+  public function testPlatformIsolation() {
+    $this->deploy('io.vertx~php-platformtest-a~v1.0', 1, function() {
+      $this->deploy('io.vertx~php-platformtest-b~v1.0', 1, function() {
+        $own = Vertx::runtimeStats();
+        Vertx::eventBus()->send('test.isolation.platform.a', 'runtime', function($a) use ($own) {
+          Vertx::eventBus()->send('test.isolation.platform.b', 'runtime', function($b) use ($own, $a) {
+            $this->assertEquals($a->body['runtime'], $b->body['runtime']);
+            $this->assertNotEquals($own['runtime'], $a->body['runtime']);
+            $this->complete();
+          });
+        });
+      });
+    });
+  }
+
+  /**
+   * Deploys a test module.
+   */
+  private function deploy($module, $instances, $handler) {
+    Vertx::deployModule($module, NULL, $instances, function($id, $error) use ($handler) {
+      $this->assertNull($error);
+      $handler();
+    });
+  }
+
+}
+
+/**
+ * Copies the test modules to the module directory, replacing previous copies.
+ */
+function copyMods($modules) {
+  if (empty($modules)) {
+    Vertx::fileSystem()->copyRecursive('src/test/resources/isolation/mods', 'target/mods', function($error) {
+      if ($error) {
+        Vertx::logger()->error($error);
+        return;
+      }
+      TestRunner::run(new IsolationTestCase());
+    });
+  }
+  else {
+    $module = array_shift($modules);
+    Vertx::fileSystem()->deleteRecursive('target/mods/' . $module, function() use ($modules) {
+      copyMods($modules);
+    });
+  }
+}
+
+copyMods(array(
+  'io.vertx~php-threadtest-mod~v1.0',
+  'io.vertx~php-platformtest-a~v1.0',
+  'io.vertx~php-platformtest-b~v1.0',
+));
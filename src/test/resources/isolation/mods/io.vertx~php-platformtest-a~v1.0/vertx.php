@@ -0,0 +1,8 @@
+<?php
+
+/**
+ * Replies with the runtime in which this module runs.
+ */
+Vertx::eventBus()->registerHandler('test.isolation.platform.a', function($message) {
+    $message->reply(Vertx::runtimeStats());
+});
@@ -0,0 +1,8 @@
+<?php
+
+/**
+ * Replies with the runtime in which this instance runs.
+ */
+Vertx::eventBus()->registerHandler('test.isolation.thread', function($message) {
+    $message->reply(Vertx::runtimeStats());
+});
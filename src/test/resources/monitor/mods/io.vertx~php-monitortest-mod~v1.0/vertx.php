@@ -0,0 +1,9 @@
+<?php
+
+/**
+ * Replies with the metrics of all PHP callbacks. Deploying this module
+ * enables callback metrics and the event bus profiler for the platform.
+ */
+Vertx::eventBus()->registerHandler('test.monitor.metrics', function($message) {
+    $message->reply(Vertx::metrics());
+});
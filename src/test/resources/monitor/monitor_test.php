@@ -0,0 +1,140 @@
+<?php
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+use Vertx\Test\TestRunner;
+use Vertx\Test\PhpTestCase;
+
+/**
+ * A callback metrics and profiler test case.
+ */
+class MonitorTestCase extends PhpTestCase {
+
+  private $eventBus = NULL;
+
+  public function setUp() {
+    $this->eventBus = Vertx::eventBus();
+  }
+
+  /**
+   * Tests that callback invocations are recorded per origin.
+   */
+  public function testMetrics() {
+    $this->eventBus->send('test.monitor.metrics', 'metrics', function($reply) {
+      // Request the metrics again once this reply handler has been recorded.
+      Vertx::setTimer(10, function() {
+        $this->eventBus->send('test.monitor.metrics', 'metrics', function($reply) {
+          $handler = $this->findOrigin($reply->body, 'EventBus.registerHandler:test.monitor.metrics');
+          $this->assertNotNull($handler);
+          $this->assertTrue($handler['count'] >= 1);
+          $send = $this->findOrigin($reply->body, 'EventBus.send');
+          $this->assertNotNull($send);
+          $this->assertTrue($send['count'] >= 1);
+          $this->assertEquals(0, $send['errors']);
+          $this->complete();
+        });
+      });
+    });
+  }
+
+  /**
+   * Tests that callback metrics are served at the stats address.
+   */
+  public function testCallbackStatsAddress() {
+    $this->eventBus->send('vertx.php.callbacks', 'stats', function($reply) {
+      $this->assertTrue(is_array($reply->body['callbacks']));
+      $this->assertNotNull($this->findOrigin($reply->body, 'EventBus.registerHandler:test.monitor.metrics'));
+      $this->complete();
+    });
+  }
+
+  /**
+   * Tests that the profiler samples running PHP code.
+   */
+  public function testProfiler() {
+    Vertx::startProfiler(1);
+    Vertx::setTimer(10, function() {
+      $this->spin(100);
+      Vertx::setTimer(10, function() {
+        $stacks = Vertx::stopProfiler();
+        $this->assertTrue(strlen($stacks) > 0);
+        $this->assertTrue(strpos($stacks, 'spin') !== FALSE);
+        $this->complete();
+      });
+    });
+  }
+
+  /**
+   * Tests controlling the profiler through the event bus.
+   */
+  public function testProfilerAddress() {
+    $this->eventBus->send('vertx.php.profiler', array('action' => 'start', 'interval' => 1), function($reply) {
+      $this->assertEquals('ok', $reply->body['status']);
+      $this->assertTrue($reply->body['running']);
+      Vertx::setTimer(10, function() {
+        $this->spin(100);
+        $this->eventBus->send('vertx.php.profiler', array('action' => 'stop'), function($reply) {
+          $this->assertEquals('ok', $reply->body['status']);
+          $this->assertFalse($reply->body['running']);
+          $this->assertTrue($reply->body['samples'] > 0);
+          $this->assertTrue(strlen($reply->body['stacks']) > 0);
+          $this->complete();
+        });
+      });
+    });
+  }
+
+  /**
+   * Returns the metrics of an origin, or null if none were recorded.
+   */
+  public function findOrigin($metrics, $origin) {
+    foreach ($metrics['callbacks'] as $callback) {
+      if ($callback['origin'] == $origin) {
+        return $callback;
+      }
+    }
+    return NULL;
+  }
+
+  /**
+   * Keeps the current thread busy for a number of milliseconds.
+   */
+  public function spin($millis) {
+    $hash = '';
+    $end = microtime(TRUE) + $millis / 1000;
+    while (microtime(TRUE) < $end) {
+      $hash = md5($hash);
+    }
+    return $hash;
+  }
+
+}
+
+Vertx::fileSystem()->deleteRecursive('target/mods/io.vertx~php-monitortest-mod~v1.0', function() {
+  Vertx::fileSystem()->copyRecursive('src/test/resources/monitor/mods', 'target/mods', function($error) {
+    if ($error) {
+      Vertx::logger()->error($error);
+      return;
+    }
+    Vertx::deployModule('io.vertx~php-monitortest-mod~v1.0', NULL, 1, function($id, $error) {
+      if ($error) {
+        Vertx::logger()->error($error);
+        return;
+      }
+      TestRunner::run(new MonitorTestCase());
+    });
+  });
+});
@@ -103,6 +103,89 @@ class NetTestCase extends PhpTestCase {
     });
   }
 
+  /**
+   * Tests receiving data in batches, and that data waiting in a batch is
+   * delivered before the end of the stream.
+   */
+  public function testBatchedData() {
+    $sends = 10;
+    $size = 100;
+    $sent = new Buffer();
+
+    $this->server->connectHandler(function($socket) use ($sent, $sends, $size) {
+      $received = new Buffer();
+      $batches = 0;
+      $ended = FALSE;
+
+      // Nothing is delivered before the end, since batches wait for a minute.
+      $socket->dataHandler(function($buffer) use ($received, &$batches, &$ended) {
+        $this->assertFalse($ended);
+        $received->appendBuffer($buffer);
+        $batches++;
+      }, array('batch' => 1000, 'maxDelayMs' => 60000));
+
+      $socket->endHandler(function() use ($sent, $received, &$batches, &$ended, $sends, $size) {
+        $ended = TRUE;
+        $this->assertEquals(1, $batches);
+        $this->assertEquals($sends * $size, $received->length);
+        $this->assertEquals((string) $sent, (string) $received);
+        $this->complete();
+      });
+    });
+
+    $this->server->listen(8282, '0.0.0.0', function($server, $error) use ($sent, $sends, $size) {
+      $this->assertNull($error);
+      $this->client->connect(8282, 'localhost', function($socket, $error) use ($sent, $sends, $size) {
+        $this->assertNull($error);
+        for ($i = 0; $i < $sends; $i++) {
+          $buffer = $this->createBuffer($size);
+          $sent->appendBuffer($buffer);
+          $socket->write($buffer);
+        }
+        $socket->close();
+      });
+    });
+  }
+
+  /**
+   * Tests that pausing a socket holds back a partial batch until it is resumed.
+   */
+  public function testBatchedDataPaused() {
+    $size = 100;
+
+    $this->server->connectHandler(function($socket) use ($size) {
+      $received = new Buffer();
+      $paused = FALSE;
+
+      $socket->dataHandler(function($buffer) use ($received, &$paused, $size) {
+        $this->assertFalse($paused);
+        $received->appendBuffer($buffer);
+        if ($received->length == $size) {
+          $this->complete();
+        }
+      }, array('batch' => 1000, 'maxDelayMs' => 200));
+
+      // Pause while the data waits in its batch, and hold it past the delay.
+      Vertx::setTimer(50, function() use ($socket, $received, &$paused) {
+        $socket->pause();
+        $paused = TRUE;
+        Vertx::setTimer(500, function() use ($socket, $received, &$paused) {
+          $this->assertEquals(0, $received->length);
+          $paused = FALSE;
+          $socket->resume();
+        });
+      });
+    });
+
+    $this->server->listen(8383, '0.0.0.0', function($server, $error) use ($size) {
+      $this->assertNull($error);
+      $this->client->connect(8383, 'localhost', function($socket, $error) use ($size) {
+        $this->assertNull($error);
+        $socket->write($this->createBuffer($size));
+      });
+    });
+  }
+
   /**
    * Tests net server methods.
    */
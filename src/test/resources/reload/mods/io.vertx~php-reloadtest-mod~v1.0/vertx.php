@@ -0,0 +1,8 @@
+<?php
+
+/**
+ * The first version of the reloaded verticle.
+ */
+Vertx::eventBus()->registerHandler('test.reload', function($message) {
+    $message->reply('v1');
+});
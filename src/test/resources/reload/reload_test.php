@@ -0,0 +1,97 @@
+<?php
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+use Vertx\Buffer;
+use Vertx\Test\TestRunner;
+use Vertx\Test\PhpTestCase;
+
+/**
+ * A verticle hot reload test case.
+ */
+class ReloadTestCase extends PhpTestCase {
+
+  const SCRIPT = 'target/mods/io.vertx~php-reloadtest-mod~v1.0/vertx.php';
+
+  /**
+   * Tests that only the new version of a reloaded verticle handles messages.
+   */
+  public function testReload() {
+    $this->expectReplies('v1', 1, function() {
+      $source = "<?php\n"
+        . "// The second version of the reloaded verticle.\n"
+        . "Vertx::eventBus()->registerHandler('test.reload', function(\$message) {\n"
+        . "  \$message->reply('v2');\n"
+        . "});\n";
+      Vertx::fileSystem()->writeFile(self::SCRIPT, new Buffer($source), function($error) {
+        $this->assertNull($error);
+        $this->awaitReply('v2', function() {
+          // Had the first version's handler been kept, it would get every other message.
+          $this->expectReplies('v2', 10, function() {
+            $this->complete();
+          });
+        });
+      });
+    });
+  }
+
+  /**
+   * Sends messages until the verticle replies with the expected version.
+   */
+  public function awaitReply($expected, $handler) {
+    Vertx::eventBus()->send('test.reload', 'version', function($reply) use ($expected, $handler) {
+      if ($reply->body == $expected) {
+        $handler();
+      }
+      else {
+        Vertx::setTimer(100, function() use ($expected, $handler) {
+          $this->awaitReply($expected, $handler);
+        });
+      }
+    });
+  }
+
+  /**
+   * Sends a number of messages, checking that each is replied to with the expected version.
+   */
+  public function expectReplies($expected, $count, $handler) {
+    if ($count == 0) {
+      $handler();
+      return;
+    }
+    Vertx::eventBus()->send('test.reload', 'version', function($reply) use ($expected, $count, $handler) {
+      $this->assertEquals($expected, $reply->body);
+      $this->expectReplies($expected, $count - 1, $handler);
+    });
+  }
+
+}
+
+Vertx::fileSystem()->deleteRecursive('target/mods/io.vertx~php-reloadtest-mod~v1.0', function() {
+  Vertx::fileSystem()->copyRecursive('src/test/resources/reload/mods', 'target/mods', function($error) {
+    if ($error) {
+      Vertx::logger()->error($error);
+      return;
+    }
+    Vertx::deployModule('io.vertx~php-reloadtest-mod~v1.0', NULL, 1, function($id, $error) {
+      if ($error) {
+        Vertx::logger()->error($error);
+        return;
+      }
+      TestRunner::run(new ReloadTestCase());
+    });
+  });
+});
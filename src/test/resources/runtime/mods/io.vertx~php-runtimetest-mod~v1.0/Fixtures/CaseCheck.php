@@ -0,0 +1,14 @@
+<?php
+
+namespace Fixtures;
+
+/**
+ * A class loaded through the module's class map.
+ */
+class CaseCheck {
+
+    public function name() {
+        return get_class($this);
+    }
+
+}
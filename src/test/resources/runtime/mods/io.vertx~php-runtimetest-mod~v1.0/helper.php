@@ -0,0 +1,6 @@
+<?php
+
+/**
+ * Counts how often the script was required.
+ */
+$GLOBALS['helperLoads'] = isset($GLOBALS['helperLoads']) ? $GLOBALS['helperLoads'] + 1 : 1;
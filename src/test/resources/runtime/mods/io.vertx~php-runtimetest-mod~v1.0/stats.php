@@ -0,0 +1,6 @@
+<?php
+
+/**
+ * Reports the statistics of the runtime in which the verticle started.
+ */
+Vertx::eventBus()->send('test.runtime.stats', Vertx::runtimeStats());
@@ -0,0 +1,49 @@
+<?php
+
+$eventBus = Vertx::eventBus();
+
+/**
+ * Deploys the stats verticle twice. Both instances are created by this
+ * module's factory, so the second one should be served the page parsed
+ * for the first one from the program cache.
+ */
+$eventBus->registerHandler('test.runtime.cache', function($message) use ($eventBus) {
+    $reports = array();
+    $eventBus->registerHandler('test.runtime.stats', function($report) use ($message, &$reports) {
+        $reports[] = $report->body;
+        if (count($reports) == 1) {
+            Vertx::deployVerticle('stats.php');
+        } else {
+            $message->reply($reports);
+        }
+    });
+    Vertx::deployVerticle('stats.php');
+});
+
+/**
+ * Requires an existing and a missing resource twice each. Each resource
+ * should only be resolved once, while the existing script should still
+ * be executed on every call.
+ */
+$eventBus->registerHandler('test.runtime.require', function($message) {
+    $before = Vertx::runtimeStats();
+    require_vertx('helper.php');
+    require_vertx('helper.php');
+    require_vertx('missing.php');
+    require_vertx('missing.php');
+    $after = Vertx::runtimeStats();
+    $message->reply(array(
+        'loads' => $GLOBALS['helperLoads'],
+        'calls' => $after['requireVertx']['calls'] - $before['requireVertx']['calls'],
+        'resolves' => $after['requireVertx']['resolves'] - $before['requireVertx']['resolves'],
+    ));
+});
+
+/**
+ * Instantiates a class with different casing than its script, which can
+ * only be found through the class map on a case-sensitive file system.
+ */
+$eventBus->registerHandler('test.runtime.autoload', function($message) {
+    $object = new \fixtures\casecheck();
+    $message->reply($object->name());
+});
@@ -0,0 +1,83 @@
+<?php
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the MIT License (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ *     http://opensource.org/licenses/MIT
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+use Vertx\Test\TestRunner;
+use Vertx\Test\PhpTestCase;
+
+/**
+ * A PHP runtime test case.
+ */
+class RuntimeTestCase extends PhpTestCase {
+
+  private $eventBus = NULL;
+
+  public function setUp() {
+    $this->eventBus = Vertx::eventBus();
+  }
+
+  /**
+   * Tests that a script is only parsed once per runtime.
+   */
+  public function testProgramCache() {
+    $this->eventBus->send('test.runtime.cache', 'stats', function($reply) {
+      $first = $reply->body[0]['programCache'];
+      $second = $reply->body[1]['programCache'];
+      $this->assertEquals($first['misses'], $second['misses']);
+      $this->assertTrue($second['hits'] > $first['hits']);
+      $this->complete();
+    });
+  }
+
+  /**
+   * Tests that require_vertx() resolves each resource only once.
+   */
+  public function testRequireVertxCache() {
+    $this->eventBus->send('test.runtime.require', 'require', function($reply) {
+      $this->assertEquals(2, $reply->body['loads']);
+      $this->assertEquals(4, $reply->body['calls']);
+      $this->assertEquals(2, $reply->body['resolves']);
+      $this->complete();
+    });
+  }
+
+  /**
+   * Tests that classes are autoloaded through the module class map.
+   */
+  public function testClassMapAutoload() {
+    $this->eventBus->send('test.runtime.autoload', 'autoload', function($reply) {
+      $this->assertEquals('Fixtures\\CaseCheck', $reply->body);
+      $this->complete();
+    });
+  }
+
+}
+
+Vertx::fileSystem()->deleteRecursive('target/mods/io.vertx~php-runtimetest-mod~v1.0', function() {
+  Vertx::fileSystem()->copyRecursive('src/test/resources/runtime/mods', 'target/mods', function($error) {
+    if ($error) {
+      Vertx::logger()->error($error);
+      return;
+    }
+    Vertx::deployModule('io.vertx~php-runtimetest-mod~v1.0', NULL, 1, function($id, $error) {
+      if ($error) {
+        Vertx::logger()->error($error);
+        return;
+      }
+      TestRunner::run(new RuntimeTestCase());
+    });
+  });
+});
@@ -23,6 +23,11 @@ use Vertx\Test\PhpTestCase;
  */
 class TimerTestCase extends PhpTestCase {
 
+  /**
+   * The test case a static timer callback completes.
+   */
+  private static $current;
+
   /**
    * Tests a one-off timer.
    */
@@ -53,6 +58,37 @@ class TimerTestCase extends PhpTestCase {
     });
   }
 
+  /**
+   * Tests a timer with an object method callback.
+   */
+  public function testMethodCallback() {
+    Vertx::setTimer(10, array($this, 'timerFired'));
+  }
+
+  /**
+   * Tests a timer with a static method callback.
+   */
+  public function testStaticMethodCallback() {
+    self::$current = $this;
+    Vertx::setTimer(10, 'TimerTestCase::staticTimerFired');
+  }
+
+  /**
+   * An object method timer callback.
+   */
+  public function timerFired($timer_id) {
+    $this->assertNotNull($timer_id);
+    $this->complete();
+  }
+
+  /**
+   * A static method timer callback.
+   */
+  public static function staticTimerFired($timer_id) {
+    self::$current->assertNotNull($timer_id);
+    self::$current->complete();
+  }
+
 }
 
 TestRunner::run(new TimerTestCase());